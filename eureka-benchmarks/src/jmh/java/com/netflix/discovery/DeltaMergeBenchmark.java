@@ -0,0 +1,89 @@
+package com.netflix.discovery;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.discovery.converters.CodecBenchmark;
+import com.netflix.discovery.shared.Applications;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of applying a delta to the local registry of a {@link DiscoveryClient}, and of the shuffle that follows it.
+ *
+ * <p>
+ * The client neither registers nor fetches; its local registry is filled by applying the whole registry as a
+ * delta of added instances. The measured delta modifies {@link CodecBenchmark#DELTA_PERCENT} of the instances, so
+ * applying it again leaves the registry unchanged.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DeltaMergeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int instanceCount;
+
+    private DiscoveryClient client;
+    private Applications delta;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.registration.enabled", "false");
+        ConfigurationManager.getConfigInstance().setProperty("eureka.shouldFetchRegistry", "false");
+
+        InstanceInfo.Builder builder = InstanceInfo.Builder.newBuilder();
+        builder.setIPAddr("10.10.101.00");
+        builder.setHostName("Hosttt");
+        builder.setAppName("EurekaBenchmarkApp-" + UUID.randomUUID());
+        builder.setDataCenterInfo(new DataCenterInfo() {
+            @Override
+            public Name getName() {
+                return Name.MyOwn;
+            }
+        });
+        ApplicationInfoManager applicationInfoManager = new ApplicationInfoManager(new MyDataCenterInstanceConfig(), builder.build());
+        client = new DiscoveryClient(applicationInfoManager, new DefaultEurekaClientConfig());
+
+        client.updateDelta(CodecBenchmark.generateRegistry(instanceCount));
+        delta = CodecBenchmark.generateDelta(instanceCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Benchmark
+    public Applications updateDelta() {
+        client.updateDelta(delta);
+        return client.getApplications();
+    }
+
+    @Benchmark
+    public Applications shuffleInstances() {
+        Applications applications = client.getApplications();
+        applications.shuffleInstances(true);
+        return applications;
+    }
+}
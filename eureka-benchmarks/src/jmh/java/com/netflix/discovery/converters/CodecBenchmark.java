@@ -0,0 +1,113 @@
+package com.netflix.discovery.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.EurekaEntityFunctions;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode time of a full registry and of a delta with each of the {@link CodecWrappers}.
+ *
+ * <p>
+ * The codecs cover both formats and both {@link com.netflix.appinfo.EurekaAccept} variants: the Mini codecs are
+ * the ones used for compact payloads, LegacyJacksonJson is {@link EurekaJacksonCodec}, and the XStream codecs
+ * go through the {@link Converters}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    // Share of the registry carried by a delta
+    public static final int DELTA_PERCENT = 1;
+
+    @Param({"1000", "10000"})
+    private int instanceCount;
+
+    @Param({"registry", "delta"})
+    private String payload;
+
+    @Param({"LegacyJacksonJson", "JacksonJson", "JacksonJsonMini", "XStreamJson",
+            "JacksonXml", "JacksonXmlMini", "XStreamXml"})
+    private String codecName;
+
+    private CodecWrapper codec;
+    private Applications applications;
+    private byte[] encoded;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        codec = CodecWrappers.getCodec(codecName);
+        applications = "delta".equals(payload) ? generateDelta(instanceCount) : generateRegistry(instanceCount);
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        output.reset();
+        codec.encode(applications, output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public Applications decode() throws IOException {
+        return codec.decode(new ByteArrayInputStream(encoded), Applications.class);
+    }
+
+    public static Applications generateRegistry(int instanceCount) {
+        return InstanceInfoGenerator.newBuilder(instanceCount, applicationCount(instanceCount))
+                .withMetaData(true)
+                .build()
+                .toApplications();
+    }
+
+    /**
+     * A delta modifying {@link #DELTA_PERCENT} of the registry, spread across the applications.
+     */
+    public static Applications generateDelta(int instanceCount) {
+        List<InstanceInfo> registry = InstanceInfoGenerator.newBuilder(instanceCount, applicationCount(instanceCount))
+                .withMetaData(true)
+                .build()
+                .toInstanceList();
+        int step = 100 / DELTA_PERCENT;
+        List<InstanceInfo> modified = new ArrayList<>();
+        for (int i = 0; i < registry.size(); i += step) {
+            modified.add(EurekaEntityFunctions.copyInstance(registry.get(i), ActionType.MODIFIED));
+        }
+        Applications delta = EurekaEntityFunctions.toApplications(modified);
+        delta.setVersion(1L);
+        delta.setAppsHashCode(generateRegistry(instanceCount).getAppsHashCode());
+        return delta;
+    }
+
+    private static int applicationCount(int instanceCount) {
+        return Math.max(1, instanceCount / 20);
+    }
+}
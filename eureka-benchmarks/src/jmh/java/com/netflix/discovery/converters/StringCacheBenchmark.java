@@ -0,0 +1,90 @@
+package com.netflix.discovery.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.netflix.discovery.converters.jackson.AbstractEurekaJacksonCodec;
+import com.netflix.discovery.converters.jackson.EurekaJsonJacksonCodec;
+import com.netflix.discovery.converters.jackson.EurekaXmlJacksonCodec;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.DeserializerStringCache;
+import com.netflix.discovery.util.DeserializerStringCache.CacheScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding with and without a {@link DeserializerStringCache} shared across the whole payload.
+ *
+ * <p>
+ * The Jackson codecs intern the {@link com.netflix.appinfo.AmazonInfo} metadata through the cache of the reader
+ * when there is one, and through a cache of their own for each instance otherwise. {@link EurekaJacksonCodec}
+ * always decodes with a shared cache, so it is not part of this comparison; see {@link CodecBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class StringCacheBenchmark {
+
+    @Param({"1000", "10000"})
+    private int instanceCount;
+
+    @Param({"registry", "delta"})
+    private String payload;
+
+    @Param({"json", "xml"})
+    private String format;
+
+    @Param({"full", "compact"})
+    private String eurekaAccept;
+
+    private ObjectReader reader;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean compact = "compact".equals(eurekaAccept);
+        AbstractEurekaJacksonCodec codec = "xml".equals(format)
+                ? new EurekaXmlJacksonCodec(KeyFormatter.defaultKeyFormatter(), compact)
+                : new EurekaJsonJacksonCodec(KeyFormatter.defaultKeyFormatter(), compact);
+        reader = codec.getObjectMapper(Applications.class).readerFor(Applications.class);
+
+        Applications applications = "delta".equals(payload)
+                ? CodecBenchmark.generateDelta(instanceCount)
+                : CodecBenchmark.generateRegistry(instanceCount);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.writeTo(applications, output);
+        encoded = output.toByteArray();
+    }
+
+    @Benchmark
+    public Applications decodeWithStringCache() throws IOException {
+        ObjectReader cachingReader = DeserializerStringCache.init(reader);
+        try {
+            return cachingReader.readValue(new ByteArrayInputStream(encoded));
+        } finally {
+            DeserializerStringCache.clear(cachingReader, CacheScope.GLOBAL_SCOPE);
+        }
+    }
+
+    @Benchmark
+    public Applications decodeWithoutStringCache() throws IOException {
+        return reader.readValue(new ByteArrayInputStream(encoded));
+    }
+}
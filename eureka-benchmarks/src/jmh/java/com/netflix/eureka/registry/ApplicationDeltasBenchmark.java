@@ -0,0 +1,92 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of building the delta of a populated registry, bypassing the response cache.
+ *
+ * <p>
+ * The registrations that populate the registry are expired from the change log first, so the delta holds exactly
+ * {@code changeCount} changes spread across the applications, as it would a while after the server started.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ApplicationDeltasBenchmark {
+
+    private static final long POPULATE_TIMEOUT_MS = 60 * 1000;
+
+    @Param({"1000", "10000", "100000"})
+    private int instanceCount;
+
+    @Param({"100", "1000"})
+    private int changeCount;
+
+    private PeerAwareInstanceRegistryImpl registry;
+    private long sequenceBeforeChanges;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RegistryFixture.configure(0);
+        List<InstanceInfo> instances = RegistryFixture.generateInstances(instanceCount);
+        registry = RegistryFixture.newRegistry();
+        RegistryFixture.registerAll(registry, instances);
+
+        long deadline = System.currentTimeMillis() + POPULATE_TIMEOUT_MS;
+        while (registry.getApplicationDeltas().size() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Registrations were not expired from the change log");
+            }
+            Thread.sleep(100);
+        }
+        RegistryFixture.configure(TimeUnit.HOURS.toMillis(1));
+
+        sequenceBeforeChanges = registry.getLastChangeSequence();
+        int step = Math.max(1, instances.size() / changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            RegistryFixture.register(registry, instances.get((i * step) % instances.size()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public Applications getApplicationDeltas() {
+        return registry.getApplicationDeltas();
+    }
+
+    @Benchmark
+    public Applications getApplicationDeltasFromMultipleRegions() {
+        // The path taken by the response cache for the delta key
+        return registry.getApplicationDeltasFromMultipleRegions(null);
+    }
+
+    @Benchmark
+    public Applications getApplicationDeltasSince() {
+        return registry.getApplicationDeltasSince(sequenceBeforeChanges);
+    }
+}
@@ -0,0 +1,79 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.lease.Lease;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of an eviction run on a populated registry.
+ *
+ * <p>
+ * {@link #evictNone} measures the periodic run when nothing is expired, which is what the eviction task does most of
+ * the time. {@link #evictAll} runs with every lease expired, so the run evicts as many instances as the renewal
+ * percent threshold allows (15% by default); the evicted instances are registered back before the next run.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class EvictionBenchmark {
+
+    // Leases are considered expired one duration after their last update, which is itself set one duration ahead
+    private static final long EXPIRE_ALL_MS = -(2 * Lease.DEFAULT_DURATION_IN_SECS + 10) * 1000L;
+
+    @Param({"1000", "10000", "100000"})
+    private int instanceCount;
+
+    private List<InstanceInfo> instances;
+    private PeerAwareInstanceRegistryImpl registry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RegistryFixture.configure(RegistryFixture.SHORT_DELTA_RETENTION_MS);
+        instances = RegistryFixture.generateInstances(instanceCount);
+        registry = RegistryFixture.newRegistry();
+        RegistryFixture.registerAll(registry, instances);
+    }
+
+    @Setup(Level.Iteration)
+    public void registerEvicted() {
+        for (InstanceInfo instance : instances) {
+            if (registry.getInstanceByAppAndId(instance.getAppName(), instance.getId(), false) == null) {
+                RegistryFixture.register(registry, instance);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public void evictNone() {
+        registry.evict();
+    }
+
+    @Benchmark
+    public void evictAll() {
+        registry.evict(EXPIRE_ALL_MS);
+    }
+}
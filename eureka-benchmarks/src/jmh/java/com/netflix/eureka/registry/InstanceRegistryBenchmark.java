@@ -0,0 +1,93 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Register, renew and cancel throughput of a populated registry. Each operation goes to the next instance in
+ * turn, so that all the applications of the registry are touched.
+ *
+ * <p>
+ * A cancelled instance has to be registered back to keep the registry size constant, so cancel is measured
+ * together with the registration; the cost of the cancel alone is the difference with {@link #register}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class InstanceRegistryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int instanceCount;
+
+    private List<InstanceInfo> instances;
+    private PeerAwareInstanceRegistryImpl registry;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Keep concurrent threads apart
+            next = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        }
+
+        InstanceInfo next(List<InstanceInfo> instances) {
+            next = (next + 1) % instances.size();
+            return instances.get(next);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RegistryFixture.configure(RegistryFixture.SHORT_DELTA_RETENTION_MS);
+        instances = RegistryFixture.generateInstances(instanceCount);
+        registry = RegistryFixture.newRegistry();
+        RegistryFixture.registerAll(registry, instances);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public void register(Cursor cursor) {
+        RegistryFixture.register(registry, cursor.next(instances));
+    }
+
+    @Benchmark
+    public boolean renew(Cursor cursor) {
+        InstanceInfo instance = cursor.next(instances);
+        return registry.renew(instance.getAppName(), instance.getId(), true);
+    }
+
+    @Benchmark
+    public boolean cancelAndRegister(Cursor cursor) {
+        InstanceInfo instance = cursor.next(instances);
+        boolean cancelled = registry.cancel(instance.getAppName(), instance.getId(), true);
+        RegistryFixture.register(registry, instance);
+        return cancelled;
+    }
+}
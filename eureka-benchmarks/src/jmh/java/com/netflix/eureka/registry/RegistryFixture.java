@@ -0,0 +1,74 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.apache.commons.configuration.AbstractConfiguration;
+
+/**
+ * Builds the registries the benchmarks run against, populated with instances from {@link InstanceInfoGenerator}.
+ *
+ * <p>
+ * The registries are standalone: they have no peers and no remote regions, and all the mutations are made as
+ * replications so that nothing tries to reach a peer. Self preservation is disabled, so that leases can always
+ * be evicted.
+ * </p>
+ */
+final class RegistryFixture {
+
+    static final int INSTANCES_PER_APPLICATION = 20;
+
+    // Short enough that the change log of the mutation benchmarks stays small
+    static final long SHORT_DELTA_RETENTION_MS = 1000;
+
+    private RegistryFixture() {
+    }
+
+    /**
+     * Sets the configuration for the registries created after this call. The delta retention time is dynamic, and
+     * also applies to the registries created before.
+     */
+    static void configure(long deltaRetentionMs) {
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty("eureka.enableSelfPreservation", "false");
+        config.setProperty("eureka.deltaRetentionTimerIntervalInMs", "100");
+        config.setProperty("eureka.retentionTimeInMSInDeltaQueue", Long.toString(deltaRetentionMs));
+    }
+
+    static List<InstanceInfo> generateInstances(int instanceCount) {
+        int applicationCount = Math.max(1, instanceCount / INSTANCES_PER_APPLICATION);
+        return InstanceInfoGenerator.newBuilder(instanceCount, applicationCount)
+                .withMetaData(true)
+                .build()
+                .toInstanceList();
+    }
+
+    static PeerAwareInstanceRegistryImpl newRegistry() {
+        EurekaServerConfig serverConfig = new DefaultEurekaServerConfig();
+        PeerAwareInstanceRegistryImpl registry = new PeerAwareInstanceRegistryImpl(
+                serverConfig,
+                new DefaultEurekaClientConfig(),
+                new DefaultServerCodecs(serverConfig),
+                null
+        );
+        registry.initializedResponseCache();
+        return registry;
+    }
+
+    static void register(PeerAwareInstanceRegistryImpl registry, InstanceInfo instance) {
+        registry.register(instance, Lease.DEFAULT_DURATION_IN_SECS, true);
+    }
+
+    static void registerAll(PeerAwareInstanceRegistryImpl registry, List<InstanceInfo> instances) {
+        for (InstanceInfo instance : instances) {
+            register(registry, instance);
+        }
+    }
+}
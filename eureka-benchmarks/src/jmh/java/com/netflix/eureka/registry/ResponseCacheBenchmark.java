@@ -0,0 +1,117 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.eureka.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full registry fetches from the response cache while the registry keeps changing.
+ *
+ * <p>
+ * In each group three threads read the full registry, as the clients do, and one thread registers instances
+ * again in a loop, which invalidates the cached payloads of their application and of the full registry. The
+ * refresh mode selects how the readers see the invalidations:
+ * <ul>
+ *     <li>readWrite: reads go straight to the read-write cache, and the payloads are encoded again after each change</li>
+ *     <li>readOnly: reads are served from the read-only cache, which is refreshed every 30 seconds</li>
+ *     <li>readOnlyDirtyKeys: as readOnly, but the invalidated keys are refreshed shortly after each change</li>
+ * </ul>
+ * </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    // Spacing between two registry changes, so that the readers still get some cache hits
+    private static final long CHURN_BACKOFF_TOKENS = 100_000;
+
+    @Param({"1000", "10000", "100000"})
+    private int instanceCount;
+
+    @Param({"readWrite", "readOnly", "readOnlyDirtyKeys"})
+    private String refreshMode;
+
+    private List<InstanceInfo> instances;
+    private PeerAwareInstanceRegistryImpl registry;
+    private ResponseCache responseCache;
+
+    private final Key allAppsKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+            Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RegistryFixture.configure(RegistryFixture.SHORT_DELTA_RETENTION_MS);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.shouldUseReadOnlyResponseCache",
+                Boolean.toString(!"readWrite".equals(refreshMode)));
+        ConfigurationManager.getConfigInstance().setProperty("eureka.shouldUseDirtyKeyResponseCacheRefresh",
+                Boolean.toString("readOnlyDirtyKeys".equals(refreshMode)));
+
+        instances = RegistryFixture.generateInstances(instanceCount);
+        registry = RegistryFixture.newRegistry();
+        RegistryFixture.registerAll(registry, instances);
+        responseCache = registry.getResponseCache();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    @Group("get")
+    @GroupThreads(3)
+    public String get() {
+        return responseCache.get(allAppsKey);
+    }
+
+    @Benchmark
+    @Group("get")
+    @GroupThreads(1)
+    public void churnDuringGet() {
+        churn();
+    }
+
+    @Benchmark
+    @Group("getGZIP")
+    @GroupThreads(3)
+    public byte[] getGZIP() {
+        return responseCache.getGZIP(allAppsKey);
+    }
+
+    @Benchmark
+    @Group("getGZIP")
+    @GroupThreads(1)
+    public void churnDuringGetGZIP() {
+        churn();
+    }
+
+    private void churn() {
+        RegistryFixture.register(registry, instances.get(ThreadLocalRandom.current().nextInt(instances.size())));
+        Blackhole.consumeCPU(CHURN_BACKOFF_TOKENS);
+    }
+}
@@ -85,6 +85,14 @@ public class EurekaArchaius2ClientConfig implements EurekaClientConfig {
         return prefixedConfig.getString(BACKUP_REGISTRY_CLASSNAME_KEY, null);
     }
 
+    public String getBackupRegistryFile() {
+        return prefixedConfig.getString(BACKUP_REGISTRY_FILE_KEY, null);
+    }
+
+    public boolean shouldUseBackupRegistryAtInit() {
+        return prefixedConfig.getBoolean(SHOULD_USE_BACKUP_REGISTRY_AT_INIT_KEY, false);
+    }
+
     public int getEurekaServerTotalConnections() {
         return prefixedConfig.getInteger(EUREKA_SERVER_MAX_CONNECTIONS_KEY, 200);
     }
@@ -185,6 +193,18 @@ public class EurekaArchaius2ClientConfig implements EurekaClientConfig {
         return prefixedConfig.getString(FETCH_SINGLE_VIP_ONLY_KEY, null);
     }
 
+    public String getRegistryRefreshInterestApplications() {
+        return prefixedConfig.getString(FETCH_INTEREST_APPS_KEY, null);
+    }
+
+    public String getRegistryRefreshInterestVipAddresses() {
+        return prefixedConfig.getString(FETCH_INTEREST_VIPS_KEY, null);
+    }
+
+    public int getRegistryReconcileMaxApplications() {
+        return prefixedConfig.getInteger(RECONCILE_MAX_APPLICATIONS_KEY, Values.DEFAULT_RECONCILE_MAX_APPLICATIONS);
+    }
+
     public int getHeartbeatExecutorThreadPoolSize() {
         return prefixedConfig.getInteger(HEARTBEAT_THREADPOOL_SIZE_KEY, Values.DEFAULT_EXECUTOR_THREAD_POOL_SIZE);
     }
@@ -37,6 +37,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
@@ -224,6 +226,41 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
         return getApplicationsInternal("svips/" + secureVipAddress, regions);
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest) {
+        return getApplicationsOfInterestInternal("apps/interest", interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaOfInterest(RegistryInterest interest) {
+        return getApplicationsOfInterestInternal("apps/interest/delta", interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<ApplicationsManifest> getApplicationsManifest() {
+        String urlPath = "apps/manifest";
+        Response response = null;
+        try {
+            Builder requestBuilder = jerseyClient.target(serviceUrl).path(urlPath).request();
+            addExtraProperties(requestBuilder);
+            addExtraHeaders(requestBuilder);
+            response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get();
+
+            ApplicationsManifest manifest = null;
+            if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
+                manifest = response.readEntity(ApplicationsManifest.class);
+            }
+            return anEurekaHttpResponse(response.getStatus(), manifest).headers(headersOf(response)).build();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jersey2 HTTP GET {}/{}; statusCode={}", serviceUrl, urlPath, response == null ? "N/A" : response.getStatus());
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Application> getApplication(String appName) {
         String urlPath = "apps/" + appName;
@@ -250,12 +287,23 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
     }
 
     private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+        WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath);
+        if (regions != null && regions.length > 0) {
+            webTarget = webTarget.queryParam("regions", StringUtil.join(regions));
+        }
+        return getApplicationsInternal(urlPath, webTarget);
+    }
+
+    private EurekaHttpResponse<Applications> getApplicationsOfInterestInternal(String urlPath, RegistryInterest interest) {
+        WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath)
+                .queryParam("apps", String.join(",", interest.getAppNames()))
+                .queryParam("vips", String.join(",", interest.getVipAddresses()));
+        return getApplicationsInternal(urlPath, webTarget);
+    }
+
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, WebTarget webTarget) {
         Response response = null;
         try {
-            WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath);
-            if (regions != null && regions.length > 0) {
-                webTarget = webTarget.queryParam("regions", StringUtil.join(regions));
-            }
             Builder requestBuilder = webTarget.request();
             addExtraProperties(requestBuilder);
             addExtraHeaders(requestBuilder);
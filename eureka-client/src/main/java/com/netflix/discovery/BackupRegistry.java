@@ -39,4 +39,14 @@ public interface BackupRegistry {
     Applications fetchRegistry();
 
     Applications fetchRegistry(String[] includeRemoteRegions);
+
+    /**
+     * Called with the registry after each successful fetch from the eureka servers that changed it, for the
+     * implementations keeping a copy of it. It is called by the thread fetching the registry, which it should not
+     * hold up; the applications are not modified once passed.
+     *
+     * @param applications the registry of the client, including the remote regions it fetches.
+     */
+    default void storeRegistry(Applications applications) {
+    }
 }
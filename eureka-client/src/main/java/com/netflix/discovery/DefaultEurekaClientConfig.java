@@ -207,6 +207,16 @@ public class DefaultEurekaClientConfig implements EurekaClientConfig {
                 null).get();
     }
 
+    @Override
+    public String getBackupRegistryFile() {
+        return configInstance.getStringProperty(namespace + BACKUP_REGISTRY_FILE_KEY, null).get();
+    }
+
+    @Override
+    public boolean shouldUseBackupRegistryAtInit() {
+        return configInstance.getBooleanProperty(namespace + SHOULD_USE_BACKUP_REGISTRY_AT_INIT_KEY, false).get();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -444,6 +454,24 @@ public class DefaultEurekaClientConfig implements EurekaClientConfig {
                 namespace + FETCH_SINGLE_VIP_ONLY_KEY, null).get();
     }
 
+    @Override
+    public String getRegistryRefreshInterestApplications() {
+        return configInstance.getStringProperty(
+                namespace + FETCH_INTEREST_APPS_KEY, null).get();
+    }
+
+    @Override
+    public String getRegistryRefreshInterestVipAddresses() {
+        return configInstance.getStringProperty(
+                namespace + FETCH_INTEREST_VIPS_KEY, null).get();
+    }
+
+    @Override
+    public int getRegistryReconcileMaxApplications() {
+        return configInstance.getIntProperty(
+                namespace + RECONCILE_MAX_APPLICATIONS_KEY, Values.DEFAULT_RECONCILE_MAX_APPLICATIONS).get();
+    }
+
     /**
      * (non-Javadoc)
      *
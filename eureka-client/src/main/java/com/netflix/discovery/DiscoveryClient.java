@@ -26,6 +26,8 @@ import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.endpoint.EndpointUtils;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.resolver.ClosableResolver;
 import com.netflix.discovery.shared.resolver.EndpointRandomizer;
 import com.netflix.discovery.shared.resolver.ResolverUtils;
@@ -51,6 +53,7 @@ import javax.inject.Singleton;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.core.Response.Status;
+import java.io.File;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -150,6 +153,7 @@ public class DiscoveryClient implements EurekaClient {
     private final AtomicReference<HealthCheckHandler> healthCheckHandlerRef = new AtomicReference<>();
     private volatile Map<String, Applications> remoteRegionVsApps = new ConcurrentHashMap<>();
     private volatile InstanceInfo.InstanceStatus lastRemoteInstanceStatus = InstanceInfo.InstanceStatus.UNKNOWN;
+    private boolean initialRegistryFromBackup;
     private final CopyOnWriteArraySet<EurekaEventListener> eventListeners = new CopyOnWriteArraySet<>();
 
     private String appPathIdentifier;
@@ -164,6 +168,8 @@ public class DiscoveryClient implements EurekaClient {
     private final ThresholdLevelsMetric registryStalenessMonitor;
 
     private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+    // 本地registry有变化, 还没交给backupRegistry保存
+    private final AtomicBoolean registryChangedSinceBackup = new AtomicBoolean(false);
 
     protected final EurekaClientConfig clientConfig;
     protected final EurekaTransportConfig transportConfig;
@@ -253,35 +259,7 @@ public class DiscoveryClient implements EurekaClient {
                            AbstractDiscoveryClientOptionalArgs args, EndpointRandomizer randomizer) {
         this(applicationInfoManager, config, args,
                 // 提供一个连不到其它server的时候的备份server(registry), 根据"eureka.backupregistry"配置
-                new Provider<BackupRegistry>() {
-                    private volatile BackupRegistry backupRegistryInstance;
-
-                    @Override
-                    public synchronized BackupRegistry get() {
-                        if (backupRegistryInstance == null) {
-                            String backupRegistryClassName = config.getBackupRegistryImpl();
-                            if (null != backupRegistryClassName) {
-                                try {
-                                    backupRegistryInstance = (BackupRegistry) Class.forName(backupRegistryClassName).newInstance();
-                                    logger.info("Enabled backup registry of type {}", backupRegistryInstance.getClass());
-                                } catch (InstantiationException e) {
-                                    logger.error("Error instantiating BackupRegistry.", e);
-                                } catch (IllegalAccessException e) {
-                                    logger.error("Error instantiating BackupRegistry.", e);
-                                } catch (ClassNotFoundException e) {
-                                    logger.error("Error instantiating BackupRegistry.", e);
-                                }
-                            }
-
-                            if (backupRegistryInstance == null) {
-                                logger.warn("Using default backup registry implementation which does not do anything.");
-                                backupRegistryInstance = new NotImplementedRegistryImpl();
-                            }
-                        }
-
-                        return backupRegistryInstance;
-                    }
-                }, randomizer);
+                new DefaultBackupRegistryProvider(config), randomizer);
     }
 
     /**
@@ -430,12 +408,18 @@ public class DiscoveryClient implements EurekaClient {
         //      两次拉不到,而且配置了必须要拉, 就报错.
         if (clientConfig.shouldFetchRegistry()) {
             try {
-                boolean primaryFetchRegistryResult = fetchRegistry(false);
+                // 配置了先用backup的话, 先从backup拿, 从server拉取放到第一次cacheRefresh里
+                boolean useBackupRegistryAtInit = clientConfig.shouldUseBackupRegistryAtInit();
+                initialRegistryFromBackup = useBackupRegistryAtInit && fetchRegistryFromBackup();
+                if (initialRegistryFromBackup) {
+                    logger.info("Initial registry taken from the backup registry, it is fetched from the servers in the background");
+                }
+                boolean primaryFetchRegistryResult = initialRegistryFromBackup || fetchRegistry(false);
                 if (!primaryFetchRegistryResult) {
                     logger.info("Initial registry fetch from primary servers failed");
                 }
                 boolean backupFetchRegistryResult = true;
-                if (!primaryFetchRegistryResult && !fetchRegistryFromBackup()) {
+                if (!primaryFetchRegistryResult && (useBackupRegistryAtInit || !fetchRegistryFromBackup())) {
                     backupFetchRegistryResult = false;
                     logger.info("Initial registry fetch from backup servers failed");
                 }
@@ -814,9 +798,7 @@ public class DiscoveryClient implements EurekaClient {
         logger.info("Getting all instance registry info from the eureka server");
 
         Applications apps = null;
-        EurekaHttpResponse<Applications> httpResponse = clientConfig.getRegistryRefreshSingleVipAddress() == null
-                ? eurekaTransport.queryClient.getApplications(remoteRegionsRef.get())
-                : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegionsRef.get());
+        EurekaHttpResponse<Applications> httpResponse = getFullRegistry(remoteRegionsRef.get());
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             apps = httpResponse.getEntity();
         }
@@ -825,13 +807,41 @@ public class DiscoveryClient implements EurekaClient {
         if (apps == null) {
             logger.error("The application is null for some reason. Not storing this information");
         } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
-            localRegionApps.set(this.filterAndShuffle(apps));
             logger.debug("Got full registry with apps hashcode {}", apps.getAppsHashCode());
+            final Applications applications = this.filterAndShuffle(apps);
+            applications.setAppsHashCode(applications.getReconcileHashCode());
+            localRegionApps.set(applications);
+            registryChangedSinceBackup.set(true);
         } else {
             logger.warn("Not updating applications as another thread is updating it already");
         }
     }
 
+    /**
+     * Gets the registry the client is interested in: the applications and VIP addresses of its
+     * {@link #getRegistryInterest() interest} if it has one, else the single VIP it is configured with, else the whole
+     * registry.
+     */
+    private EurekaHttpResponse<Applications> getFullRegistry(String... remoteRegions) {
+        RegistryInterest interest = getRegistryInterest();
+        if (interest != null) {
+            return eurekaTransport.queryClient.getApplicationsOfInterest(interest);
+        }
+        return clientConfig.getRegistryRefreshSingleVipAddress() == null
+                ? eurekaTransport.queryClient.getApplications(remoteRegions)
+                : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegions);
+    }
+
+    /**
+     * @return the applications and VIP addresses the client limits its registry to, or null if it has none. The
+     * configuration is read on every fetch, so a change is picked up once the next delta fails to reconcile.
+     */
+    @Nullable
+    private RegistryInterest getRegistryInterest() {
+        return RegistryInterest.parse(clientConfig.getRegistryRefreshInterestApplications(),
+                clientConfig.getRegistryRefreshInterestVipAddresses());
+    }
+
     /**
      * Gets the list of instances matching the given VIP Address in the passed region.
      *
@@ -889,6 +899,9 @@ public class DiscoveryClient implements EurekaClient {
 
             // 2. 定时任务线程池关闭
             cancelScheduledTasks();
+            if (backupRegistryProvider instanceof DefaultBackupRegistryProvider) {
+                ((DefaultBackupRegistryProvider) backupRegistryProvider).shutdown();
+            }
 
             // 3. 取消注册, 调用: del: apps/{appName}/{instanceId}
             // If APPINFO was registered
@@ -1006,6 +1019,7 @@ public class DiscoveryClient implements EurekaClient {
             {
                 logger.info("Disable delta property : {}", clientConfig.shouldDisableDelta());
                 logger.info("Single vip registry refresh property : {}", clientConfig.getRegistryRefreshSingleVipAddress());
+                logger.info("Registry interest : {}", getRegistryInterest());
                 logger.info("Force full registry fetch : {}", forceFullRegistryFetch);
                 logger.info("Application is null : {}", (applications == null));
                 logger.info("Registered Applications size is zero : {}",
@@ -1016,8 +1030,7 @@ public class DiscoveryClient implements EurekaClient {
                 // 否则, 拉取delta的
                 getAndUpdateDelta(applications);
             }
-            // 2. 把拉去来的applications 存起来.
-            applications.setAppsHashCode(applications.getReconcileHashCode());
+            // 2. 拉过来的applications在替换之前已经算好了hashCode
             logTotalInstances();
         } catch (Throwable e) {
             logger.info(PREFIX + "{} - was unable to refresh its cache! This periodic background refresh will be retried in {} seconds. status = {} stacktrace = {}",
@@ -1029,11 +1042,14 @@ public class DiscoveryClient implements EurekaClient {
             }
         }
 
-        // 3.
+        // 3. 把拉到的registry交给backupRegistry保存一份
+        storeRegistryInBackup();
+
+        // 4.
         // Notify about cache refresh before updating the instance remote status
         onCacheRefreshed();
 
-        // 4.
+        // 5.
         // Update remote status based on refreshed data held in the cache
         updateInstanceRemoteStatus();
 
@@ -1092,9 +1108,7 @@ public class DiscoveryClient implements EurekaClient {
     @Override
     public Applications getApplications(String serviceUrl) {
         try {
-            EurekaHttpResponse<Applications> response = clientConfig.getRegistryRefreshSingleVipAddress() == null
-                    ? eurekaTransport.queryClient.getApplications()
-                    : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress());
+            EurekaHttpResponse<Applications> response = getFullRegistry();
             if (response.getStatusCode() == Status.OK.getStatusCode()) {
                 logger.debug(PREFIX + "{} -  refresh status: {}", appPathIdentifier, response.getStatusCode());
                 return response.getEntity();
@@ -1173,9 +1187,10 @@ public class DiscoveryClient implements EurekaClient {
                     expBackOffBound,
                     new CacheRefreshThread()
             );
+            // The registry taken from the backup registry is replaced right away
             scheduler.schedule(
                     cacheRefreshTask,
-                    registryFetchIntervalSeconds, TimeUnit.SECONDS);
+                    initialRegistryFromBackup ? 0 : registryFetchIntervalSeconds, TimeUnit.SECONDS);
         }
 
         // 2. 需要注册eureka.
@@ -1256,7 +1271,10 @@ public class DiscoveryClient implements EurekaClient {
 
         // 2. 直接查询当前的delta:
         Applications delta = null;
-        EurekaHttpResponse<Applications> httpResponse = eurekaTransport.queryClient.getDelta(remoteRegionsRef.get());
+        RegistryInterest interest = getRegistryInterest();
+        EurekaHttpResponse<Applications> httpResponse = interest == null
+                ? eurekaTransport.queryClient.getDelta(remoteRegionsRef.get())
+                : eurekaTransport.queryClient.getDeltaOfInterest(interest);
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             delta = httpResponse.getEntity();
         }
@@ -1274,8 +1292,11 @@ public class DiscoveryClient implements EurekaClient {
                 try {
                     // 1. 根据更新过来的application带的instanceInfo里的actionType来对cache里的applications增改删
                     updateDelta(delta);
-                    // todo
-                    reconcileHashCode = getReconcileHashCode(applications);
+                    if (!delta.getRegisteredApplications().isEmpty()) {
+                        registryChangedSinceBackup.set(true);
+                    }
+                    // The applications were replaced by the update
+                    reconcileHashCode = getReconcileHashCode(getApplications());
                 } finally {
                     fetchRegistryUpdateLock.unlock();
                 }
@@ -1331,7 +1352,8 @@ public class DiscoveryClient implements EurekaClient {
      * @throws Throwable on any error.
      * <p>
      * 协调eureka-server和client的registry的不同:
-     * 1. 查询fullRegistry.
+     * 1. 先只拉取hashCode不一致的application.
+     * 2. 不行的话查询fullRegistry.
      */
     private void reconcileAndLogDifference(Applications delta, String reconcileHashCode) throws Throwable {
         logger.debug("The Reconcile hashcodes do not match, client : {}, server : {}. Getting the full registry",
@@ -1341,9 +1363,11 @@ public class DiscoveryClient implements EurekaClient {
 
         long currentUpdateGeneration = fetchRegistryGeneration.get();
 
-        EurekaHttpResponse<Applications> httpResponse = clientConfig.getRegistryRefreshSingleVipAddress() == null
-                ? eurekaTransport.queryClient.getApplications(remoteRegionsRef.get())
-                : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegionsRef.get());
+        if (reconcileDivergedApplications(delta, currentUpdateGeneration)) {
+            return;
+        }
+
+        EurekaHttpResponse<Applications> httpResponse = getFullRegistry(remoteRegionsRef.get());
         Applications serverApps = httpResponse.getEntity();
 
         if (serverApps == null) {
@@ -1352,17 +1376,90 @@ public class DiscoveryClient implements EurekaClient {
         }
 
         if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
-            localRegionApps.set(this.filterAndShuffle(serverApps));
-            getApplications().setVersion(delta.getVersion());
+            final Applications applications = this.filterAndShuffle(serverApps);
+            applications.setVersion(delta.getVersion());
+            applications.setAppsHashCode(applications.getReconcileHashCode());
+            localRegionApps.set(applications);
+            registryChangedSinceBackup.set(true);
             logger.debug(
                     "The Reconcile hashcodes after complete sync up, client : {}, server : {}.",
-                    getApplications().getReconcileHashCode(),
+                    applications.getAppsHashCode(),
                     delta.getAppsHashCode());
         } else {
             logger.warn("Not setting the applications map as another thread has advanced the update generation");
         }
     }
 
+    /**
+     * Reconciles the registry by fetching only the applications whose hash code differs from the one in the
+     * {@link ApplicationsManifest manifest} of the server. Only the local region registry fetched as a whole is
+     * reconciled this way, and only if no more than {@link EurekaClientConfig#getRegistryReconcileMaxApplications()}
+     * applications diverged.
+     *
+     * @return true if the registry was reconciled, false if the full registry has to be fetched instead.
+     *
+     * 只拉取不一致的application, 避免hashCode不一致时所有client一起拉全量.
+     */
+    private boolean reconcileDivergedApplications(Applications delta, long currentUpdateGeneration) {
+        int maxApplications = clientConfig.getRegistryReconcileMaxApplications();
+        if (maxApplications <= 0 || isFetchingRemoteRegionRegistries() || getRegistryInterest() != null
+                || clientConfig.getRegistryRefreshSingleVipAddress() != null) {
+            return false;
+        }
+        try {
+            EurekaHttpResponse<ApplicationsManifest> manifestResponse =
+                    eurekaTransport.queryClient.getApplicationsManifest();
+            ApplicationsManifest manifest = manifestResponse.getStatusCode() == Status.OK.getStatusCode()
+                    ? manifestResponse.getEntity() : null;
+            if (manifest == null) {
+                logger.info("Cannot get the applications manifest; statusCode={}", manifestResponse.getStatusCode());
+                return false;
+            }
+
+            Applications currentApps = getApplications();
+            Set<String> divergedApps = manifest.getDivergedApplications(currentApps);
+            if (divergedApps.size() > maxApplications) {
+                logger.debug("{} applications diverged, more than the {} fetched one by one",
+                        divergedApps.size(), maxApplications);
+                return false;
+            }
+            List<Application> changedApps = new ArrayList<Application>();
+            for (String appName : divergedApps) {
+                if (!manifest.getAppHashCodes().containsKey(appName)) {
+                    // Not on the server anymore, an application without instances removes it
+                    changedApps.add(new Application(appName));
+                    continue;
+                }
+                EurekaHttpResponse<Application> appResponse = eurekaTransport.queryClient.getApplication(appName);
+                if (appResponse.getStatusCode() != Status.OK.getStatusCode() || appResponse.getEntity() == null) {
+                    logger.info("Cannot get the diverged application {}; statusCode={}",
+                            appName, appResponse.getStatusCode());
+                    return false;
+                }
+                changedApps.add(appResponse.getEntity());
+            }
+
+            Applications applications = withChangedApplications(currentApps, changedApps, delta.getVersion());
+            // The applications fetched may have changed again since the manifest
+            if (!applications.getAppsHashCode().equals(manifest.getAppsHashCode())) {
+                logger.debug("The Reconcile hashcodes after fetching {} applications, client : {}, server : {}.",
+                        divergedApps.size(), applications.getAppsHashCode(), manifest.getAppsHashCode());
+                return false;
+            }
+            if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
+                localRegionApps.set(applications);
+                registryChangedSinceBackup.set(true);
+                logger.debug("Reconciled the registry by fetching the diverged applications {}", divergedApps);
+            } else {
+                logger.warn("Not setting the applications map as another thread has advanced the update generation");
+            }
+            return true;
+        } catch (Throwable e) {
+            logger.warn("Cannot fetch the diverged applications; reconciling with the full registry", e);
+            return false;
+        }
+    }
+
     /**
      * @deprecated see replacement in {@link com.netflix.discovery.endpoint.EndpointUtils}
      */
@@ -1376,69 +1473,103 @@ public class DiscoveryClient implements EurekaClient {
      * Updates the delta information fetches from the eureka server into the
      * local cache.
      *
+     * <p>
+     * The applications held by the client are never modified once published. The applications changed by the delta
+     * are copied and updated, the others are shared with the current applications, and the result replaces them at
+     * once, so readers always see either the applications before the delta or after it.
+     * </p>
+     *
      * @param delta the delta information received from eureka server in the last
      * poll cycle.
      * <p>
      * 把delta的更新merge到local cache里.
      * - 根据更新过来的application带的instanceInfo里的actionType来对cache里的applications增改删
+     * - 只复制被改到的application, 生成新的applications之后整个替换
      */
-    private void updateDelta(Applications delta) {
+    @VisibleForTesting
+    void updateDelta(Applications delta) {
+        Applications currentLocalApps = getApplications();
+        Map<String, Applications> currentRemoteApps = remoteRegionVsApps;
+        Map<String, Application> changedLocalApps = new HashMap<String, Application>();
+        Map<String, Map<String, Application>> changedRemoteApps = new HashMap<String, Map<String, Application>>();
+
         int deltaCount = 0;
         for (Application app : delta.getRegisteredApplications()) {
             for (InstanceInfo instance : app.getInstances()) {
-                Applications applications = getApplications();
+                Applications applications = currentLocalApps;
+                Map<String, Application> changedApps = changedLocalApps;
                 String instanceRegion = instanceRegionChecker.getInstanceRegion(instance);
                 if (!instanceRegionChecker.isLocalRegion(instanceRegion)) {
-                    Applications remoteApps = remoteRegionVsApps.get(instanceRegion);
-                    if (null == remoteApps) {
-                        remoteApps = new Applications();
-                        remoteRegionVsApps.put(instanceRegion, remoteApps);
+                    applications = currentRemoteApps.get(instanceRegion);
+                    changedApps = changedRemoteApps.get(instanceRegion);
+                    if (null == changedApps) {
+                        changedApps = new HashMap<String, Application>();
+                        changedRemoteApps.put(instanceRegion, changedApps);
                     }
-                    applications = remoteApps;
                 }
 
                 ++deltaCount;
+                Application changedApp = copyForUpdate(changedApps, applications, instance.getAppName());
                 if (ActionType.ADDED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp == null) {
-                        applications.addApplication(app);
-                    }
                     logger.debug("Added instance {} to the existing apps in region {}", instance.getId(), instanceRegion);
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
+                    changedApp.addInstance(instance);
                 } else if (ActionType.MODIFIED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp == null) {
-                        applications.addApplication(app);
-                    }
                     logger.debug("Modified instance {} to the existing apps ", instance.getId());
-
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
-
+                    changedApp.addInstance(instance);
                 } else if (ActionType.DELETED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp != null) {
-                        logger.debug("Deleted instance {} to the existing apps ", instance.getId());
-                        existingApp.removeInstance(instance);
-                        /*
-                         * We find all instance list from application(The status of instance status is not only the status is UP but also other status)
-                         * if instance list is empty, we remove the application.
-                         */
-                        if (existingApp.getInstancesAsIsFromEureka().isEmpty()) {
-                            applications.removeApplication(existingApp);
-                        }
-                    }
+                    logger.debug("Deleted instance {} to the existing apps ", instance.getId());
+                    changedApp.removeInstance(instance);
                 }
             }
         }
         logger.debug("The total number of instances fetched by the delta processor : {}", deltaCount);
 
-        getApplications().setVersion(delta.getVersion());
-        getApplications().shuffleInstances(clientConfig.shouldFilterOnlyUpInstances());
+        Applications nextLocalApps = withChangedApplications(currentLocalApps, changedLocalApps.values(), delta.getVersion());
+        Map<String, Applications> nextRemoteApps = currentRemoteApps;
+        if (!changedRemoteApps.isEmpty()) {
+            nextRemoteApps = new ConcurrentHashMap<String, Applications>(currentRemoteApps);
+            for (Map.Entry<String, Map<String, Application>> entry : changedRemoteApps.entrySet()) {
+                nextRemoteApps.put(entry.getKey(),
+                        withChangedApplications(currentRemoteApps.get(entry.getKey()), entry.getValue().values(), delta.getVersion()));
+            }
+        }
+        this.remoteRegionVsApps = nextRemoteApps;
+        localRegionApps.set(nextLocalApps);
+    }
 
-        for (Applications applications : remoteRegionVsApps.values()) {
-            applications.setVersion(delta.getVersion());
-            applications.shuffleInstances(clientConfig.shouldFilterOnlyUpInstances());
+    /**
+     * Gets the copy of the application to update, made from the current application the first time it is updated.
+     */
+    private static Application copyForUpdate(Map<String, Application> changedApps,
+                                             @Nullable Applications applications, String appName) {
+        String key = appName.toUpperCase(Locale.ROOT);
+        Application changedApp = changedApps.get(key);
+        if (changedApp == null) {
+            Application existingApp = applications == null ? null : applications.getRegisteredApplications(appName);
+            if (existingApp == null) {
+                changedApp = new Application(appName);
+            } else {
+                changedApp = new Application(existingApp.getName());
+                for (InstanceInfo instance : existingApp.getInstancesAsIsFromEureka()) {
+                    changedApp.addInstance(instance);
+                }
+            }
+            changedApps.put(key, changedApp);
         }
+        return changedApp;
+    }
+
+    /**
+     * Creates the applications replacing the given ones, sharing their applications and virtual host name indexes
+     * that did not change.
+     */
+    private Applications withChangedApplications(@Nullable Applications applications,
+                                                 Collection<Application> changedApps, Long version) {
+        Applications nextApps = (applications == null ? new Applications() : applications)
+                .withChangedApplications(changedApps, clientConfig.shouldFilterOnlyUpInstances());
+        nextApps.setVersion(version);
+        nextApps.setAppsHashCode(nextApps.getReconcileHashCode());
+        return nextApps;
     }
 
     /**
@@ -1693,6 +1824,100 @@ public class DiscoveryClient implements EurekaClient {
         return false;
     }
 
+    /**
+     * Provides the backup registry named by {@link EurekaClientConfig#getBackupRegistryImpl()}, else a
+     * {@link FileBackupRegistry} if {@link EurekaClientConfig#getBackupRegistryFile()} is set, else one that does
+     * nothing. It is created on first use.
+     */
+    private static final class DefaultBackupRegistryProvider implements Provider<BackupRegistry> {
+        private final EurekaClientConfig config;
+        private volatile BackupRegistry backupRegistryInstance;
+
+        DefaultBackupRegistryProvider(EurekaClientConfig config) {
+            this.config = config;
+        }
+
+        @Override
+        public synchronized BackupRegistry get() {
+            if (backupRegistryInstance == null) {
+                String backupRegistryClassName = config.getBackupRegistryImpl();
+                if (null != backupRegistryClassName) {
+                    try {
+                        backupRegistryInstance = (BackupRegistry) Class.forName(backupRegistryClassName).newInstance();
+                        logger.info("Enabled backup registry of type {}", backupRegistryInstance.getClass());
+                    } catch (InstantiationException e) {
+                        logger.error("Error instantiating BackupRegistry.", e);
+                    } catch (IllegalAccessException e) {
+                        logger.error("Error instantiating BackupRegistry.", e);
+                    } catch (ClassNotFoundException e) {
+                        logger.error("Error instantiating BackupRegistry.", e);
+                    }
+                } else if (null != config.getBackupRegistryFile()) {
+                    backupRegistryInstance = new FileBackupRegistry(new File(config.getBackupRegistryFile()));
+                    logger.info("Enabled backup registry file {}", config.getBackupRegistryFile());
+                }
+
+                if (backupRegistryInstance == null) {
+                    logger.warn("Using default backup registry implementation which does not do anything.");
+                    backupRegistryInstance = new NotImplementedRegistryImpl();
+                }
+            }
+
+            return backupRegistryInstance;
+        }
+
+        /**
+         * Stops the backup registry file this provider created, if any.
+         */
+        synchronized void shutdown() {
+            if (backupRegistryInstance instanceof FileBackupRegistry) {
+                ((FileBackupRegistry) backupRegistryInstance).shutdown();
+            }
+        }
+    }
+
+    /**
+     * Passes the registry just fetched to the backup registry, with the instances of the remote regions fetched, if
+     * the fetch changed it: a full registry or a non empty delta was applied.
+     */
+    private void storeRegistryInBackup() {
+        try {
+            BackupRegistry backupRegistryInstance = backupRegistryProvider.get();
+            if (null == backupRegistryInstance || backupRegistryInstance instanceof NotImplementedRegistryImpl) {
+                return;
+            }
+            if (!registryChangedSinceBackup.getAndSet(false)) {
+                return;
+            }
+            Applications applications = getApplications();
+            Map<String, Applications> remoteApps = remoteRegionVsApps;
+            if (isFetchingRemoteRegionRegistries() && !remoteApps.isEmpty()) {
+                Applications allApps = new Applications();
+                addInstances(applications, allApps);
+                for (Applications regionApps : remoteApps.values()) {
+                    addInstances(regionApps, allApps);
+                }
+                applications = allApps;
+            }
+            backupRegistryInstance.storeRegistry(applications);
+        } catch (Throwable e) {
+            logger.warn("Cannot store the registry in the backup registry", e);
+        }
+    }
+
+    private static void addInstances(Applications source, Applications target) {
+        for (Application app : source.getRegisteredApplications()) {
+            Application targetApp = target.getRegisteredApplications(app.getName());
+            if (null == targetApp) {
+                targetApp = new Application(app.getName());
+                target.addApplication(targetApp);
+            }
+            for (InstanceInfo instance : app.getInstancesAsIsFromEureka()) {
+                targetApp.addInstance(instance);
+            }
+        }
+    }
+
     /**
      * Send the given event on the EventBus if one is available
      *
@@ -166,6 +166,31 @@ public interface EurekaClientConfig {
      */
     String getBackupRegistryImpl();
 
+    /**
+     * Gets the file the client keeps a copy of its registry in after each successful fetch, to fall back on with
+     * {@link FileBackupRegistry} when no eureka server can be reached. It is only used if no other
+     * {@link BackupRegistry} implementation is configured with {@link #getBackupRegistryImpl()}.
+     *
+     * @return the path of the file, or null to not keep a copy of the registry.
+     */
+    default String getBackupRegistryFile() {
+        return null;
+    }
+
+    /**
+     * If set to true, the {@link EurekaClient} initialization takes the registry from the {@link BackupRegistry}
+     * first, when it has one, and fetches it from the eureka servers in the background right after, instead of
+     * waiting for the servers at constructor time.
+     *
+     * Note that if {@link #shouldFetchRegistry()} is set to false, then this config is a no-op.
+     *
+     * @return true to start with the registry of the backup registry, false to use it only if the servers cannot
+     *         be reached.
+     */
+    default boolean shouldUseBackupRegistryAtInit() {
+        return false;
+    }
+
     /**
      * Gets the total number of connections that is allowed from eureka client
      * to all eureka servers.
@@ -477,6 +502,47 @@ public interface EurekaClientConfig {
     @Nullable
     String getRegistryRefreshSingleVipAddress();
 
+    /**
+     * The applications the client is interested in. If this or {@link #getRegistryRefreshInterestVipAddresses()} is
+     * set, the client fetches and applies deltas for only the instances of these applications and of these VIP
+     * addresses, instead of the whole registry. Interest fetches are limited to the local region.
+     *
+     * @return comma separated application names, <code>null</code> if the client has no application interest.
+     */
+    @Nullable
+    default String getRegistryRefreshInterestApplications() {
+        return null;
+    }
+
+    /**
+     * The VIP addresses the client is interested in, matched against both the VIP and the secure VIP addresses of
+     * the instances. See {@link #getRegistryRefreshInterestApplications()}.
+     *
+     * @return comma separated VIP addresses (name:port), <code>null</code> if the client has no VIP interest.
+     */
+    @Nullable
+    default String getRegistryRefreshInterestVipAddresses() {
+        return null;
+    }
+
+    /**
+     * Indicates how many applications the client may fetch one by one when the registry it holds after a delta does
+     * not have the reconcile hash code of the server. The client then gets the hash code of each application from the
+     * server and fetches only the applications whose hash code differs, unless there are more of them than this, in
+     * which case it fetches the whole registry. Only the local region registry without interest is reconciled this
+     * way.
+     *
+     * <p>
+     * <em>The changes are effective at runtime at the next registry fetch cycle as specified by
+     * {@link #getRegistryFetchIntervalSeconds()}</em>
+     * </p>
+     *
+     * @return the maximum number of applications fetched one by one, 0 to always fetch the whole registry.
+     */
+    default int getRegistryReconcileMaxApplications() {
+        return 20;
+    }
+
     /**
      * The thread pool size for the heartbeatExecutor to initialise with
      *
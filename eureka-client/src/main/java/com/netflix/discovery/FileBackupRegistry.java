@@ -0,0 +1,233 @@
+package com.netflix.discovery;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BackupRegistry} keeping a copy of the last registry fetched by the client in a local file, so a client
+ * that cannot reach any eureka server, or that is configured to {@link EurekaClientConfig#shouldUseBackupRegistryAtInit()
+ * start with its backup registry}, starts with the registry it had before.
+ *
+ * <p>
+ * The file holds a header with the time the registry was stored and its number of instances, then each instance
+ * encoded with the JSON codec and prefixed by its length, and ends with a CRC32 of everything before it. It is
+ * written to a temporary file, synced to disk and moved in place, so a crash while writing leaves the previous copy
+ * intact, and it is read through a memory mapping. The copy is written by a single background thread; the registries
+ * stored while it writes are coalesced, only the latest one is written next.
+ * </p>
+ */
+public class FileBackupRegistry implements BackupRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBackupRegistry.class);
+
+    private static final int MAGIC = 0x45524B43;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 4;
+    private static final int CRC_LENGTH = 8;
+
+    private final File file;
+    private final CodecWrapper codec;
+    private final ExecutorService writerExecutor;
+    private final AtomicReference<Applications> pendingApplications = new AtomicReference<>();
+
+    public FileBackupRegistry(File file) {
+        this(file, CodecWrappers.getCodec(CodecWrappers.JacksonJson.class));
+    }
+
+    public FileBackupRegistry(File file, CodecWrapper codec) {
+        this.file = file;
+        this.codec = codec;
+        this.writerExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("DiscoveryClient-BackupRegistryWriter-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the registry of the file, or null if there is none or it cannot be read.
+     */
+    @Override
+    public Applications fetchRegistry() {
+        if (!file.isFile()) {
+            logger.info("No backup registry file {}", file);
+            return null;
+        }
+        try {
+            return read();
+        } catch (Exception e) {
+            logger.warn("Cannot read the backup registry file {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * The file holds the regions fetched by the client when it was written, which are the ones it asks for.
+     */
+    @Override
+    public Applications fetchRegistry(String[] includeRemoteRegions) {
+        return fetchRegistry();
+    }
+
+    @Override
+    public void storeRegistry(Applications applications) {
+        // A write is already queued if there was a pending registry, it takes this one instead
+        if (pendingApplications.getAndSet(applications) == null) {
+            try {
+                writerExecutor.execute(this::writePending);
+            } catch (Exception e) {
+                pendingApplications.set(null);
+                logger.warn("Cannot schedule the write of the backup registry file {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Stops writing the registry, the write in progress if any is completed.
+     */
+    public void shutdown() {
+        writerExecutor.shutdown();
+    }
+
+    private void writePending() {
+        Applications applications = pendingApplications.getAndSet(null);
+        if (applications == null) {
+            return;
+        }
+        try {
+            write(applications);
+        } catch (Exception e) {
+            logger.warn("Cannot write the backup registry file {}", file, e);
+        }
+    }
+
+    void write(Applications applications) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create the backup registry directory " + parent);
+        }
+        int instanceCount = 0;
+        for (Application app : applications.getRegisteredApplications()) {
+            instanceCount += app.getInstancesAsIsFromEureka().size();
+        }
+
+        File tmpFile = new File(parent, file.getName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(
+                     new CheckedOutputStream(new BufferedOutputStream(fileOut), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(instanceCount);
+            for (Application app : applications.getRegisteredApplications()) {
+                for (InstanceInfo instanceInfo : app.getInstancesAsIsFromEureka()) {
+                    byte[] encoded = codec.encode(instanceInfo).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(encoded.length);
+                    out.write(encoded);
+                }
+            }
+            // The checksum itself is not part of what it covers
+            out.writeLong(crc.getValue());
+            out.flush();
+            // On disk before it replaces the previous copy, so a power loss cannot leave an empty or partial file
+            fileOut.getChannel().force(true);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(parent);
+        logger.debug("Wrote {} instances to the backup registry file {}", instanceCount, file);
+    }
+
+    /**
+     * Syncs the directory of the file, so the move that put it in place survives a power loss too.
+     */
+    private static void syncDirectory(File directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for sync on every platform, the move is atomic nonetheless
+        }
+    }
+
+    /**
+     * @throws IOException if the file is not a backup registry of a supported version or its checksum does not match
+     */
+    Applications read() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + CRC_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a backup registry: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit((int) size - CRC_LENGTH);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if (buffer.getLong((int) size - CRC_LENGTH) != crc.getValue()) {
+                throw new IOException("Backup registry checksum mismatch: " + file);
+            }
+
+            buffer.limit((int) size - CRC_LENGTH);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a backup registry of a supported version: " + file);
+            }
+            long storedAt = buffer.getLong();
+            int instanceCount = buffer.getInt();
+
+            Applications applications = new Applications();
+            for (int i = 0; i < instanceCount; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IOException("Corrupted backup registry: " + file);
+                }
+                byte[] encoded = new byte[length];
+                buffer.get(encoded);
+                InstanceInfo instanceInfo = codec.decode(new String(encoded, StandardCharsets.UTF_8), InstanceInfo.class);
+                Application app = applications.getRegisteredApplications(instanceInfo.getAppName());
+                if (app == null) {
+                    app = new Application(instanceInfo.getAppName());
+                    applications.addApplication(app);
+                }
+                app.addInstance(instanceInfo);
+            }
+            logger.info("Read {} instances from the backup registry file {}, stored {} ms ago",
+                    instanceCount, file, System.currentTimeMillis() - storedAt);
+            return applications;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupted backup registry: " + file, e);
+        }
+    }
+}
@@ -30,11 +30,16 @@ final class PropertyBasedClientConfigConstants {
     static final String SHOULD_FETCH_REMOTE_REGION_KEY = "fetchRemoteRegionsRegistry";
     static final String SHOULD_FILTER_ONLY_UP_INSTANCES_KEY = "shouldFilterOnlyUpInstances";
     static final String FETCH_SINGLE_VIP_ONLY_KEY = "registryRefreshSingleVipAddress";
+    static final String FETCH_INTEREST_APPS_KEY = "registryRefreshInterest.apps";
+    static final String FETCH_INTEREST_VIPS_KEY = "registryRefreshInterest.vips";
+    static final String RECONCILE_MAX_APPLICATIONS_KEY = "registryReconcileMaxApplications";
     static final String CLIENT_ENCODER_NAME_KEY = "encoderName";
     static final String CLIENT_DECODER_NAME_KEY = "decoderName";
     static final String CLIENT_DATA_ACCEPT_KEY = "clientDataAccept";
 
     static final String BACKUP_REGISTRY_CLASSNAME_KEY = "backupregistry";
+    static final String BACKUP_REGISTRY_FILE_KEY = "backupRegistryFile";
+    static final String SHOULD_USE_BACKUP_REGISTRY_AT_INIT_KEY = "shouldUseBackupRegistryAtInit";
 
     static final String SHOULD_PREFER_SAME_ZONE_SERVER_KEY = "preferSameZone";
     static final String SHOULD_ALLOW_REDIRECTS_KEY = "allowRedirects";
@@ -81,5 +86,7 @@ final class PropertyBasedClientConfigConstants {
 
         static final int DEFAULT_EXECUTOR_THREAD_POOL_SIZE = 5;
         static final int DEFAULT_EXECUTOR_THREAD_POOL_BACKOFF_BOUND = 10;
+
+        static final int DEFAULT_RECONCILE_MAX_APPLICATIONS = 20;
     }
 }
@@ -33,6 +33,7 @@ import com.thoughtworks.xstream.annotations.XStreamOmitField;
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -69,10 +70,24 @@ public class Application {
 
     private final Map<String, InstanceInfo> instancesMap;
 
+    // 每个实例被计数时的状态, 以及每个状态的实例数, 都由instances的锁保护
+    @XStreamOmitField
+    private final Map<String, InstanceStatus> countedStatuses;
+
+    @XStreamOmitField
+    private final Map<InstanceStatus, Integer> instanceCountByStatus;
+
+    // 包含这个应用的Applications, 实例数变化时同步更新它们的汇总数; 值是被加入的次数
+    @XStreamOmitField
+    private final Map<Applications, Integer> countListeners;
+
     public Application() {
         instances = new LinkedHashSet<InstanceInfo>();
         instancesMap = new ConcurrentHashMap<String, InstanceInfo>();
         shuffledInstances = new AtomicReference<List<InstanceInfo>>();
+        countedStatuses = new HashMap<String, InstanceStatus>();
+        instanceCountByStatus = new EnumMap<InstanceStatus, Integer>(InstanceStatus.class);
+        countListeners = new WeakHashMap<Applications, Integer>();
     }
 
     public Application(String name) {
@@ -102,6 +117,12 @@ public class Application {
             instances.remove(i);
             instances.add(i);
             isDirty = true;
+            InstanceStatus status = i.getStatus();
+            InstanceStatus countedStatus = countedStatuses.put(i.getId(), status);
+            if (countedStatus != status) {
+                adjustInstanceCount(countedStatus, -1);
+                adjustInstanceCount(status, 1);
+            }
         }
     }
 
@@ -183,6 +204,58 @@ public class Application {
         return instances.size();
     }
 
+    /**
+     * Adds the number of instances of this application per status to the
+     * provided instance count map. An instance is counted with the status it
+     * had when it was added, the same way {@link Applications} indexes it by
+     * virtual host name.
+     *
+     * @param instanceCountMap
+     *            the map to populate, keyed by the status name
+     */
+    public void populateInstanceCountMap(Map<String, AtomicInteger> instanceCountMap) {
+        synchronized (instances) {
+            for (Map.Entry<InstanceStatus, Integer> entry : instanceCountByStatus.entrySet()) {
+                AtomicInteger instanceCount = instanceCountMap.computeIfAbsent(entry.getKey().name(),
+                        k -> new AtomicInteger(0));
+                instanceCount.addAndGet(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Adds the instance counts of this application to the given applications, and keeps them updated there as
+     * instances are added or removed, until {@link #removeCountListener} is called.
+     */
+    void addCountListener(Applications applications) {
+        synchronized (instances) {
+            countListeners.merge(applications, 1, Integer::sum);
+            for (Map.Entry<InstanceStatus, Integer> entry : instanceCountByStatus.entrySet()) {
+                applications.adjustInstanceCount(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    void removeCountListener(Applications applications) {
+        synchronized (instances) {
+            countListeners.computeIfPresent(applications, (k, times) -> times == 1 ? null : times - 1);
+            for (Map.Entry<InstanceStatus, Integer> entry : instanceCountByStatus.entrySet()) {
+                applications.adjustInstanceCount(entry.getKey(), -entry.getValue());
+            }
+        }
+    }
+
+    // 调用方持有instances的锁
+    private void adjustInstanceCount(@Nullable InstanceStatus status, int delta) {
+        if (status == null) {
+            return;
+        }
+        instanceCountByStatus.merge(status, delta, (count, d) -> count + d == 0 ? null : count + d);
+        for (Map.Entry<Applications, Integer> listener : countListeners.entrySet()) {
+            listener.getKey().adjustInstanceCount(status, delta * listener.getValue());
+        }
+    }
+
     /**
      * Shuffles the list of instances in the application and stores it for
      * future retrievals.
@@ -249,6 +322,7 @@ public class Application {
         instancesMap.remove(i.getId());
         synchronized (instances) {
             instances.remove(i);
+            adjustInstanceCount(countedStatuses.remove(i.getId()), -1);
             if (markAsDirty) {
                 isDirty = true;
             }
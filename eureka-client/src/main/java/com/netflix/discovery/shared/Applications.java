@@ -79,6 +79,8 @@ public class Applications {
     private final Map<String, Application> appNameApplicationMap;
     private final Map<String, VipIndexSupport> virtualHostNameAppMap;
     private final Map<String, VipIndexSupport> secureVirtualHostNameAppMap;
+    // 所有应用每个状态的实例数, 由各个Application在实例变化时更新
+    private final Map<InstanceStatus, AtomicInteger> instanceCountByStatus;
 
     /**
      * Create a new, empty Eureka application list.
@@ -99,6 +101,7 @@ public class Applications {
         this.appNameApplicationMap = new ConcurrentHashMap<String, Application>();
         this.virtualHostNameAppMap = new ConcurrentHashMap<String, VipIndexSupport>();
         this.secureVirtualHostNameAppMap = new ConcurrentHashMap<String, VipIndexSupport>();
+        this.instanceCountByStatus = new ConcurrentHashMap<InstanceStatus, AtomicInteger>();
         this.appsHashCode = appsHashCode;
         this.versionDelta = versionDelta;
 
@@ -117,6 +120,7 @@ public class Applications {
         appNameApplicationMap.put(app.getName().toUpperCase(Locale.ROOT), app);
         addInstancesToVIPMaps(app, this.virtualHostNameAppMap, this.secureVirtualHostNameAppMap);
         applications.add(app);
+        app.addCountListener(this);
     }
 
     /**
@@ -230,21 +234,26 @@ public class Applications {
 
     /**
      * Populates the provided instance count map. The instance count map is used
-     * as part of the general app list synchronization mechanism.
+     * as part of the general app list synchronization mechanism. The counts are
+     * kept up to date as applications and instances are added or removed, see
+     * {@link Application#populateInstanceCountMap(Map)}.
      * 
      * @param instanceCountMap
      *            the map to populate
      */
     public void populateInstanceCountMap(Map<String, AtomicInteger> instanceCountMap) {
-        for (Application app : this.getRegisteredApplications()) {
-            for (InstanceInfo info : app.getInstancesAsIsFromEureka()) {
-                AtomicInteger instanceCount = instanceCountMap.computeIfAbsent(info.getStatus().name(),
-                        k -> new AtomicInteger(0));
-                instanceCount.incrementAndGet();
+        for (Map.Entry<InstanceStatus, AtomicInteger> entry : instanceCountByStatus.entrySet()) {
+            int count = entry.getValue().get();
+            if (count > 0) {
+                instanceCountMap.computeIfAbsent(entry.getKey().name(), k -> new AtomicInteger(0)).addAndGet(count);
             }
         }
     }
 
+    void adjustInstanceCount(InstanceStatus status, int delta) {
+        instanceCountByStatus.computeIfAbsent(status, k -> new AtomicInteger(0)).addAndGet(delta);
+    }
+
     /**
      * Gets the reconciliation hashcode. The hashcode is used to determine
      * whether the applications list has changed since the last time it was
@@ -293,6 +302,117 @@ public class Applications {
                 instanceRegionChecker);
     }
 
+    /**
+     * Creates the <em>applications</em> that result from replacing some of these applications, leaving these
+     * applications as they are. The applications that did not change are shared, and so are the instance lists of
+     * the virtual host names none of the changed applications have or had; only the lists of the other virtual
+     * host names are filtered and shuffled again. The cost is therefore proportional to the changed applications
+     * rather than to all of them.
+     *
+     * @param changedApps
+     *            the applications replacing the ones with the same name, or added if there is none. An application
+     *            without instances removes the one with the same name.
+     * @param filterUpInstances
+     *            whether to return only UP instances
+     * @return the new applications, with the version and apps hash code of these ones.
+     */
+    public Applications withChangedApplications(Collection<Application> changedApps, boolean filterUpInstances) {
+        Applications nextApps = new Applications(appsHashCode, versionDelta, Collections.<Application>emptyList());
+        Set<String> changedAppNames = new HashSet<>();
+        // The instances of the replaced applications, to be removed from their virtual host names
+        Set<InstanceInfo> replacedInstances = Collections.newSetFromMap(new IdentityHashMap<InstanceInfo, Boolean>());
+        Set<String> changedVips = new HashSet<>();
+        Set<String> changedSecureVips = new HashSet<>();
+        for (Application changedApp : changedApps) {
+            changedAppNames.add(changedApp.getName().toUpperCase(Locale.ROOT));
+            Application replacedApp = getRegisteredApplications(changedApp.getName());
+            if (replacedApp != null) {
+                for (InstanceInfo info : replacedApp.getInstancesAsIsFromEureka()) {
+                    replacedInstances.add(info);
+                    addVipAddresses(info.getVIPAddress(), changedVips);
+                    addVipAddresses(info.getSecureVipAddress(), changedSecureVips);
+                }
+            }
+            for (InstanceInfo info : changedApp.getInstancesAsIsFromEureka()) {
+                addVipAddresses(info.getVIPAddress(), changedVips);
+                addVipAddresses(info.getSecureVipAddress(), changedSecureVips);
+            }
+        }
+
+        for (Application app : this.applications) {
+            if (!changedAppNames.contains(app.getName().toUpperCase(Locale.ROOT))) {
+                nextApps.putApplication(app);
+            }
+        }
+        for (Application changedApp : changedApps) {
+            if (!changedApp.getInstancesAsIsFromEureka().isEmpty()) {
+                changedApp.shuffleAndStoreInstances(filterUpInstances);
+                nextApps.putApplication(changedApp);
+            }
+        }
+
+        nextApps.virtualHostNameAppMap.putAll(this.virtualHostNameAppMap);
+        nextApps.updateVipIndex(nextApps.virtualHostNameAppMap, changedVips, replacedInstances, changedApps, false,
+                filterUpInstances);
+        nextApps.secureVirtualHostNameAppMap.putAll(this.secureVirtualHostNameAppMap);
+        nextApps.updateVipIndex(nextApps.secureVirtualHostNameAppMap, changedSecureVips, replacedInstances, changedApps,
+                true, filterUpInstances);
+        return nextApps;
+    }
+
+    /**
+     * Rebuilds the instance lists of the given virtual host names, which start as a copy of the lists of the
+     * applications being replaced.
+     */
+    private void updateVipIndex(Map<String, VipIndexSupport> vipMap, Set<String> changedVips,
+            Set<InstanceInfo> replacedInstances, Collection<Application> changedApps, boolean secure,
+            boolean filterUpInstances) {
+        if (changedVips.isEmpty()) {
+            return;
+        }
+        Map<String, VipIndexSupport> rebuiltVipMap = new HashMap<>();
+        for (String vipAddress : changedVips) {
+            VipIndexSupport vis = new VipIndexSupport();
+            VipIndexSupport replaced = vipMap.get(vipAddress);
+            if (replaced != null) {
+                for (InstanceInfo info : replaced.instances) {
+                    if (!replacedInstances.contains(info)) {
+                        vis.instances.add(info);
+                    }
+                }
+            }
+            rebuiltVipMap.put(vipAddress, vis);
+        }
+        for (Application changedApp : changedApps) {
+            for (InstanceInfo info : changedApp.getInstances()) {
+                addInstanceToMap(info, secure ? info.getSecureVipAddress() : info.getVIPAddress(), rebuiltVipMap);
+            }
+        }
+        shuffleAndFilterInstances(rebuiltVipMap, filterUpInstances);
+        for (Map.Entry<String, VipIndexSupport> entry : rebuiltVipMap.entrySet()) {
+            if (entry.getValue().instances.isEmpty()) {
+                vipMap.remove(entry.getKey());
+            } else {
+                vipMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void addVipAddresses(@Nullable String vipAddresses, Set<String> vipSet) {
+        if (vipAddresses != null) {
+            Collections.addAll(vipSet, vipAddresses.toUpperCase(Locale.ROOT).split(","));
+        }
+    }
+
+    /**
+     * Adds the application without indexing its instances by virtual host name.
+     */
+    private void putApplication(Application app) {
+        appNameApplicationMap.put(app.getName().toUpperCase(Locale.ROOT), app);
+        applications.add(app);
+        app.addCountListener(this);
+    }
+
     private void shuffleInstances(boolean filterUpInstances, 
             boolean indexByRemoteRegions,
             @Nullable Map<String, Applications> remoteRegionsRegistry, 
@@ -405,6 +525,8 @@ public class Applications {
      */
     public void removeApplication(Application app) {
         this.appNameApplicationMap.remove(app.getName().toUpperCase(Locale.ROOT));
-        this.applications.remove(app);
+        if (this.applications.remove(app)) {
+            app.removeCountListener(this);
+        }
     }
 }
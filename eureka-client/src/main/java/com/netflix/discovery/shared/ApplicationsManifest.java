@@ -0,0 +1,116 @@
+package com.netflix.discovery.shared;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.discovery.provider.Serializer;
+
+/**
+ * The reconcile hash code of each application of a registry, so a client whose registry no longer has the reconcile
+ * hash code of the server can tell which applications diverged and fetch only those, instead of the whole registry.
+ *
+ * <p>
+ * The hash code of an application is the {@link Applications#getReconcileHashCode() reconcile hash code} of a
+ * registry holding only that application. As the reconcile hash code of a registry adds up the instance counts of
+ * all its applications, a registry whose hash code differs has at least one application whose hash code differs.
+ * Applications without instances are left out.
+ * </p>
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class ApplicationsManifest {
+    private final String appsHashCode;
+    private final Map<String, String> appHashCodes;
+
+    @JsonCreator
+    public ApplicationsManifest(@JsonProperty("appsHashCode") String appsHashCode,
+                                @JsonProperty("appHashCodes") Map<String, String> appHashCodes) {
+        this.appsHashCode = appsHashCode;
+        this.appHashCodes = appHashCodes == null ? Collections.<String, String>emptyMap() : appHashCodes;
+    }
+
+    public static ApplicationsManifest of(Applications applications) {
+        Map<String, String> appHashCodes = new TreeMap<String, String>();
+        for (Application app : applications.getRegisteredApplications()) {
+            String appHashCode = getAppHashCode(app);
+            if (!appHashCode.isEmpty()) {
+                appHashCodes.put(app.getName().toUpperCase(Locale.ROOT), appHashCode);
+            }
+        }
+        return new ApplicationsManifest(applications.getReconcileHashCode(), appHashCodes);
+    }
+
+    public static String getAppHashCode(Application app) {
+        TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<String, AtomicInteger>();
+        app.populateInstanceCountMap(instanceCountMap);
+        return Applications.getReconcileHashCode(instanceCountMap);
+    }
+
+    /**
+     * @return the reconcile hash code of the whole registry
+     */
+    public String getAppsHashCode() {
+        return appsHashCode;
+    }
+
+    /**
+     * @return the hash codes by upper case application name
+     */
+    public Map<String, String> getAppHashCodes() {
+        return appHashCodes;
+    }
+
+    /**
+     * @return the upper case names of the applications whose hash code in the given registry is not the one of this
+     *         manifest, including the applications only one of them has
+     */
+    public Set<String> getDivergedApplications(Applications applications) {
+        Set<String> divergedApps = new TreeSet<String>();
+        Set<String> knownApps = new HashSet<String>();
+        for (Application app : applications.getRegisteredApplications()) {
+            String appHashCode = getAppHashCode(app);
+            if (appHashCode.isEmpty()) {
+                continue;
+            }
+            String appName = app.getName().toUpperCase(Locale.ROOT);
+            knownApps.add(appName);
+            if (!appHashCode.equals(appHashCodes.get(appName))) {
+                divergedApps.add(appName);
+            }
+        }
+        for (String appName : appHashCodes.keySet()) {
+            if (!knownApps.contains(appName)) {
+                divergedApps.add(appName);
+            }
+        }
+        return divergedApps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        ApplicationsManifest that = (ApplicationsManifest) o;
+
+        if (appsHashCode != null ? !appsHashCode.equals(that.appsHashCode) : that.appsHashCode != null)
+            return false;
+        return appHashCodes.equals(that.appHashCodes);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = appsHashCode != null ? appsHashCode.hashCode() : 0;
+        result = 31 * result + appHashCodes.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package com.netflix.discovery.shared;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * The applications and VIP addresses a client is interested in, so the registry it fetches and the deltas it applies
+ * are limited to the instances of those applications and the instances having one of those addresses as VIP or
+ * secure VIP address.
+ *
+ * <p>
+ * Application names are compared ignoring case, VIP addresses as they are. Both are kept sorted, so the same interest
+ * always has the same {@link #toString() string form}, which is used as the response cache key on the server.
+ * </p>
+ */
+public final class RegistryInterest {
+
+    private static final String APPS_PREFIX = "apps=";
+    private static final String VIPS_PREFIX = "vips=";
+    private static final String SEPARATOR = ";";
+
+    private final Set<String> appNames;
+    private final Set<String> vipAddresses;
+    private final String stringValue;
+
+    public RegistryInterest(Collection<String> appNames, Collection<String> vipAddresses) {
+        Set<String> apps = new TreeSet<>();
+        for (String appName : appNames) {
+            if (!appName.trim().isEmpty()) {
+                apps.add(appName.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        Set<String> vips = new TreeSet<>();
+        for (String vipAddress : vipAddresses) {
+            if (!vipAddress.trim().isEmpty()) {
+                vips.add(vipAddress.trim());
+            }
+        }
+        this.appNames = Collections.unmodifiableSet(apps);
+        this.vipAddresses = Collections.unmodifiableSet(vips);
+        this.stringValue = APPS_PREFIX + String.join(",", this.appNames) + SEPARATOR
+                + VIPS_PREFIX + String.join(",", this.vipAddresses);
+    }
+
+    /**
+     * @param appNames comma separated application names, or null
+     * @param vipAddresses comma separated VIP addresses, or null
+     * @return the interest, or null if it names no application nor VIP address
+     */
+    @Nullable
+    public static RegistryInterest parse(@Nullable String appNames, @Nullable String vipAddresses) {
+        RegistryInterest interest = new RegistryInterest(split(appNames), split(vipAddresses));
+        return interest.isEmpty() ? null : interest;
+    }
+
+    /**
+     * Parses the {@link #toString() string form} of an interest.
+     */
+    public static RegistryInterest valueOf(String stringValue) {
+        int idx = stringValue.indexOf(SEPARATOR + VIPS_PREFIX);
+        if (!stringValue.startsWith(APPS_PREFIX) || idx < 0) {
+            throw new IllegalArgumentException("Not a registry interest: " + stringValue);
+        }
+        return new RegistryInterest(split(stringValue.substring(APPS_PREFIX.length(), idx)),
+                split(stringValue.substring(idx + SEPARATOR.length() + VIPS_PREFIX.length())));
+    }
+
+    public Set<String> getAppNames() {
+        return appNames;
+    }
+
+    public Set<String> getVipAddresses() {
+        return vipAddresses;
+    }
+
+    public boolean isEmpty() {
+        return appNames.isEmpty() && vipAddresses.isEmpty();
+    }
+
+    public boolean matches(InstanceInfo instanceInfo) {
+        return matches(instanceInfo.getAppName(), instanceInfo.getVIPAddress(), instanceInfo.getSecureVipAddress());
+    }
+
+    /**
+     * @param vipAddresses comma separated VIP addresses, or null
+     * @param secureVipAddresses comma separated secure VIP addresses, or null
+     */
+    public boolean matches(@Nullable String appName, @Nullable String vipAddresses, @Nullable String secureVipAddresses) {
+        if (appName != null && appNames.contains(appName.toUpperCase(Locale.ROOT))) {
+            return true;
+        }
+        return hasVipAddress(vipAddresses) || hasVipAddress(secureVipAddresses);
+    }
+
+    private boolean hasVipAddress(@Nullable String vipAddresses) {
+        if (vipAddresses != null && !this.vipAddresses.isEmpty()) {
+            for (String vipAddress : vipAddresses.split(",")) {
+                if (this.vipAddresses.contains(vipAddress)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> split(@Nullable String values) {
+        Set<String> result = new TreeSet<>();
+        if (values != null) {
+            Collections.addAll(result, values.split(","));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof RegistryInterest && stringValue.equals(((RegistryInterest) o).stringValue));
+    }
+
+    @Override
+    public int hashCode() {
+        return stringValue.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return stringValue;
+    }
+}
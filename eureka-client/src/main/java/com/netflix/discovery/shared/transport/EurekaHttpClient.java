@@ -4,6 +4,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 
 /**
  * Low level Eureka HTTP client API.
@@ -30,6 +32,12 @@ public interface EurekaHttpClient {
 
     EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions);
 
+    EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest);
+
+    EurekaHttpResponse<Applications> getDeltaOfInterest(RegistryInterest interest);
+
+    EurekaHttpResponse<ApplicationsManifest> getApplicationsManifest();
+
     EurekaHttpResponse<Application> getApplication(String appName);
 
     EurekaHttpResponse<InstanceInfo> getInstance(String appName, String id);
@@ -20,6 +20,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 
@@ -38,6 +40,9 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         GetDelta,
         GetVip,
         GetSecureVip,
+        GetApplicationsOfInterest,
+        GetDeltaOfInterest,
+        GetApplicationsManifest,
         GetApplication,
         GetInstance,
         GetApplicationInstance
@@ -189,6 +194,51 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         });
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsOfInterest(final RegistryInterest interest) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.getApplicationsOfInterest(interest);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetApplicationsOfInterest;
+            }
+        });
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaOfInterest(final RegistryInterest interest) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.getDeltaOfInterest(interest);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetDeltaOfInterest;
+            }
+        });
+    }
+
+    @Override
+    public EurekaHttpResponse<ApplicationsManifest> getApplicationsManifest() {
+        return execute(new RequestExecutor<ApplicationsManifest>() {
+            @Override
+            public EurekaHttpResponse<ApplicationsManifest> execute(EurekaHttpClient delegate) {
+                return delegate.getApplicationsManifest();
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetApplicationsManifest;
+            }
+        });
+    }
+
     @Override
     public EurekaHttpResponse<Application> getApplication(final String appName) {
         return execute(new RequestExecutor<Application>() {
@@ -36,6 +36,10 @@ public final class ServerStatusEvaluators {
                 return true;
             } else if (requestType == RequestType.GetDelta && (statusCode == 403 || statusCode == 404)) {
                 return true;
+            } else if (requestType == RequestType.GetDeltaOfInterest && (statusCode == 403 || statusCode == 404)) {
+                return true;
+            } else if (requestType == RequestType.GetApplicationsManifest && (statusCode == 403 || statusCode == 404)) {
+                return true;
             }
             return false;
         }
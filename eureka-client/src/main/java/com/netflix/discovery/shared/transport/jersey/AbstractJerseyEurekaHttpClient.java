@@ -4,6 +4,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
@@ -182,15 +184,36 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         return getApplicationsInternal("svips/" + secureVipAddress, regions);
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest) {
+        return getApplicationsOfInterestInternal("apps/interest", interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaOfInterest(RegistryInterest interest) {
+        return getApplicationsOfInterestInternal("apps/interest/delta", interest);
+    }
+
     private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
-        ClientResponse response = null;
         String regionsParamValue = null;
+        WebResource webResource = jerseyClient.resource(serviceUrl).path(urlPath);
+        if (regions != null && regions.length > 0) {
+            regionsParamValue = StringUtil.join(regions);
+            webResource = webResource.queryParam("regions", regionsParamValue);
+        }
+        return getApplicationsInternal(urlPath, webResource, regionsParamValue == null ? "" : "regions=" + regionsParamValue);
+    }
+
+    private EurekaHttpResponse<Applications> getApplicationsOfInterestInternal(String urlPath, RegistryInterest interest) {
+        WebResource webResource = jerseyClient.resource(serviceUrl).path(urlPath)
+                .queryParam("apps", String.join(",", interest.getAppNames()))
+                .queryParam("vips", String.join(",", interest.getVipAddresses()));
+        return getApplicationsInternal(urlPath, webResource, interest.toString());
+    }
+
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, WebResource webResource, String query) {
+        ClientResponse response = null;
         try {
-            WebResource webResource = jerseyClient.resource(serviceUrl).path(urlPath);
-            if (regions != null && regions.length > 0) {
-                regionsParamValue = StringUtil.join(regions);
-                webResource = webResource.queryParam("regions", regionsParamValue);
-            }
             Builder requestBuilder = webResource.getRequestBuilder();
             addExtraHeaders(requestBuilder);
             response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get(ClientResponse.class);
@@ -206,8 +229,7 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         } finally {
             if (logger.isDebugEnabled()) {
                 logger.debug("Jersey HTTP GET {}/{}?{}; statusCode={}",
-                        serviceUrl, urlPath,
-                        regionsParamValue == null ? "" : "regions=" + regionsParamValue,
+                        serviceUrl, urlPath, query,
                         response == null ? "N/A" : response.getStatus()
                 );
             }
@@ -217,6 +239,33 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         }
     }
 
+    @Override
+    public EurekaHttpResponse<ApplicationsManifest> getApplicationsManifest() {
+        String urlPath = "apps/manifest";
+        ClientResponse response = null;
+        try {
+            Builder requestBuilder = jerseyClient.resource(serviceUrl).path(urlPath).getRequestBuilder();
+            addExtraHeaders(requestBuilder);
+            response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get(ClientResponse.class);
+
+            ApplicationsManifest manifest = null;
+            if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
+                manifest = response.getEntity(ApplicationsManifest.class);
+            }
+            return anEurekaHttpResponse(response.getStatus(), ApplicationsManifest.class)
+                    .headers(headersOf(response))
+                    .entity(manifest)
+                    .build();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jersey HTTP GET {}/{}; statusCode={}", serviceUrl, urlPath, response == null ? "N/A" : response.getStatus());
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Application> getApplication(String appName) {
         String urlPath = "apps/" + appName;
@@ -0,0 +1,104 @@
+package com.netflix.discovery;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.discovery.junit.resource.DiscoveryClientResource;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.transport.EurekaHttpClient;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.discovery.shared.transport.SimpleEurekaHttpServer;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
+import static com.netflix.discovery.util.EurekaEntityFunctions.countInstances;
+import static com.netflix.discovery.util.EurekaEntityFunctions.toApplications;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reconciliation of the local region registry when the hash code after a delta does not match the server.
+ */
+public class DiscoveryClientReconcileTest {
+
+    private static final EurekaHttpClient requestHandler = mock(EurekaHttpClient.class);
+    private static SimpleEurekaHttpServer eurekaHttpServer;
+
+    @Rule
+    public DiscoveryClientResource discoveryClientResource = DiscoveryClientResource.newBuilder()
+            .withRegistration(false)
+            .withRegistryFetch(true)
+            .connectWith(eurekaHttpServer)
+            .build();
+
+    /**
+     * Share server stub by all tests.
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        eurekaHttpServer = new SimpleEurekaHttpServer(requestHandler);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (eurekaHttpServer != null) {
+            eurekaHttpServer.shutdown();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        reset(requestHandler);
+        when(requestHandler.cancel(anyString(), anyString())).thenReturn(EurekaHttpResponse.status(200));
+    }
+
+    @Test
+    public void testReconcileFetchesOnlyTheDivergedApplications() throws Exception {
+        Applications serverApps = InstanceInfoGenerator.newBuilder(4, "app1", "app2").build().toApplications();
+        Application app1 = serverApps.getRegisteredApplications("app1");
+        Application app2 = serverApps.getRegisteredApplications("app2");
+
+        // The client misses one instance of app1
+        Applications initialApps = toApplications(app1.getInstances().get(0));
+        initialApps.addApplication(app2);
+        when(requestHandler.getApplications()).thenReturn(
+                anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+
+        // An empty delta with the hash code of the server
+        Applications delta = new Applications();
+        delta.setAppsHashCode(serverApps.getReconcileHashCode());
+        when(requestHandler.getDelta()).thenReturn(
+                anEurekaHttpResponse(200, delta).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        when(requestHandler.getApplicationsManifest()).thenReturn(
+                anEurekaHttpResponse(200, ApplicationsManifest.of(serverApps)).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        when(requestHandler.getApplication(app1.getName())).thenReturn(
+                anEurekaHttpResponse(200, app1).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        EurekaClient client = discoveryClientResource.getClient();
+
+        assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+        assertThat(countInstances(client.getApplications()), is(equalTo(4)));
+        assertThat(client.getApplications().getAppsHashCode(), is(equalTo(serverApps.getReconcileHashCode())));
+        verify(requestHandler, never()).getApplication(app2.getName());
+        verify(requestHandler, times(1)).getApplications();
+    }
+}
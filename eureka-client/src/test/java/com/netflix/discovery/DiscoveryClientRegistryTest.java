@@ -12,6 +12,7 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.junit.resource.DiscoveryClientResource;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.SimpleEurekaHttpServer;
@@ -36,6 +37,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
@@ -145,6 +147,30 @@ public class DiscoveryClientRegistryTest {
         assertThat(countInstances(vipClient.getApplications()), is(equalTo(2)));
     }
 
+    @Test
+    public void testCacheRefreshOfInterest() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(2, "testApp").build();
+        Applications initialApps = instanceGen.takeDelta(1);
+        RegistryInterest interest = RegistryInterest.parse("testApp", null);
+
+        DiscoveryClientResource interestClientResource = discoveryClientResource.fork().withInterest("testApp", null).build();
+
+        // Full fetch of the interest only
+        when(requestHandler.getApplicationsOfInterest(interest)).thenReturn(
+                anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        EurekaClient interestClient = interestClientResource.getClient();
+        assertThat(countInstances(interestClient.getApplications()), is(equalTo(1)));
+
+        // Delta of the interest
+        when(requestHandler.getDeltaOfInterest(interest)).thenReturn(
+                anEurekaHttpResponse(200, instanceGen.takeDelta(1)).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        assertThat(interestClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+        assertThat(countInstances(interestClient.getApplications()), is(equalTo(2)));
+        verify(requestHandler, never()).getApplications(TEST_REMOTE_REGION);
+    }
+
     @Test
     public void testEurekaClientPeriodicHeartbeat() throws Exception {
         DiscoveryClientResource registeringClientResource = discoveryClientResource.fork().withRegistration(true).withRegistryFetch(false).build();
@@ -297,6 +323,33 @@ public class DiscoveryClientRegistryTest {
         assertThat(countInstances(client.getApplications()), is(equalTo(1)));
     }
 
+    @Test
+    public void testDeltaDoesNotChangeTheApplicationsAlreadyReturned() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(2, "testApp").build();
+
+        // Full fetch with one item
+        Applications initial = toApplications(instanceGen.first());
+        when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                anEurekaHttpResponse(200, initial).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        EurekaClient client = discoveryClientResource.getClient();
+        Applications beforeDelta = client.getApplications();
+        assertThat(countInstances(beforeDelta), is(equalTo(1)));
+
+        // Delta with one add
+        Applications delta = toApplications(instanceGen.take(1));
+        delta.setAppsHashCode("UP_2_");
+        when(requestHandler.getDelta(TEST_REMOTE_REGION)).thenReturn(
+                anEurekaHttpResponse(200, delta).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+
+        assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+        assertThat(countInstances(client.getApplications()), is(equalTo(2)));
+        // The applications returned before the delta still hold the registry as it was
+        assertThat(countInstances(beforeDelta), is(equalTo(1)));
+        assertThat(beforeDelta.getAppsHashCode(), is(equalTo("UP_1_")));
+    }
+
     @Test
     public void testEurekaClientPeriodicCacheRefreshForDeleteAndNoApplication() throws Exception {
         InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(3, 1).build();
@@ -0,0 +1,79 @@
+package com.netflix.discovery;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.EurekaEntityComparators;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class FileBackupRegistryTest {
+
+    private File file;
+    private FileBackupRegistry backupRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("eureka-backup-registry", ".bin");
+        file.delete();
+        backupRegistry = new FileBackupRegistry(file);
+    }
+
+    @After
+    public void tearDown() {
+        backupRegistry.shutdown();
+        file.delete();
+    }
+
+    @Test
+    public void testRegistryIsReadBackFromTheFile() throws Exception {
+        Applications applications = InstanceInfoGenerator.newBuilder(10, 3).build().toApplications();
+        backupRegistry.write(applications);
+
+        Applications backup = backupRegistry.fetchRegistry();
+        assertThat(EurekaEntityComparators.equal(applications, backup), is(true));
+        assertThat(backup.getVersion(), is(-1L));
+    }
+
+    @Test
+    public void testStoredRegistryIsWrittenInTheBackground() throws Exception {
+        Applications applications = InstanceInfoGenerator.newBuilder(10, 3).build().toApplications();
+        backupRegistry.storeRegistry(applications);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        Applications backup = null;
+        while (backup == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            backup = backupRegistry.fetchRegistry();
+        }
+        assertThat(backup, is(notNullValue()));
+        assertThat(EurekaEntityComparators.equal(applications, backup), is(true));
+    }
+
+    @Test
+    public void testMissingFileGivesNoRegistry() throws Exception {
+        assertThat(backupRegistry.fetchRegistry(), is(nullValue()));
+    }
+
+    @Test
+    public void testCorruptedFileGivesNoRegistry() throws Exception {
+        backupRegistry.write(InstanceInfoGenerator.newBuilder(10, 3).build().toApplications());
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() / 2);
+            int value = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(value ^ 0xFF);
+        }
+
+        assertThat(backupRegistry.fetchRegistry(), is(nullValue()));
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Constructor;
@@ -362,7 +363,129 @@ public class ApplicationsTest {
         assertFalse(hashCode.isEmpty());
         assertEquals("UP_1_", hashCode);
     }
-    
+
+    @Test
+    public void testReconcileHashcodeFollowsInstanceChanges() {
+        DataCenterInfo myDCI = new DataCenterInfo() {
+            public DataCenterInfo.Name getName() {
+                return DataCenterInfo.Name.MyOwn;
+            }
+        };
+        InstanceInfo instance1 = InstanceInfo.Builder.newBuilder()
+                .setAppName("test")
+                .setVIPAddress("test.testname:1")
+                .setDataCenterInfo(myDCI)
+                .setHostName("test.hostname1")
+                .setStatus(InstanceStatus.UP)
+                .build();
+        InstanceInfo instance2 = InstanceInfo.Builder.newBuilder()
+                .setAppName("test")
+                .setVIPAddress("test.testname:1")
+                .setDataCenterInfo(myDCI)
+                .setHostName("test.hostname2")
+                .setStatus(InstanceStatus.UP)
+                .build();
+
+        Application application = new Application("TestApp");
+        application.addInstance(instance1);
+        application.addInstance(instance2);
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        assertEquals("UP_2_", applications.getReconcileHashCode());
+
+        InstanceInfo instance2Down = new InstanceInfo(instance2);
+        instance2Down.setStatusWithoutDirty(InstanceStatus.DOWN);
+        application.addInstance(instance2Down);
+        assertEquals("DOWN_1_UP_1_", applications.getReconcileHashCode());
+
+        application.removeInstance(instance1);
+        assertEquals("DOWN_1_", applications.getReconcileHashCode());
+
+        // The instance is counted with the status it was added with, until it is added again or removed
+        instance2Down.setStatusWithoutDirty(InstanceStatus.UP);
+        assertEquals("DOWN_1_", applications.getReconcileHashCode());
+        application.addInstance(instance2Down);
+        assertEquals("UP_1_", applications.getReconcileHashCode());
+        instance2Down.setStatusWithoutDirty(InstanceStatus.OUT_OF_SERVICE);
+        application.removeInstance(instance2Down);
+        assertEquals("", applications.getReconcileHashCode());
+
+        application.addInstance(instance1);
+        Applications otherApplications = new Applications();
+        otherApplications.addApplication(application);
+        application.addInstance(instance2);
+        assertEquals("UP_2_", otherApplications.getReconcileHashCode());
+        assertEquals("UP_2_", applications.getReconcileHashCode());
+
+        applications.removeApplication(application);
+        assertEquals("", applications.getReconcileHashCode());
+        application.removeInstance(instance1);
+        assertEquals("", applications.getReconcileHashCode());
+        assertEquals("UP_1_", otherApplications.getReconcileHashCode());
+    }
+
+    @Test
+    public void testChangedApplicationsOnlyReindexTheirVirtualHostNames() {
+        DataCenterInfo myDCI = new DataCenterInfo() {
+            public DataCenterInfo.Name getName() {
+                return DataCenterInfo.Name.MyOwn;
+            }
+        };
+        InstanceInfo instance1 = InstanceInfo.Builder.newBuilder()
+                .setAppName("test1")
+                .setVIPAddress("test1.testname:1")
+                .setDataCenterInfo(myDCI)
+                .setHostName("test1.hostname")
+                .setStatus(InstanceStatus.UP)
+                .build();
+        InstanceInfo instance2 = InstanceInfo.Builder.newBuilder()
+                .setAppName("test2")
+                .setVIPAddress("test2.testname:1,shared.testname:1")
+                .setDataCenterInfo(myDCI)
+                .setHostName("test2.hostname")
+                .setStatus(InstanceStatus.UP)
+                .build();
+        InstanceInfo instance3 = InstanceInfo.Builder.newBuilder()
+                .setAppName("test3")
+                .setVIPAddress("shared.testname:1")
+                .setDataCenterInfo(myDCI)
+                .setHostName("test3.hostname")
+                .setStatus(InstanceStatus.UP)
+                .build();
+
+        Application application1 = new Application("TestApp1");
+        application1.addInstance(instance1);
+        Application application2 = new Application("TestApp2");
+        application2.addInstance(instance2);
+        Application application3 = new Application("TestApp3");
+        application3.addInstance(instance3);
+        Applications applications = new Applications();
+        applications.addApplication(application1);
+        applications.addApplication(application2);
+        applications.addApplication(application3);
+        applications.shuffleInstances(true);
+        List<InstanceInfo> test1Instances = applications.getInstancesByVirtualHostName("test1.testname:1");
+
+        InstanceInfo instance2Down = new InstanceInfo(instance2);
+        instance2Down.setStatusWithoutDirty(InstanceStatus.DOWN);
+        Application changedApplication2 = new Application("TestApp2");
+        changedApplication2.addInstance(instance2Down);
+        Applications changedApplications = applications.withChangedApplications(
+                Arrays.asList(changedApplication2, new Application("TestApp3")), true);
+
+        assertSame(application1, changedApplications.getRegisteredApplications("TestApp1"));
+        assertSame(test1Instances, changedApplications.getInstancesByVirtualHostName("test1.testname:1"));
+        assertTrue(changedApplications.getInstancesByVirtualHostName("test2.testname:1").isEmpty());
+        assertTrue(changedApplications.getInstancesByVirtualHostName("shared.testname:1").isEmpty());
+        assertNull(changedApplications.getRegisteredApplications("TestApp3"));
+        assertEquals("DOWN_1_UP_1_", changedApplications.getReconcileHashCode());
+
+        // The applications the changes were made from are left as they were
+        assertSame(application3, applications.getRegisteredApplications("TestApp3"));
+        assertEquals(Arrays.asList(instance2), applications.getInstancesByVirtualHostName("test2.testname:1"));
+        assertEquals(2, applications.getInstancesByVirtualHostName("shared.testname:1").size());
+    }
+
     @Test
     public void testInstanceFiltering() {
         DataCenterInfo myDCI = new DataCenterInfo() {
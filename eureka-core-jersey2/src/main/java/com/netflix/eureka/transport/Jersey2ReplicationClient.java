@@ -29,6 +29,7 @@ import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -126,6 +127,31 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         }
     }
 
+    @Override
+    public EurekaHttpResponse<RegistryChunk> getRegistryChunk(String afterAppName, int maxInstances) {
+        Response response = null;
+        try {
+            WebTarget webTarget = jerseyClient.target(serviceUrl)
+                    .path(PeerEurekaNode.REGISTRY_URL_PATH)
+                    .queryParam("maxInstances", maxInstances);
+            if (afterAppName != null) {
+                webTarget = webTarget.queryParam("after", afterAppName);
+            }
+            response = webTarget.request(MediaType.APPLICATION_JSON_TYPE)
+                    .header(PeerEurekaNode.HEADER_REPLICATION, "true")
+                    .get();
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), RegistryChunk.class).build();
+            }
+            RegistryChunk chunk = response.readEntity(RegistryChunk.class);
+            return anEurekaHttpResponse(response.getStatus(), chunk).type(MediaType.APPLICATION_JSON_TYPE).build();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         super.shutdown();
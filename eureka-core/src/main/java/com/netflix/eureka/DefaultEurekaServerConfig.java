@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Singleton;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -360,6 +361,24 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "shouldUseReadOnlyResponseCache", true).get();
     }
 
+    @Override
+    public boolean shouldUseIncrementalAllAppsPayload() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldUseIncrementalAllAppsPayload", true).get();
+    }
+
+    @Override
+    public boolean shouldUseDirtyKeyResponseCacheRefresh() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldUseDirtyKeyResponseCacheRefresh", false).get();
+    }
+
+    @Override
+    public long getResponseCacheDirtyKeyCoalescingWindowMs() {
+        return configInstance.getIntProperty(
+                namespace + "responseCacheDirtyKeyCoalescingWindowMs", 100).get();
+    }
+
     @Override
     public boolean shouldDisableDelta() {
         return configInstance.getBooleanProperty(namespace + "disableDelta",
@@ -410,6 +429,86 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "registrySyncRetryWaitMs", 30 * 1000).get();
     }
 
+    @Override
+    public boolean shouldSyncRegistryInChunks() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldSyncRegistryInChunks", true).get();
+    }
+
+    @Override
+    public int getRegistrySyncChunkSize() {
+        return configInstance.getIntProperty(
+                namespace + "registrySyncChunkSize", 1000).get();
+    }
+
+    @Override
+    public int getRegistrySyncThreads() {
+        return configInstance.getIntProperty(
+                namespace + "registrySyncThreads", 4).get();
+    }
+
+    @Override
+    public boolean shouldPersistRegistrySnapshot() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldPersistRegistrySnapshot", false).get();
+    }
+
+    @Override
+    public String getRegistrySnapshotFile() {
+        return configInstance.getStringProperty(
+                namespace + "registrySnapshotFile",
+                new File(System.getProperty("java.io.tmpdir"), "eureka-registry.snapshot").getPath()).get();
+    }
+
+    @Override
+    public long getRegistrySnapshotIntervalMs() {
+        return configInstance.getIntProperty(
+                namespace + "registrySnapshotIntervalMs", 30 * 1000).get();
+    }
+
+    @Override
+    public long getRegistrySnapshotMaxAgeMs() {
+        return configInstance.getIntProperty(
+                namespace + "registrySnapshotMaxAgeMs", 10 * 60 * 1000).get();
+    }
+
+    @Override
+    public boolean shouldJournalRegistryMutations() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldJournalRegistryMutations", false).get();
+    }
+
+    @Override
+    public String getRegistryJournalFile() {
+        return configInstance.getStringProperty(
+                namespace + "registryJournalFile",
+                new File(System.getProperty("java.io.tmpdir"), "eureka-registry.journal").getPath()).get();
+    }
+
+    @Override
+    public long getRegistryJournalGroupCommitMs() {
+        return configInstance.getIntProperty(
+                namespace + "registryJournalGroupCommitMs", 10).get();
+    }
+
+    @Override
+    public int getRegistryJournalQueueSize() {
+        return configInstance.getIntProperty(
+                namespace + "registryJournalQueueSize", 10000).get();
+    }
+
+    @Override
+    public int getMaxDeltaWatches() {
+        return configInstance.getIntProperty(
+                namespace + "maxDeltaWatches", 0).get();
+    }
+
+    @Override
+    public long getDeltaWatchTimeoutMs() {
+        return configInstance.getIntProperty(
+                namespace + "deltaWatchTimeoutMs", 30 * 1000).get();
+    }
+
     @Override
     public int getMaxElementsInPeerReplicationPool() {
         return configInstance.getIntProperty(
@@ -435,6 +534,48 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "maxThreadsForPeerReplication", 20).get();
     }
 
+    @Override
+    public boolean shouldAdaptPeerReplicationBatching() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldAdaptPeerReplicationBatching", true).get();
+    }
+
+    @Override
+    public int getMinPeerReplicationBatchSize() {
+        return configInstance.getIntProperty(
+                namespace + "minPeerReplicationBatchSize", 25).get();
+    }
+
+    @Override
+    public int getMaxPeerReplicationBatchSize() {
+        return configInstance.getIntProperty(
+                namespace + "maxPeerReplicationBatchSize", 1000).get();
+    }
+
+    @Override
+    public long getPeerReplicationBatchTargetLatencyMs() {
+        return configInstance.getIntProperty(
+                namespace + "peerReplicationBatchTargetLatencyMs", 200).get();
+    }
+
+    @Override
+    public boolean shouldUseCompactHeartbeatReplication() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldUseCompactHeartbeatReplication", false).get();
+    }
+
+    @Override
+    public long getCompactHeartbeatRevalidationIntervalMs() {
+        return configInstance.getIntProperty(
+                namespace + "compactHeartbeatRevalidationIntervalMs", 5 * 60 * 1000).get();
+    }
+
+    @Override
+    public boolean shouldBatchApplyPeerReplication() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldBatchApplyPeerReplication", false).get();
+    }
+
     @Override
     public int getMaxTimeForReplication() {
         return configInstance.getIntProperty(
@@ -588,6 +729,12 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 .get();
     }
 
+    @Override
+    public int getRemoteRegionReconcileMaxApplications() {
+        return configInstance.getIntProperty(
+                namespace + "remoteRegion.reconcileMaxApplications", 20).get();
+    }
+
     @Override
     public String getRemoteRegionTrustStore() {
         return configInstance.getStringProperty(
@@ -320,6 +320,31 @@ public interface EurekaServerConfig {
      */
     boolean shouldUseReadOnlyResponseCache();
 
+    /**
+     * Indicates whether the full registry payload should be assembled from per application fragments that are kept
+     * between cache loads, so that only the applications that changed are encoded again.
+     *
+     * @return true if the full registry payload is to be encoded incrementally
+     */
+    boolean shouldUseIncrementalAllAppsPayload();
+
+    /**
+     * Indicates whether the read only response cache should be refreshed only for the keys that were invalidated,
+     * instead of copying every key from the readWrite cache every {@link #getResponseCacheUpdateIntervalMs()}.
+     * Keys that also depend on remote regions are still refreshed periodically.
+     *
+     * @return true if only invalidated keys of the read only cache are to be refreshed
+     */
+    boolean shouldUseDirtyKeyResponseCacheRefresh();
+
+    /**
+     * Gets the time to wait after a key of the read only response cache is invalidated before refreshing it, so
+     * that a burst of registry changes is propagated with a single refresh.
+     *
+     * @return time in milliseconds.
+     */
+    long getResponseCacheDirtyKeyCoalescingWindowMs();
+
     /**
      * Checks to see if the delta information can be served to client or not.
      * <p>
@@ -392,6 +417,107 @@ public interface EurekaServerConfig {
      */
     long getRegistrySyncRetryWaitMs();
 
+    /**
+     * Indicates whether a eureka node should copy the registry of a peer in chunks during startup, registering each
+     * chunk while the next one is fetched. If no peer can provide the whole registry, the registry fetched by the
+     * embedded eureka client is copied instead.
+     *
+     * @return true if the registry is copied in chunks, false otherwise.
+     */
+    boolean shouldSyncRegistryInChunks();
+
+    /**
+     * Get the number of instances after which a peer adds no more applications to a registry chunk.
+     *
+     * @return the number of instances in a chunk.
+     */
+    int getRegistrySyncChunkSize();
+
+    /**
+     * Get the number of threads registering the applications of a registry chunk.
+     *
+     * @return the number of threads.
+     */
+    int getRegistrySyncThreads();
+
+    /**
+     * Indicates whether the local registry should be written to a snapshot file periodically and on shutdown, and
+     * restored from it on startup before the registry is copied from the peers.
+     *
+     * @return true if the registry snapshot is persisted, false otherwise.
+     */
+    boolean shouldPersistRegistrySnapshot();
+
+    /**
+     * Get the path of the registry snapshot file.
+     *
+     * @return the snapshot file path.
+     */
+    String getRegistrySnapshotFile();
+
+    /**
+     * Get the interval with which the registry snapshot is written.
+     *
+     * @return time in milliseconds.
+     */
+    long getRegistrySnapshotIntervalMs();
+
+    /**
+     * Get the age after which a registry snapshot is not restored anymore, as most of its instances would have
+     * changed or gone away since.
+     *
+     * @return time in milliseconds.
+     */
+    long getRegistrySnapshotMaxAgeMs();
+
+    /**
+     * Checks whether the registrations, cancellations and status changes made after the last registry snapshot are
+     * appended to a journal, which is replayed on top of the snapshot when the server restarts. Only used when
+     * {@link #shouldPersistRegistrySnapshot()} is enabled.
+     *
+     * @return true if the registry mutations are journaled, false otherwise.
+     */
+    boolean shouldJournalRegistryMutations();
+
+    /**
+     * Get the path of the file the registry mutations are journaled to.
+     *
+     * @return the path of the journal file.
+     */
+    String getRegistryJournalFile();
+
+    /**
+     * Get the time during which the journaled mutations are gathered before being written and synced to disk
+     * together.
+     *
+     * @return time in milliseconds.
+     */
+    long getRegistryJournalGroupCommitMs();
+
+    /**
+     * Get the maximum number of mutations waiting to be journaled. Mutations beyond that are not journaled and a
+     * registry snapshot is written instead.
+     *
+     * @return the maximum number of mutations waiting to be journaled.
+     */
+    int getRegistryJournalQueueSize();
+
+    /**
+     * Get the maximum number of clients that can wait for registry changes on the delta watch endpoint at the same
+     * time, each of them holding a request thread. The clients beyond that are asked to poll the deltas instead.
+     * The endpoint is disabled by default; size the container thread pool for the watches before enabling it.
+     *
+     * @return the maximum number of delta watches, 0 to disable the endpoint.
+     */
+    int getMaxDeltaWatches();
+
+    /**
+     * Get the maximum time a delta watch waits for registry changes before replying that nothing changed.
+     *
+     * @return time in milliseconds.
+     */
+    long getDeltaWatchTimeoutMs();
+
     /**
      * Get the maximum number of replication events that can be allowed to back
      * up in the replication pool. This replication pool is responsible for all
@@ -427,6 +553,67 @@ public interface EurekaServerConfig {
      */
     int getMaxThreadsForPeerReplication();
 
+    /**
+     * Indicates whether the size of the batches replicated to a peer, and the number of batches sent to it at the
+     * same time, should adapt to the latency of the peer and to the congestion (503) replies it sends. When
+     * disabled, batches hold up to 250 replication events and up to {@link #getMaxThreadsForPeerReplication()}
+     * batches are sent at the same time.
+     *
+     * @return true if the replication batches should adapt to the peer, false otherwise.
+     */
+    boolean shouldAdaptPeerReplicationBatching();
+
+    /**
+     * Get the number of replication events the batches sent to a peer shrink to at most, when adaptive batching
+     * is enabled. It is also the step by which the batches grow.
+     *
+     * @return minimum number of replication events in a batch.
+     */
+    int getMinPeerReplicationBatchSize();
+
+    /**
+     * Get the number of replication events the batches sent to a peer grow to at most, when adaptive batching
+     * is enabled.
+     *
+     * @return maximum number of replication events in a batch.
+     */
+    int getMaxPeerReplicationBatchSize();
+
+    /**
+     * Get the time a peer should take at most to process a replication batch. Slower batches shrink the size of
+     * the following ones, when adaptive batching is enabled.
+     *
+     * @return time in milliseconds.
+     */
+    long getPeerReplicationBatchTargetLatencyMs();
+
+    /**
+     * Indicates whether heartbeats should be replicated to a peer as instance ids only, once the peer acknowledged
+     * the last dirty timestamp and statuses of the instance in reply to a full heartbeat. The peers must all
+     * support it before it is enabled, as they otherwise reject the batches.
+     *
+     * @return true if heartbeats of acknowledged instances are replicated as ids only, false otherwise.
+     */
+    boolean shouldUseCompactHeartbeatReplication();
+
+    /**
+     * Get the time for which a peer acknowledgement of an instance state is trusted, when compact heartbeat
+     * replication is enabled. The next heartbeat of the instance is replicated in full, so that the peer can
+     * compare dirty timestamps again.
+     *
+     * @return time in milliseconds.
+     */
+    long getCompactHeartbeatRevalidationIntervalMs();
+
+    /**
+     * Indicates whether a batch of replication events received from a peer should be applied one application at a
+     * time, holding the application lock while its events go through the instance resources, so that the
+     * application is published once per batch instead of once per event.
+     *
+     * @return true if the replication batches are applied per application, false otherwise (the default).
+     */
+    boolean shouldBatchApplyPeerReplication();
+
     /**
      * Get the minimum number of available peer replication instances
      * for this instance to be considered healthy. The design of eureka allows
@@ -565,6 +752,16 @@ public interface EurekaServerConfig {
      */
     int getRemoteRegionFetchThreadPoolSize();
 
+    /**
+     * Get the number of applications the remote region registry may fetch one by one when it does not have the
+     * reconcile hash code of the remote region after a delta. Only the applications whose hash code differs from the
+     * one in the manifest of the remote region are fetched, unless there are more of them than this, in which case
+     * the whole registry of the remote region is fetched.
+     *
+     * @return the maximum number of applications fetched one by one, 0 to always fetch the whole registry.
+     */
+    int getRemoteRegionReconcileMaxApplications();
+
     /**
      * Gets the fully qualified trust store file that will be used for remote region registry fetches.
      * @return
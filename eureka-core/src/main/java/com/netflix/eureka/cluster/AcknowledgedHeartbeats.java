@@ -0,0 +1,96 @@
+package com.netflix.eureka.cluster;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+/**
+ * The instance state last acknowledged by a peer in reply to a full heartbeat: last dirty timestamp, status and
+ * overridden status. As long as an instance still has the acknowledged state, its heartbeats can be replicated as
+ * ids only, the peer has nothing to validate them against.
+ *
+ * <p>
+ * An acknowledgement is only trusted for {@code revalidationIntervalMs}, after which a full heartbeat lets the peer
+ * compare the dirty timestamps again. Acknowledgements of instances that stopped sending heartbeats, for example
+ * because they were evicted, are dropped after that interval too.
+ * </p>
+ */
+class AcknowledgedHeartbeats {
+
+    private final long revalidationIntervalMs;
+
+    private final ConcurrentMap<String, Acknowledgement> acknowledgements = new ConcurrentHashMap<>();
+    private final AtomicLong lastPruneTime = new AtomicLong(System.currentTimeMillis());
+
+    AcknowledgedHeartbeats(long revalidationIntervalMs) {
+        this.revalidationIntervalMs = revalidationIntervalMs;
+    }
+
+    /**
+     * @return true if the peer acknowledged the current state of the instance recently enough
+     */
+    boolean isAcknowledged(InstanceInfo info, InstanceStatus overriddenStatus) {
+        long now = System.currentTimeMillis();
+        pruneIfDue(now);
+        Acknowledgement acknowledgement = acknowledgements.get(info.getId());
+        return acknowledgement != null
+                && now - acknowledgement.acknowledgedAt < revalidationIntervalMs
+                && acknowledgement.matches(info.getAppName(), info.getLastDirtyTimestamp(), info.getStatus(), overriddenStatus);
+    }
+
+    /**
+     * Creates the acknowledgement to record once the peer replies to a full heartbeat. The state is taken when the
+     * heartbeat is created, so a change made while it is pending is never considered acknowledged.
+     */
+    Acknowledgement pending(InstanceInfo info, InstanceStatus overriddenStatus) {
+        return new Acknowledgement(info.getId(), info.getAppName(), info.getLastDirtyTimestamp(), info.getStatus(), overriddenStatus);
+    }
+
+    void acknowledged(Acknowledgement acknowledgement) {
+        acknowledgement.acknowledgedAt = System.currentTimeMillis();
+        acknowledgements.put(acknowledgement.id, acknowledgement);
+    }
+
+    void forget(String id) {
+        acknowledgements.remove(id);
+    }
+
+    int size() {
+        return acknowledgements.size();
+    }
+
+    private void pruneIfDue(long now) {
+        long lastPrune = lastPruneTime.get();
+        if (now - lastPrune >= revalidationIntervalMs && lastPruneTime.compareAndSet(lastPrune, now)) {
+            acknowledgements.values().removeIf(acknowledgement -> now - acknowledgement.acknowledgedAt >= revalidationIntervalMs);
+        }
+    }
+
+    static final class Acknowledgement {
+        private final String id;
+        private final String appName;
+        private final Long lastDirtyTimestamp;
+        private final InstanceStatus status;
+        private final InstanceStatus overriddenStatus;
+        private volatile long acknowledgedAt;
+
+        private Acknowledgement(String id, String appName, Long lastDirtyTimestamp,
+                                InstanceStatus status, InstanceStatus overriddenStatus) {
+            this.id = id;
+            this.appName = appName;
+            this.lastDirtyTimestamp = lastDirtyTimestamp;
+            this.status = status;
+            this.overriddenStatus = overriddenStatus;
+        }
+
+        private boolean matches(String appName, Long lastDirtyTimestamp, InstanceStatus status, InstanceStatus overriddenStatus) {
+            return this.status == status
+                    && this.overriddenStatus == overriddenStatus
+                    && (this.lastDirtyTimestamp != null ? this.lastDirtyTimestamp.equals(lastDirtyTimestamp) : lastDirtyTimestamp == null)
+                    && (this.appName != null ? this.appName.equals(appName) : appName == null);
+        }
+    }
+}
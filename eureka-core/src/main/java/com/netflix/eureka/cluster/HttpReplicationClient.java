@@ -2,6 +2,7 @@ package com.netflix.eureka.cluster;
 
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -14,4 +15,9 @@ public interface HttpReplicationClient extends EurekaHttpClient {
     EurekaHttpResponse<Void> statusUpdate(String asgName, ASGStatus newStatus);
 
     EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList);
+
+    /**
+     * Gets a part of the peer registry, see {@link com.netflix.eureka.registry.PeerAwareInstanceRegistry#getRegistryChunk}.
+     */
+    EurekaHttpResponse<RegistryChunk> getRegistryChunk(String afterAppName, int maxInstances);
 }
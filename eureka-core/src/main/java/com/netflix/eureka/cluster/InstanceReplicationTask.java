@@ -68,4 +68,12 @@ public abstract class InstanceReplicationTask extends ReplicationTask {
     public boolean shouldReplicateInstanceInfo() {
         return replicateInstanceInfo;
     }
+
+    /**
+     * @return true if the task is a heartbeat the peer acknowledged the instance state of, so that it is replicated
+     * in a {@link com.netflix.eureka.cluster.protocol.HeartbeatFrame} with the instance id only
+     */
+    public boolean isIdOnlyHeartbeat() {
+        return false;
+    }
 }
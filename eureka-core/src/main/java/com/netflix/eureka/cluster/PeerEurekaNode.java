@@ -20,6 +20,7 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
@@ -64,7 +65,7 @@ public class PeerEurekaNode {
     private static final long MAX_BATCHING_DELAY_MS = 500;
 
     /**
-     * Maximum batch size for batched requests.
+     * Maximum batch size for batched requests, or the initial one if the batches adapt to the peer.
      */
     private static final int BATCH_SIZE = 250;
 
@@ -72,6 +73,8 @@ public class PeerEurekaNode {
 
     public static final String BATCH_URL_PATH = "peerreplication/batch/";
 
+    public static final String REGISTRY_URL_PATH = "peerreplication/registry";
+
     public static final String HEADER_REPLICATION = "x-netflix-discovery-replication";
 
     private final String serviceUrl;
@@ -81,7 +84,10 @@ public class PeerEurekaNode {
     private final String targetHost;
     private final HttpReplicationClient replicationClient;
 
-    private final TaskDispatcher<String, ReplicationTask> batchingDispatcher;
+    // Null unless heartbeats are replicated as ids only once the peer acknowledged the instance state
+    private final AcknowledgedHeartbeats acknowledgedHeartbeats;
+
+    private final TaskDispatcher<ReplicationTaskId, ReplicationTask> batchingDispatcher;
     private final TaskDispatcher<String, ReplicationTask> nonBatchingDispatcher;
 
     public PeerEurekaNode(PeerAwareInstanceRegistry registry, String targetHost, String serviceUrl, HttpReplicationClient replicationClient, EurekaServerConfig config) {
@@ -99,21 +105,40 @@ public class PeerEurekaNode {
         this.serviceUrl = serviceUrl;
         this.config = config;
         this.maxProcessingDelayMs = config.getMaxTimeForReplication();
+        this.acknowledgedHeartbeats = config.shouldUseCompactHeartbeatReplication()
+                ? new AcknowledgedHeartbeats(config.getCompactHeartbeatRevalidationIntervalMs())
+                : null;
 
         String batcherName = getBatcherName();
         ReplicationTaskProcessor taskProcessor = new ReplicationTaskProcessor(targetHost, replicationClient);
 
-        // 同步里面的批处理.
-        this.batchingDispatcher = TaskDispatchers.createBatchingTaskDispatcher(
-                batcherName,
-                config.getMaxElementsInPeerReplicationPool(),
-                batchSize,
-                config.getMaxThreadsForPeerReplication(),
-                maxBatchingDelayMs,
-                serverUnavailableSleepTimeMs,
-                retrySleepTimeMs,
-                taskProcessor
-        );
+        // 同步里面的批处理. 开启adaptive时, 批次大小和并发数根据peer的延迟和503调整, batchSize是初始批次大小.
+        if (config.shouldAdaptPeerReplicationBatching()) {
+            this.batchingDispatcher = TaskDispatchers.createAdaptiveBatchingTaskDispatcher(
+                    batcherName,
+                    config.getMaxElementsInPeerReplicationPool(),
+                    config.getMinPeerReplicationBatchSize(),
+                    batchSize,
+                    config.getMaxPeerReplicationBatchSize(),
+                    config.getMaxThreadsForPeerReplication(),
+                    maxBatchingDelayMs,
+                    config.getPeerReplicationBatchTargetLatencyMs(),
+                    serverUnavailableSleepTimeMs,
+                    retrySleepTimeMs,
+                    taskProcessor
+            );
+        } else {
+            this.batchingDispatcher = TaskDispatchers.createBatchingTaskDispatcher(
+                    batcherName,
+                    config.getMaxElementsInPeerReplicationPool(),
+                    batchSize,
+                    config.getMaxThreadsForPeerReplication(),
+                    maxBatchingDelayMs,
+                    serverUnavailableSleepTimeMs,
+                    retrySleepTimeMs,
+                    taskProcessor
+            );
+        }
         // 同步里面的非批处理-TODO 这个我还没看.
         this.nonBatchingDispatcher = TaskDispatchers.createNonBatchingTaskDispatcher(
                 targetHost,
@@ -140,7 +165,7 @@ public class PeerEurekaNode {
         // 2. 添加一个batch的任务.
         batchingDispatcher.process(
                 // ID:  {action}#{appName}/{instanceId}
-                taskId("register", info),
+                taskId(Action.Register, info),
                 new InstanceReplicationTask(targetHost, Action.Register, info, null, true) {
                     public EurekaHttpResponse<Void> execute() {
                         return replicationClient.register(info);
@@ -159,9 +184,12 @@ public class PeerEurekaNode {
      * @throws Exception 同步主动下线事件: 还是会同步一个事件给batchingDispatcher
      */
     public void cancel(final String appName, final String id) throws Exception {
+        if (acknowledgedHeartbeats != null) {
+            acknowledgedHeartbeats.forget(id);
+        }
         long expiryTime = System.currentTimeMillis() + maxProcessingDelayMs;
         batchingDispatcher.process(
-                taskId("cancel", appName, id),
+                taskId(Action.Cancel, appName, id),
                 new InstanceReplicationTask(targetHost, Action.Cancel, appName, id) {
                     @Override
                     public EurekaHttpResponse<Void> execute() {
@@ -203,6 +231,12 @@ public class PeerEurekaNode {
             return;
         }
 
+        // 0. 对方已经确认过实例的当前状态, 就只同步实例id; 否则同步完整的心跳, 成功后记下对方确认的状态
+        final boolean idOnly = acknowledgedHeartbeats != null && acknowledgedHeartbeats.isAcknowledged(info, overriddenStatus);
+        final AcknowledgedHeartbeats.Acknowledgement acknowledgement = acknowledgedHeartbeats != null && !idOnly
+                ? acknowledgedHeartbeats.pending(info, overriddenStatus)
+                : null;
+
         // 1. 创建一个同步task
         ReplicationTask replicationTask = new InstanceReplicationTask(targetHost, Action.Heartbeat, info, overriddenStatus, false) {
             @Override
@@ -210,8 +244,23 @@ public class PeerEurekaNode {
                 return replicationClient.sendHeartBeat(appName, id, info, overriddenStatus);
             }
 
+            @Override
+            public boolean isIdOnlyHeartbeat() {
+                return idOnly;
+            }
+
+            @Override
+            public void handleSuccess() {
+                if (acknowledgement != null) {
+                    acknowledgedHeartbeats.acknowledged(acknowledgement);
+                }
+            }
+
             @Override
             public void handleFailure(int statusCode, Object responseEntity) throws Throwable {
+                if (acknowledgedHeartbeats != null) {
+                    acknowledgedHeartbeats.forget(id);
+                }
                 super.handleFailure(statusCode, responseEntity);
                 if (statusCode == 404) {
                     logger.warn("{}: missing entry.", getTaskName());
@@ -230,7 +279,7 @@ public class PeerEurekaNode {
         };
         // 2. 设置过期时间是lease同步的间隔, 把任务放进去
         long expiryTime = System.currentTimeMillis() + getLeaseRenewalOf(info);
-        batchingDispatcher.process(taskId("heartbeat", info), replicationTask, expiryTime);
+        batchingDispatcher.process(taskId(Action.Heartbeat, info), replicationTask, expiryTime);
     }
 
     /**
@@ -269,7 +318,7 @@ public class PeerEurekaNode {
                              final InstanceStatus newStatus, final InstanceInfo info) {
         long expiryTime = System.currentTimeMillis() + maxProcessingDelayMs;
         batchingDispatcher.process(
-                taskId("statusUpdate", appName, id),
+                taskId(Action.StatusUpdate, appName, id),
                 new InstanceReplicationTask(targetHost, Action.StatusUpdate, info, null, false) {
                     @Override
                     public EurekaHttpResponse<Void> execute() {
@@ -290,7 +339,7 @@ public class PeerEurekaNode {
     public void deleteStatusOverride(final String appName, final String id, final InstanceInfo info) {
         long expiryTime = System.currentTimeMillis() + maxProcessingDelayMs;
         batchingDispatcher.process(
-                taskId("deleteStatusOverride", appName, id),
+                taskId(Action.DeleteStatusOverride, appName, id),
                 new InstanceReplicationTask(targetHost, Action.DeleteStatusOverride, info, null, false) {
                     @Override
                     public EurekaHttpResponse<Void> execute() {
@@ -300,6 +349,17 @@ public class PeerEurekaNode {
                 expiryTime);
     }
 
+    /**
+     * Gets a part of the registry of the peer eureka node, when this node starts up. Unlike the replication
+     * requests, it is sent right away, failures are left to the caller.
+     *
+     * @param afterAppName the name of the last application of the previous chunk, or null for the first chunk.
+     * @param maxInstances the number of instances after which the peer adds no more applications to the chunk.
+     */
+    public EurekaHttpResponse<RegistryChunk> getRegistryChunk(String afterAppName, int maxInstances) {
+        return replicationClient.getRegistryChunk(afterAppName, maxInstances);
+    }
+
     /**
      * Get the service Url of the peer eureka node.
      *
@@ -379,12 +439,12 @@ public class PeerEurekaNode {
         return "target_" + batcherName;
     }
 
-    private static String taskId(String requestType, String appName, String id) {
-        return requestType + '#' + appName + '/' + id;
+    private static ReplicationTaskId taskId(Action action, String appName, String id) {
+        return new ReplicationTaskId(action, appName, id);
     }
 
-    private static String taskId(String requestType, InstanceInfo info) {
-        return taskId(requestType, info.getAppName(), info.getId());
+    private static ReplicationTaskId taskId(Action action, InstanceInfo info) {
+        return taskId(action, info.getAppName(), info.getId());
     }
 
     private static int getLeaseRenewalOf(InstanceInfo info) {
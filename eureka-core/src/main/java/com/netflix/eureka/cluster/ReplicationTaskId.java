@@ -0,0 +1,55 @@
+package com.netflix.eureka.cluster;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+
+/**
+ * Id of an instance replication task, {action}#{appName}/{instanceId}. A newer task with the same id replaces
+ * a pending one in the batcher.
+ *
+ * <p>
+ * Ids are created for every replicated heartbeat, so the hash code is computed once and the parts are compared
+ * as they are, without building the string form.
+ * </p>
+ */
+final class ReplicationTaskId {
+
+    private final Action action;
+    private final String appName;
+    private final String id;
+    private final int hashCode;
+
+    ReplicationTaskId(Action action, String appName, String id) {
+        this.action = action;
+        this.appName = appName;
+        this.id = id;
+        int result = action.hashCode();
+        result = 31 * result + (appName != null ? appName.hashCode() : 0);
+        result = 31 * result + (id != null ? id.hashCode() : 0);
+        this.hashCode = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReplicationTaskId)) {
+            return false;
+        }
+        ReplicationTaskId that = (ReplicationTaskId) o;
+        return hashCode == that.hashCode
+                && action == that.action
+                && (appName != null ? appName.equals(that.appName) : that.appName == null)
+                && (id != null ? id.equals(that.id) : that.id == null);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return action + "#" + appName + '/' + id;
+    }
+}
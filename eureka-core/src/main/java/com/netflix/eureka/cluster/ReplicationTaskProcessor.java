@@ -1,7 +1,10 @@
 package com.netflix.eureka.cluster;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -75,7 +78,9 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
 
     @Override
     public ProcessingResult process(List<ReplicationTask> tasks) {
-        ReplicationList list = createReplicationListOf(tasks);
+        // Id only heartbeats go into heartbeat frames, grouped by application, and are replied to after the other tasks
+        List<ReplicationTask> orderedTasks = new ArrayList<>(tasks.size());
+        ReplicationList list = createReplicationListOf(tasks, orderedTasks);
         try {
             EurekaHttpResponse<ReplicationListResponse> response = replicationClient.submitBatchUpdates(list);
             int statusCode = response.getStatusCode();
@@ -89,7 +94,7 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
                     return ProcessingResult.PermanentError;
                 }
             } else {
-                handleBatchResponse(tasks, response.getEntity().getResponseList());
+                handleBatchResponse(orderedTasks, response.getEntity());
             }
         } catch (Throwable e) {
             if (maybeReadTimeOut(e)) {
@@ -127,15 +132,21 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
         }
     }
 
-    private void handleBatchResponse(List<ReplicationTask> tasks, List<ReplicationInstanceResponse> responseList) {
-        if (tasks.size() != responseList.size()) {
+    private void handleBatchResponse(List<ReplicationTask> tasks, ReplicationListResponse batchResponse) {
+        List<ReplicationInstanceResponse> responseList = batchResponse.getResponseList();
+        List<Integer> heartbeatStatusCodes = batchResponse.getHeartbeatStatusCodes();
+        int heartbeatCount = heartbeatStatusCodes == null ? 0 : heartbeatStatusCodes.size();
+        if (tasks.size() != responseList.size() + heartbeatCount) {
             // This should ideally never happen unless there is a bug in the software.
-            logger.error("Batch response size different from submitted task list ({} != {}); skipping response analysis", responseList.size(), tasks.size());
+            logger.error("Batch response size different from submitted task list ({} != {}); skipping response analysis", responseList.size() + heartbeatCount, tasks.size());
             return;
         }
-        for (int i = 0; i < tasks.size(); i++) {
+        for (int i = 0; i < responseList.size(); i++) {
             handleBatchResponse(tasks.get(i), responseList.get(i));
         }
+        for (int i = 0; i < heartbeatCount; i++) {
+            handleBatchResponse(tasks.get(responseList.size() + i), new ReplicationInstanceResponse(heartbeatStatusCodes.get(i), null));
+        }
     }
 
     private void handleBatchResponse(ReplicationTask task, ReplicationInstanceResponse response) {
@@ -152,11 +163,32 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
         }
     }
 
-    private ReplicationList createReplicationListOf(List<ReplicationTask> tasks) {
+    /**
+     * @param orderedTasks filled with the tasks in the order the peer replies to them
+     */
+    private static ReplicationList createReplicationListOf(List<ReplicationTask> tasks, List<ReplicationTask> orderedTasks) {
         ReplicationList list = new ReplicationList();
+        Map<String, List<InstanceReplicationTask>> heartbeatsByApp = null;
         for (ReplicationTask task : tasks) {
             // Only InstanceReplicationTask are batched.
-            list.addReplicationInstance(createReplicationInstanceOf((InstanceReplicationTask) task));
+            InstanceReplicationTask instanceTask = (InstanceReplicationTask) task;
+            if (instanceTask.isIdOnlyHeartbeat()) {
+                if (heartbeatsByApp == null) {
+                    heartbeatsByApp = new LinkedHashMap<>();
+                }
+                heartbeatsByApp.computeIfAbsent(instanceTask.getAppName(), appName -> new ArrayList<>()).add(instanceTask);
+            } else {
+                list.addReplicationInstance(createReplicationInstanceOf(instanceTask));
+                orderedTasks.add(instanceTask);
+            }
+        }
+        if (heartbeatsByApp != null) {
+            for (List<InstanceReplicationTask> heartbeats : heartbeatsByApp.values()) {
+                for (InstanceReplicationTask heartbeat : heartbeats) {
+                    list.addHeartbeat(heartbeat.getAppName(), heartbeat.getId());
+                    orderedTasks.add(heartbeat);
+                }
+            }
         }
         return list;
     }
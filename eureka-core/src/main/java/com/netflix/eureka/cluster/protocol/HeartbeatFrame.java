@@ -0,0 +1,61 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Heartbeats of instances of one application, replicated as instance ids only. They are sent in place of a
+ * {@link ReplicationInstance} per heartbeat for the instances whose last dirty timestamp and statuses were already
+ * acknowledged by the peer, so the peer only renews their leases.
+ */
+public class HeartbeatFrame {
+    private final String appName;
+    private final List<String> ids;
+
+    public HeartbeatFrame(String appName) {
+        this(appName, new ArrayList<String>());
+    }
+
+    @JsonCreator
+    public HeartbeatFrame(@JsonProperty("appName") String appName,
+                          @JsonProperty("ids") List<String> ids) {
+        this.appName = appName;
+        this.ids = ids;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void addId(String id) {
+        ids.add(id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        HeartbeatFrame that = (HeartbeatFrame) o;
+
+        if (appName != null ? !appName.equals(that.appName) : that.appName != null)
+            return false;
+        return ids != null ? ids.equals(that.ids) : that.ids == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = appName != null ? appName.hashCode() : 0;
+        result = 31 * result + (ids != null ? ids.hashCode() : 0);
+        return result;
+    }
+}
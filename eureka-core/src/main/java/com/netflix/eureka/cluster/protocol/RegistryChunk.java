@@ -0,0 +1,66 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.discovery.provider.Serializer;
+import com.netflix.discovery.shared.Application;
+
+/**
+ * A part of the local registry of a peer eureka node, transferred to a node that starts up. The applications are
+ * in name order and never split between chunks, so the next chunk is requested after the name of the last one.
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class RegistryChunk {
+    private final List<Application> applications;
+    private final boolean complete;
+
+    public RegistryChunk(boolean complete) {
+        this(new ArrayList<Application>(), complete);
+    }
+
+    @JsonCreator
+    public RegistryChunk(@JsonProperty("applications") List<Application> applications,
+                         @JsonProperty("complete") boolean complete) {
+        this.applications = applications;
+        this.complete = complete;
+    }
+
+    public List<Application> getApplications() {
+        return applications;
+    }
+
+    /**
+     * @return true if there are no applications after the ones of this chunk
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void addApplication(Application application) {
+        applications.add(application);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        RegistryChunk that = (RegistryChunk) o;
+
+        if (complete != that.complete)
+            return false;
+        return applications != null ? applications.equals(that.applications) : that.applications == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = applications != null ? applications.hashCode() : 0;
+        result = 31 * result + (complete ? 1 : 0);
+        return result;
+    }
+}
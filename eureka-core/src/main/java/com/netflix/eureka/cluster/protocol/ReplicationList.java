@@ -14,14 +14,22 @@ import com.netflix.discovery.provider.Serializer;
 @Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
 public class ReplicationList {
     private final List<ReplicationInstance> replicationList;
+    // Left out of the encoded list unless there are heartbeat frames, as peers not aware of them reject the list
+    private List<HeartbeatFrame> heartbeatFrames;
 
     public ReplicationList() {
         this.replicationList = new ArrayList<>();
     }
 
+    public ReplicationList(List<ReplicationInstance> replicationList) {
+        this(replicationList, null);
+    }
+
     @JsonCreator
-    public ReplicationList(@JsonProperty("replicationList") List<ReplicationInstance> replicationList) {
+    public ReplicationList(@JsonProperty("replicationList") List<ReplicationInstance> replicationList,
+                           @JsonProperty("heartbeatFrames") List<HeartbeatFrame> heartbeatFrames) {
         this.replicationList = replicationList;
+        this.heartbeatFrames = heartbeatFrames;
     }
 
     public ReplicationList(ReplicationInstance replicationInstance) {
@@ -36,6 +44,29 @@ public class ReplicationList {
         return this.replicationList;
     }
 
+    /**
+     * Adds an id only heartbeat. Consecutive heartbeats of the same application share a {@link HeartbeatFrame}.
+     */
+    public void addHeartbeat(String appName, String id) {
+        if (heartbeatFrames == null) {
+            heartbeatFrames = new ArrayList<>();
+        }
+        HeartbeatFrame lastFrame = heartbeatFrames.isEmpty() ? null : heartbeatFrames.get(heartbeatFrames.size() - 1);
+        if (lastFrame == null || !lastFrame.getAppName().equals(appName)) {
+            lastFrame = new HeartbeatFrame(appName);
+            heartbeatFrames.add(lastFrame);
+        }
+        lastFrame.addId(id);
+    }
+
+    /**
+     * @return the id only heartbeats, or null if there are none. The peer replies to them after the replies to
+     * the {@link #getReplicationList()} items, in the same order.
+     */
+    public List<HeartbeatFrame> getHeartbeatFrames() {
+        return heartbeatFrames;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -45,12 +76,15 @@ public class ReplicationList {
 
         ReplicationList that = (ReplicationList) o;
 
-        return !(replicationList != null ? !replicationList.equals(that.replicationList) : that.replicationList != null);
-
+        if (replicationList != null ? !replicationList.equals(that.replicationList) : that.replicationList != null)
+            return false;
+        return heartbeatFrames != null ? heartbeatFrames.equals(that.heartbeatFrames) : that.heartbeatFrames == null;
     }
 
     @Override
     public int hashCode() {
-        return replicationList != null ? replicationList.hashCode() : 0;
+        int result = replicationList != null ? replicationList.hashCode() : 0;
+        result = 31 * result + (heartbeatFrames != null ? heartbeatFrames.hashCode() : 0);
+        return result;
     }
 }
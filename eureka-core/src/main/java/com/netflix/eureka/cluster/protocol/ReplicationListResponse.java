@@ -13,14 +13,22 @@ import com.netflix.discovery.provider.Serializer;
 @Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
 public class ReplicationListResponse {
     private List<ReplicationInstanceResponse> responseList;
+    // Status codes of the heartbeats of the HeartbeatFrames, left out of the encoded response if there are none
+    private List<Integer> heartbeatStatusCodes;
 
     public ReplicationListResponse() {
         this.responseList = new ArrayList<ReplicationInstanceResponse>();
     }
 
+    public ReplicationListResponse(List<ReplicationInstanceResponse> responseList) {
+        this(responseList, null);
+    }
+
     @JsonCreator
-    public ReplicationListResponse(@JsonProperty("responseList") List<ReplicationInstanceResponse> responseList) {
+    public ReplicationListResponse(@JsonProperty("responseList") List<ReplicationInstanceResponse> responseList,
+                                   @JsonProperty("heartbeatStatusCodes") List<Integer> heartbeatStatusCodes) {
         this.responseList = responseList;
+        this.heartbeatStatusCodes = heartbeatStatusCodes;
     }
 
     public List<ReplicationInstanceResponse> getResponseList() {
@@ -31,6 +39,17 @@ public class ReplicationListResponse {
         responseList.add(singleResponse);
     }
 
+    public List<Integer> getHeartbeatStatusCodes() {
+        return heartbeatStatusCodes;
+    }
+
+    public void addHeartbeatStatusCode(int statusCode) {
+        if (heartbeatStatusCodes == null) {
+            heartbeatStatusCodes = new ArrayList<>();
+        }
+        heartbeatStatusCodes.add(statusCode);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -40,12 +59,15 @@ public class ReplicationListResponse {
 
         ReplicationListResponse that = (ReplicationListResponse) o;
 
-        return !(responseList != null ? !responseList.equals(that.responseList) : that.responseList != null);
-
+        if (responseList != null ? !responseList.equals(that.responseList) : that.responseList != null)
+            return false;
+        return heartbeatStatusCodes != null ? heartbeatStatusCodes.equals(that.heartbeatStatusCodes) : that.heartbeatStatusCodes == null;
     }
 
     @Override
     public int hashCode() {
-        return responseList != null ? responseList.hashCode() : 0;
+        int result = responseList != null ? responseList.hashCode() : 0;
+        result = 31 * result + (heartbeatStatusCodes != null ? heartbeatStatusCodes.hashCode() : 0);
+        return result;
     }
 }
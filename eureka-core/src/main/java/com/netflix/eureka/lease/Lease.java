@@ -45,6 +45,8 @@ public class Lease<T> {
     // Make it volatile so that the expiration task would see this quicker
     private volatile long lastUpdateTimestamp;
     private long duration;
+    // Bucket of the lease in a LeaseExpiryIndex, guarded by the index
+    private long expiryBucket;
 
     public Lease(T r, int durationInSecs) {
         holder = r;
@@ -87,6 +89,13 @@ public class Lease<T> {
         }
     }
 
+    /**
+     * Set the leases registration timestamp, when the lease is restored rather than created.
+     */
+    public void setRegistrationTimestamp(long registrationTimestamp) {
+        this.registrationTimestamp = registrationTimestamp;
+    }
+
     /**
      * Set the leases service UP timestamp.
      */
@@ -116,6 +125,21 @@ public class Lease<T> {
         return (evictionTimestamp > 0 || System.currentTimeMillis() > (lastUpdateTimestamp + duration + additionalLeaseMs));
     }
 
+    /**
+     * Gets the milliseconds since epoch after which the lease is considered expired by {@link #isExpired()}.
+     */
+    long getExpirationTimestamp() {
+        return evictionTimestamp > 0 ? evictionTimestamp : lastUpdateTimestamp + duration;
+    }
+
+    long getExpiryBucket() {
+        return expiryBucket;
+    }
+
+    void setExpiryBucket(long expiryBucket) {
+        this.expiryBucket = expiryBucket;
+    }
+
     /**
      * Gets the milliseconds since epoch when the lease was registered.
      *
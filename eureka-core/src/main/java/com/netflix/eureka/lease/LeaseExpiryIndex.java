@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.lease;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of {@link Lease}s bucketed by the time at which they expire, so that finding the expired leases only
+ * touches the buckets that are due instead of every lease.
+ *
+ * <p>
+ * Renewals do not touch the index, {@link Lease#renew()} stays a single write. A lease is placed in the bucket of
+ * the expiry time it had when it was added, and when that bucket comes due a lease that was renewed in the
+ * meantime is moved to the bucket of its new expiry time. Each lease is therefore visited about once per lease
+ * duration rather than on every expiry check.
+ * </p>
+ */
+public class LeaseExpiryIndex<T> {
+
+    private static final long DEFAULT_BUCKET_WIDTH_MS = 1000;
+
+    private final long bucketWidthMs;
+    private final TreeMap<Long, Set<Lease<T>>> buckets = new TreeMap<Long, Set<Lease<T>>>();
+    private int size;
+
+    public LeaseExpiryIndex() {
+        this(DEFAULT_BUCKET_WIDTH_MS);
+    }
+
+    public LeaseExpiryIndex(long bucketWidthMs) {
+        this.bucketWidthMs = bucketWidthMs;
+    }
+
+    /**
+     * Adds a lease to the index.
+     */
+    public synchronized void add(Lease<T> lease) {
+        place(lease, bucketOf(lease));
+        size++;
+    }
+
+    /**
+     * Removes a lease from the index, if present.
+     */
+    public synchronized void remove(Lease<T> lease) {
+        Set<Lease<T>> leases = buckets.get(lease.getExpiryBucket());
+        if (leases != null && leases.remove(lease)) {
+            size--;
+            if (leases.isEmpty()) {
+                buckets.remove(lease.getExpiryBucket());
+            }
+        }
+    }
+
+    /**
+     * Gets the leases that are expired, as evaluated by {@link Lease#isExpired(long)}. The expired leases stay in
+     * the index until they are removed.
+     *
+     * @param additionalLeaseMs any additional lease time to add to the lease evaluation in ms.
+     * @return the expired leases.
+     */
+    public synchronized List<Lease<T>> getExpiredLeases(long additionalLeaseMs) {
+        long lastDueBucket = Math.floorDiv(System.currentTimeMillis() - additionalLeaseMs, bucketWidthMs);
+        List<Lease<T>> expired = new ArrayList<Lease<T>>();
+        List<Lease<T>> renewed = new ArrayList<Lease<T>>();
+        Iterator<Map.Entry<Long, Set<Lease<T>>>> it = buckets.headMap(lastDueBucket, true).entrySet().iterator();
+        while (it.hasNext()) {
+            Set<Lease<T>> leases = it.next().getValue();
+            Iterator<Lease<T>> leaseIt = leases.iterator();
+            while (leaseIt.hasNext()) {
+                Lease<T> lease = leaseIt.next();
+                if (lease.isExpired(additionalLeaseMs)) {
+                    expired.add(lease);
+                } else if (bucketOf(lease) != lease.getExpiryBucket()) {
+                    leaseIt.remove();
+                    renewed.add(lease);
+                }
+            }
+            if (leases.isEmpty()) {
+                it.remove();
+            }
+        }
+        for (Lease<T> lease : renewed) {
+            place(lease, bucketOf(lease));
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    private void place(Lease<T> lease, long bucket) {
+        lease.setExpiryBucket(bucket);
+        Set<Lease<T>> leases = buckets.get(bucket);
+        if (leases == null) {
+            // Leases do not override equals, identity is what tells two registrations apart
+            leases = Collections.newSetFromMap(new IdentityHashMap<Lease<T>, Boolean>());
+            buckets.put(bucket, leases);
+        }
+        leases.add(lease);
+    }
+
+    private long bucketOf(Lease<T> lease) {
+        return Math.floorDiv(lease.getExpirationTimestamp(), bucketWidthMs);
+    }
+}
@@ -17,6 +17,7 @@
 package com.netflix.eureka.registry;
 
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.ActionType;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
@@ -25,8 +26,11 @@ import com.netflix.discovery.EurekaClientConfig;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.Pair;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.lease.LeaseExpiryIndex;
 import com.netflix.eureka.registry.rule.InstanceStatusOverrideRule;
 import com.netflix.eureka.resources.ServerCodecs;
 import com.netflix.eureka.util.MeasuredRate;
@@ -35,15 +39,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 import static com.netflix.eureka.util.EurekaMonitors.*;
 
@@ -65,6 +73,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     private static final String[] EMPTY_STR_ARRAY = new String[0];
     private final ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>> registry
             = new ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>>();
+    // 按过期时间分桶的租约索引, 驱逐的时候只看到期的桶
+    private final LeaseExpiryIndex<InstanceInfo> leaseExpiryIndex = new LeaseExpiryIndex<InstanceInfo>();
     protected Map<String, RemoteRegionRegistry> regionNameVSRemoteRegistry = new HashMap<String, RemoteRegionRegistry>();
     protected final ConcurrentMap<String, InstanceStatus> overriddenInstanceStatusMap = CacheBuilder
             .newBuilder().initialCapacity(500)
@@ -74,15 +84,38 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     // CircularQueues here for debugging/statistics purposes only
     private final CircularQueue<Pair<Long, String>> recentRegisteredQueue;
     private final CircularQueue<Pair<Long, String>> recentCanceledQueue;
-    private ConcurrentLinkedQueue<RecentlyChangedItem> recentlyChangedQueue = new ConcurrentLinkedQueue<RecentlyChangedItem>();
-
-    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    private final Lock read = readWriteLock.readLock();
-    private final Lock write = readWriteLock.writeLock();
+    // 增量变更日志: 按序号索引, 同时维护reconcile hash, 取增量时不需要加写锁
+    private final RegistryChangeLog recentChanges = new RegistryChangeLog();
+    // 变更日志的id: 每个registry实例不同, 客户端带回来的位置是别的server或者重启前的就能识别出来
+    private final String changeLogId = UUID.randomUUID().toString();
+
+    // Read-only views of the local region registry. Every mutation republishes the affected application and bumps
+    // the version, so readers never have to walk the lease maps. The views hold copies of the lease holders, taken
+    // when the application was last published.
+    private final ConcurrentHashMap<String, Application> localApplicationSnapshots = new ConcurrentHashMap<String, Application>();
+    private final VipIndex vipIndex = new VipIndex(false);
+    private final VipIndex secureVipIndex = new VipIndex(true);
+    private final AtomicLong localRegistryVersion = new AtomicLong(0);
+    private final AtomicReference<RegistrySnapshot> localRegistrySnapshot =
+            new AtomicReference<RegistrySnapshot>(new RegistrySnapshot(-1, new Applications()));
+    // 已经写进变更日志, 但还没有发布到snapshot的变更数, 读的时候用来判断日志和snapshot是否一致
+    private static final int MAX_CONSISTENT_READ_ATTEMPTS = 16;
+    private final AtomicLong unpublishedChanges = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicInteger> unpublishedChangesByApp = new ConcurrentHashMap<String, AtomicInteger>();
+
+    // 按application分段的锁: 同一个application的变更按顺序发布, 不同application之间、以及续约和取增量之间都不会互相阻塞
+    private static final int APPLICATION_LOCK_STRIPES = 256;
+    private final Striped<Lock> applicationLocks = Striped.lock(APPLICATION_LOCK_STRIPES);
+    // 批量应用中的application: 它的snapshot发布和缓存失效推迟到整批应用完之后做一次
+    private final ThreadLocal<ApplicationBatch> currentApplicationBatch = new ThreadLocal<ApplicationBatch>();
     protected final Object lock = new Object();
 
     private Timer deltaRetentionTimer = new Timer("Eureka-DeltaRetentionTimer", true);
     private Timer evictionTimer = new Timer("Eureka-EvictionTimer", true);
+    // 定时把注册表写到本地磁盘, 重启的时候先从这里恢复
+    private volatile Timer registrySnapshotTimer;
+    private volatile RegistryJournal registryJournal;
+    private final AtomicBoolean registrySnapshotRequested = new AtomicBoolean();
     // 续约rate
     private final MeasuredRate renewsLastMin;
 
@@ -167,8 +200,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         overriddenInstanceStatusMap.clear();
         recentCanceledQueue.clear();
         recentRegisteredQueue.clear();
-        recentlyChangedQueue.clear();
+        recentChanges.clear();
         registry.clear();
+        leaseExpiryIndex.clear();
+        localApplicationSnapshots.clear();
+        vipIndex.clear();
+        secureVipIndex.clear();
+        localRegistryVersion.incrementAndGet();
+        unpublishedChangesByApp.clear();
+        unpublishedChanges.set(0);
     }
 
     // for server info use
@@ -181,10 +221,11 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * Registers a new instance with a given duration.
      *
      * @see com.netflix.eureka.lease.LeaseManager#register(java.lang.Object, int, boolean)
-     * 读写锁: 进入读锁(不能有写锁), 进入写锁(不能有写锁, 不能有读锁).
+     * 同一个application的注册、下线、状态变更用同一把分段锁串行化, 续约和取增量都不需要这把锁.
      */
     public void register(InstanceInfo registrant, int leaseDuration, boolean isReplication) {
-        read.lock();
+        Lock applicationLock = applicationLocks.get(registrant.getAppName());
+        applicationLock.lock();
         try {
             Map<String, Lease<InstanceInfo>> gMap = registry.get(registrant.getAppName());
             REGISTER.increment(isReplication);
@@ -229,6 +270,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 lease.setServiceUpTimestamp(existingLease.getServiceUpTimestamp());
             }
             gMap.put(registrant.getId(), lease);
+            if (existingLease != null) {
+                leaseExpiryIndex.remove(existingLease);
+            }
+            leaseExpiryIndex.add(lease);
 
             // 4. 把注册动作存在一个recent队列里.
             recentRegisteredQueue.add(new Pair<Long, String>(
@@ -261,15 +306,19 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 lease.serviceUp();
             }
             registrant.setActionType(ActionType.ADDED);
-            recentlyChangedQueue.add(new RecentlyChangedItem(lease));
             registrant.setLastUpdatedTimestamp();
+            recordChange(registrant.getAppName(), lease);
+            publishApplicationSnapshot(registrant.getAppName());
 
             // 7. 更新cache
             invalidateCache(registrant.getAppName(), registrant.getVIPAddress(), registrant.getSecureVipAddress());
+            if (registryJournal != null) {
+                journalMutation(RegistryJournal.Entry.register(System.currentTimeMillis(), registrant, leaseDuration));
+            }
             logger.info("Registered instance {}/{} with status {} (replication={})",
                     registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
         } finally {
-            read.unlock();
+            applicationLock.unlock();
         }
     }
 
@@ -302,7 +351,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * 在这里正是驱逐.
      */
     protected boolean internalCancel(String appName, String id, boolean isReplication) {
-        read.lock(); // 添加读锁.
+        Lock applicationLock = applicationLocks.get(appName);
+        applicationLock.lock(); // 添加application的锁.
         try {
             // 1. 拿到lease
             CANCEL.increment(isReplication);
@@ -322,6 +372,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 logger.warn("DS: Registry: cancel failed because Lease is not registered for: {}/{}", appName, id);
                 return false;
             } else {
+                leaseExpiryIndex.remove(leaseToCancel);
                 // 3. 下线: 设置驱逐时间戳: evictionTimestamp
                 leaseToCancel.cancel();
                 InstanceInfo instanceInfo = leaseToCancel.getHolder();
@@ -330,17 +381,21 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 if (instanceInfo != null) {
                     // 4. 把instanceInfo添加到recentChangedQueue.里面
                     instanceInfo.setActionType(ActionType.DELETED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(leaseToCancel));
                     instanceInfo.setLastUpdatedTimestamp();
+                    recordChange(appName, leaseToCancel);
                     vip = instanceInfo.getVIPAddress();
                     svip = instanceInfo.getSecureVipAddress();
                 }
+                publishApplicationSnapshot(appName);
                 // 5. 调用cache接口, 干掉缓存.
                 invalidateCache(appName, vip, svip);
+                if (registryJournal != null) {
+                    journalMutation(RegistryJournal.Entry.cancel(System.currentTimeMillis(), appName, id));
+                }
                 logger.info("Cancelled instance {}/{} (replication={})", appName, id, isReplication);
             }
         } finally {
-            read.unlock();
+            applicationLock.unlock();
         }
 
         synchronized (lock) {
@@ -389,8 +444,20 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                 + "Hence setting the status to overridden status", instanceInfo.getStatus().name(),
                         overriddenInstanceStatus.name(),
                         instanceInfo.getId());
-                instanceInfo.setStatusWithoutDirty(overriddenInstanceStatus);
-
+                // 只有状态改变的时候才加锁, 普通的续约不加任何锁
+                Lock applicationLock = applicationLocks.get(appName);
+                applicationLock.lock();
+                try {
+                    instanceInfo.setStatusWithoutDirty(overriddenInstanceStatus);
+                    // The lease may have been cancelled concurrently, only account for the status if it was not
+                    if (gMap.get(id) == leaseToRenew) {
+                        beginChange(appName);
+                        recentChanges.statusChanged(instanceInfo);
+                        publishApplicationSnapshot(appName);
+                    }
+                } finally {
+                    applicationLock.unlock();
+                }
             }
         }
         renewsLastMin.increment(); // 计数
@@ -422,7 +489,9 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             overriddenInstanceStatusMap.put(id, overriddenStatus);
             List<InstanceInfo> instanceInfo = this.getInstancesById(id, false);
             if ((instanceInfo != null) && (!instanceInfo.isEmpty())) {
-                instanceInfo.iterator().next().setOverriddenStatus(overriddenStatus);
+                InstanceInfo info = instanceInfo.iterator().next();
+                info.setOverriddenStatus(overriddenStatus);
+                republishApplicationSnapshot(info.getAppName());
                 logger.info(
                         "Setting the overridden status for instance id {} and the value is {} ",
                         id, overriddenStatus.name());
@@ -451,6 +520,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             overriddenInstanceStatusMap.put(id, overriddenStatus);
             InstanceInfo instanceInfo = this.getInstanceByAppAndId(appName, id, false);
             instanceInfo.setOverriddenStatus(overriddenStatus);
+            republishApplicationSnapshot(appName);
             logger.info("Set the overridden status for instance (appname:{}, id:{}} and the value is {} ",
                     appName, id, overriddenStatus.name());
         }
@@ -473,7 +543,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     public boolean statusUpdate(String appName, String id,
                                 InstanceStatus newStatus, String lastDirtyTimestamp,
                                 boolean isReplication) {
-        read.lock();
+        Lock applicationLock = applicationLocks.get(appName);
+        applicationLock.lock();
         try {
             STATUS_UPDATE.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
@@ -512,14 +583,19 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                     }
                     info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
                     info.setLastUpdatedTimestamp();
+                    recordChange(appName, lease);
+                    publishApplicationSnapshot(appName);
                     invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
+                    if (registryJournal != null) {
+                        journalMutation(RegistryJournal.Entry.statusUpdate(System.currentTimeMillis(),
+                                appName, id, newStatus, String.valueOf(info.getLastDirtyTimestamp())));
+                    }
                 }
                 return true;
             }
         } finally {
-            read.unlock();
+            applicationLock.unlock();
         }
     }
 
@@ -539,7 +615,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                         InstanceStatus newStatus,
                                         String lastDirtyTimestamp,
                                         boolean isReplication) {
-        read.lock();
+        Lock applicationLock = applicationLocks.get(appName);
+        applicationLock.lock();
         try {
             STATUS_OVERRIDE_DELETE.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
@@ -573,14 +650,19 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                     }
                     info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
                     info.setLastUpdatedTimestamp();
+                    recordChange(appName, lease);
+                    publishApplicationSnapshot(appName);
                     invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
+                    if (registryJournal != null) {
+                        journalMutation(RegistryJournal.Entry.deleteStatusOverride(System.currentTimeMillis(),
+                                appName, id, newStatus, String.valueOf(info.getLastDirtyTimestamp())));
+                    }
                 }
                 return true;
             }
         } finally {
-            read.unlock();
+            applicationLock.unlock();
         }
     }
 
@@ -607,16 +689,19 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         // if we do not that, we might wipe out whole apps before self preservation kicks in. By randomizing it,
         // the impact should be evenly distributed across all applications.
         List<Lease<InstanceInfo>> expiredLeases = new ArrayList<>();
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> groupEntry : registry.entrySet()) {
-            Map<String, Lease<InstanceInfo>> leaseMap = groupEntry.getValue();
-            if (leaseMap != null) {
-                for (Entry<String, Lease<InstanceInfo>> leaseEntry : leaseMap.entrySet()) {
-                    Lease<InstanceInfo> lease = leaseEntry.getValue();
-                    // 2.1. 如果现在时间已经超过上次更新时间+补偿时间和工作时间了: 这里有一个90s, 在续约的时候又有一个90s, 所以租约时间其实是180s 3分钟.
-                    if (lease.isExpired(additionalLeaseMs) && lease.getHolder() != null) {
-                        expiredLeases.add(lease);
-                    }
-                }
+        // 2.1. 如果现在时间已经超过上次更新时间+补偿时间和工作时间了: 这里有一个90s, 在续约的时候又有一个90s, 所以租约时间其实是180s 3分钟.
+        // 只检查过期时间已经到了的桶, 不再遍历整个注册表.
+        for (Lease<InstanceInfo> lease : leaseExpiryIndex.getExpiredLeases(additionalLeaseMs)) {
+            InstanceInfo holder = lease.getHolder();
+            if (holder == null) {
+                continue;
+            }
+            Map<String, Lease<InstanceInfo>> leaseMap = registry.get(holder.getAppName());
+            if (leaseMap != null && leaseMap.get(holder.getId()) == lease) {
+                expiredLeases.add(lease);
+            } else {
+                // Replaced by a concurrent registration, or already gone
+                leaseExpiryIndex.remove(lease);
             }
         }
 
@@ -674,18 +759,9 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     @Override
     public Application getApplication(String appName, boolean includeRemoteRegion) {
-        Application app = null;
+        Application app = localApplicationSnapshots.get(appName);
 
-        Map<String, Lease<InstanceInfo>> leaseMap = registry.get(appName);
-
-        if (leaseMap != null && leaseMap.size() > 0) {
-            for (Entry<String, Lease<InstanceInfo>> entry : leaseMap.entrySet()) {
-                if (app == null) {
-                    app = new Application(appName);
-                }
-                app.addInstance(decorateInstanceInfo(entry.getValue()));
-            }
-        } else if (includeRemoteRegion) {
+        if (app == null && includeRemoteRegion) {
             for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
                 Application application = remoteRegistry.getApplication(appName);
                 if (application != null) {
@@ -738,6 +814,9 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * If you are not selectively requesting for a remote region, use {@link #getApplicationsFromAllRemoteRegions()}
      * or {@link #getApplicationsFromLocalRegionOnly()}
      *
+     * When no remote region is requested the shared local registry snapshot is returned, which callers must treat as
+     * read-only.
+     *
      * @param remoteRegions The remote regions for which the instances are to be queried. The instances may be limited
      * by a whitelist as explained above. If <code>null</code> or empty no remote regions are
      * included.
@@ -755,54 +834,54 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             GET_ALL_WITH_REMOTE_REGIONS_CACHE_MISS.increment();
         } else {
             GET_ALL_CACHE_MISS.increment();
+            return getLocalRegistrySnapshot();
         }
-        Applications apps = new Applications();
-        apps.setVersion(1L);
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
-            Application app = null;
 
-            if (entry.getValue() != null) {
-                for (Entry<String, Lease<InstanceInfo>> stringLeaseEntry : entry.getValue().entrySet()) {
-                    Lease<InstanceInfo> lease = stringLeaseEntry.getValue();
-                    if (app == null) {
-                        app = new Application(lease.getHolder().getAppName());
-                    }
-                    app.addInstance(decorateInstanceInfo(lease));
-                }
-            }
-            if (app != null) {
-                apps.addApplication(app);
-            }
+        // The local snapshot is shared, so an application is copied before remote instances are merged into it
+        Map<String, Application> appsByName = new LinkedHashMap<String, Application>();
+        for (Application app : getLocalRegistrySnapshot().getRegisteredApplications()) {
+            appsByName.put(app.getName().toUpperCase(Locale.ROOT), app);
         }
-        if (includeRemoteRegion) {
-            for (String remoteRegion : remoteRegions) {
-                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
-                if (null != remoteRegistry) {
-                    Applications remoteApps = remoteRegistry.getApplications();
-                    for (Application application : remoteApps.getRegisteredApplications()) {
-                        if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
-                            logger.info("Application {}  fetched from the remote region {}",
-                                    application.getName(), remoteRegion);
-
-                            Application appInstanceTillNow = apps.getRegisteredApplications(application.getName());
-                            if (appInstanceTillNow == null) {
-                                appInstanceTillNow = new Application(application.getName());
-                                apps.addApplication(appInstanceTillNow);
-                            }
-                            for (InstanceInfo instanceInfo : application.getInstances()) {
-                                appInstanceTillNow.addInstance(instanceInfo);
+        Set<String> copiedApps = new HashSet<String>();
+        for (String remoteRegion : remoteRegions) {
+            RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+            if (null != remoteRegistry) {
+                Applications remoteApps = remoteRegistry.getApplications();
+                for (Application application : remoteApps.getRegisteredApplications()) {
+                    if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                        logger.info("Application {}  fetched from the remote region {}",
+                                application.getName(), remoteRegion);
+
+                        String appKey = application.getName().toUpperCase(Locale.ROOT);
+                        Application appInstanceTillNow = appsByName.get(appKey);
+                        if (copiedApps.add(appKey)) {
+                            Application copy = new Application(application.getName());
+                            if (appInstanceTillNow != null) {
+                                for (InstanceInfo instanceInfo : appInstanceTillNow.getInstancesAsIsFromEureka()) {
+                                    copy.addInstance(instanceInfo);
+                                }
                             }
-                        } else {
-                            logger.debug("Application {} not fetched from the remote region {} as there exists a "
-                                            + "whitelist and this app is not in the whitelist.",
-                                    application.getName(), remoteRegion);
+                            appInstanceTillNow = copy;
+                            appsByName.put(appKey, appInstanceTillNow);
+                        }
+                        for (InstanceInfo instanceInfo : application.getInstances()) {
+                            appInstanceTillNow.addInstance(instanceInfo);
                         }
+                    } else {
+                        logger.debug("Application {} not fetched from the remote region {} as there exists a "
+                                        + "whitelist and this app is not in the whitelist.",
+                                application.getName(), remoteRegion);
                     }
-                } else {
-                    logger.warn("No remote registry available for the remote region {}", remoteRegion);
                 }
+            } else {
+                logger.warn("No remote registry available for the remote region {}", remoteRegion);
             }
         }
+        Applications apps = new Applications();
+        apps.setVersion(1L);
+        for (Application app : appsByName.values()) {
+            apps.addApplication(app);
+        }
         apps.setAppsHashCode(apps.getReconcileHashCode());
         return apps;
     }
@@ -829,37 +908,23 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     @Deprecated
     public Applications getApplications(boolean includeRemoteRegion) {
         GET_ALL_CACHE_MISS.increment();
+        Applications localApps = getLocalRegistrySnapshot();
+        if (!includeRemoteRegion) {
+            return localApps;
+        }
         Applications apps = new Applications();
         apps.setVersion(1L);
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
-            Application app = null;
-
-            if (entry.getValue() != null) {
-                for (Entry<String, Lease<InstanceInfo>> stringLeaseEntry : entry.getValue().entrySet()) {
-
-                    Lease<InstanceInfo> lease = stringLeaseEntry.getValue();
-
-                    if (app == null) {
-                        app = new Application(lease.getHolder().getAppName());
-                    }
-
-                    app.addInstance(decorateInstanceInfo(lease));
-                }
-            }
-            if (app != null) {
-                apps.addApplication(app);
-            }
+        for (Application app : localApps.getRegisteredApplications()) {
+            apps.addApplication(app);
         }
-        if (includeRemoteRegion) {
-            for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                Applications applications = remoteRegistry.getApplications();
-                for (Application application : applications
-                        .getRegisteredApplications()) {
-                    Application appInLocalRegistry = apps
-                            .getRegisteredApplications(application.getName());
-                    if (appInLocalRegistry == null) {
-                        apps.addApplication(application);
-                    }
+        for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
+            Applications applications = remoteRegistry.getApplications();
+            for (Application application : applications
+                    .getRegisteredApplications()) {
+                Application appInLocalRegistry = apps
+                        .getRegisteredApplications(application.getName());
+                if (appInLocalRegistry == null) {
+                    apps.addApplication(application);
                 }
             }
         }
@@ -882,53 +947,30 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     @Deprecated
     public Applications getApplicationDeltas() {
         GET_ALL_CACHE_MISS_DELTA.increment();
-        Applications apps = new Applications();
+        RegistryChangeLog.Changes changes = recentChanges.getRetainedChanges();
+        Applications apps = toDeltaApplications(changes);
         apps.setVersion(responseCache.getVersionDelta().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        write.lock();
-        try {
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is : {}",
-                    this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug(
-                        "The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo
-                        .getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
 
-            boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
+        boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
 
-            if (!disableTransparentFallback) {
-                Applications allAppsInLocalRegion = getApplications(false);
+        if (!disableTransparentFallback) {
+            Applications allAppsInLocalRegion = getApplications(false);
 
-                for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                    Applications applications = remoteRegistry.getApplicationDeltas();
-                    for (Application application : applications.getRegisteredApplications()) {
-                        Application appInLocalRegistry =
-                                allAppsInLocalRegion.getRegisteredApplications(application.getName());
-                        if (appInLocalRegistry == null) {
-                            apps.addApplication(application);
-                        }
+            for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
+                Applications applications = remoteRegistry.getApplicationDeltas();
+                for (Application application : applications.getRegisteredApplications()) {
+                    Application appInLocalRegistry =
+                            allAppsInLocalRegion.getRegisteredApplications(application.getName());
+                    if (appInLocalRegistry == null) {
+                        apps.addApplication(application);
                     }
                 }
             }
-
-            Applications allApps = getApplications(!disableTransparentFallback);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
-        } finally {
-            write.unlock();
+            apps.setAppsHashCode(getApplications(true).getReconcileHashCode());
+        } else {
+            apps.setAppsHashCode(changes.getReconcileHashCode());
         }
+        return apps;
     }
 
     /**
@@ -963,58 +1005,162 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             GET_ALL_CACHE_MISS_DELTA.increment();
         }
 
-        Applications apps = new Applications();
+        // 1. 从变更日志里面拿出来变更的instance, 以及变更之后的reconcile hash. 不需要加写锁
+        RegistryChangeLog.Changes changes = recentChanges.getRetainedChanges();
+        Applications apps = toDeltaApplications(changes);
         apps.setVersion(responseCache.getVersionDeltaWithRegions().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        write.lock();
-        try {
-            // 1. 从recentlyChangedQueue里面拿出来lease和他的instance. 最终拿到application
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is :{}", this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug("The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo.getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
 
-            if (includeRemoteRegion) {
-                for (String remoteRegion : remoteRegions) {
-                    RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
-                    if (null != remoteRegistry) {
-                        Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
-                        if (null != remoteAppsDelta) {
-                            for (Application application : remoteAppsDelta.getRegisteredApplications()) {
-                                if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
-                                    Application appInstanceTillNow =
-                                            apps.getRegisteredApplications(application.getName());
-                                    if (appInstanceTillNow == null) {
-                                        appInstanceTillNow = new Application(application.getName());
-                                        apps.addApplication(appInstanceTillNow);
-                                    }
-                                    for (InstanceInfo instanceInfo : application.getInstances()) {
-                                        appInstanceTillNow.addInstance(new InstanceInfo(instanceInfo));
-                                    }
+        if (includeRemoteRegion) {
+            for (String remoteRegion : remoteRegions) {
+                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+                if (null != remoteRegistry) {
+                    Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
+                    if (null != remoteAppsDelta) {
+                        for (Application application : remoteAppsDelta.getRegisteredApplications()) {
+                            if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                                Application appInstanceTillNow =
+                                        apps.getRegisteredApplications(application.getName());
+                                if (appInstanceTillNow == null) {
+                                    appInstanceTillNow = new Application(application.getName());
+                                    apps.addApplication(appInstanceTillNow);
+                                }
+                                for (InstanceInfo instanceInfo : application.getInstances()) {
+                                    appInstanceTillNow.addInstance(new InstanceInfo(instanceInfo));
                                 }
                             }
                         }
                     }
                 }
             }
+            // The local instances are counted by the change log as of the changes above, the remote ones the way
+            // getApplicationsFromMultipleRegions merges them
+            TreeMap<String, AtomicInteger> instanceCountMap = changes.copyInstanceCountMap();
+            for (String remoteRegion : remoteRegions) {
+                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+                if (null != remoteRegistry) {
+                    for (Application application : remoteRegistry.getApplications().getRegisteredApplications()) {
+                        if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                            application.populateInstanceCountMap(instanceCountMap);
+                        }
+                    }
+                }
+            }
+            apps.setAppsHashCode(Applications.getReconcileHashCode(instanceCountMap));
+        } else {
+            apps.setAppsHashCode(changes.getReconcileHashCode());
+        }
+        return apps;
+    }
 
-            Applications allApps = getApplicationsFromMultipleRegions(remoteRegions);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
-        } finally {
-            write.unlock();
+    /**
+     * Gets the changes made to the local region registry after the given sequence number, as returned in the
+     * version of a previous result of this method.
+     *
+     * @param sequence the sequence number of the last change the caller has seen.
+     * @return the changed instances, with the sequence number of the last change as the version and the reconcile
+     * hash code of the local region registry after that change. <code>null</code> if some of the changes after
+     * the given sequence number are no longer retained, in which case the caller must fetch the full registry.
+     */
+    public Applications getApplicationDeltasSince(long sequence) {
+        RegistryChangeLog.Changes changes = recentChanges.getChangesSince(sequence);
+        if (changes == null) {
+            return null;
         }
+        Applications apps = toDeltaApplications(changes);
+        apps.setVersion(changes.getLastSequence());
+        apps.setAppsHashCode(changes.getReconcileHashCode());
+        return apps;
+    }
+
+    /**
+     * Gets the sequence number of the last change made to the local region registry.
+     */
+    public long getLastChangeSequence() {
+        return recentChanges.getLastSequence();
+    }
+
+    /**
+     * Gets the position of the local region registry in its change log, as {@code <change log id>:<sequence>}. All
+     * the changes up to the sequence are published, so a payload generated after this call reflects at least them.
+     *
+     * @return the position, or <code>null</code> if the registry kept changing while it was taken.
+     */
+    public String getChangePosition() {
+        Long sequence = tryReadConsistently(recentChanges::getLastSequence);
+        return sequence == null ? null : toChangePosition(sequence);
+    }
+
+    /**
+     * Gets the position in the change log of the local region registry after the change with the given sequence
+     * number.
+     */
+    public String toChangePosition(long sequence) {
+        return changeLogId + ':' + sequence;
+    }
+
+    /**
+     * Gets the sequence number of a position returned by {@link #getChangePosition()} or
+     * {@link #toChangePosition(long)}.
+     *
+     * @return the sequence number, or -1 if the position is not in the change log of this registry, e.g. it was
+     * taken from another server or before a restart.
+     * @throws IllegalArgumentException if the given string is not a change position.
+     */
+    public long getChangeSequence(String changePosition) {
+        int separator = changePosition.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Not a change position: " + changePosition);
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(changePosition.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a change position: " + changePosition, e);
+        }
+        if (sequence < 0 || !changeLogId.equals(changePosition.substring(0, separator))) {
+            return -1;
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits until a change is made to the local region registry after the given sequence number, or the timeout
+     * elapses. At most {@link EurekaServerConfig#getMaxDeltaWatches()} threads wait at the same time.
+     *
+     * @return the sequence number of the last change, which is the given one if nothing changed in time, or -1 if
+     * too many threads are already waiting.
+     */
+    public long awaitChangesAfter(long sequence, long timeoutMs) throws InterruptedException {
+        return recentChanges.awaitChangesAfter(sequence, timeoutMs, serverConfig.getMaxDeltaWatches());
+    }
+
+    private Applications toDeltaApplications(RegistryChangeLog.Changes changes) {
+        return toDeltaApplications(changes, null);
+    }
+
+    /**
+     * @param interest the interest the changed instances must match, or null for all of them
+     */
+    private Applications toDeltaApplications(RegistryChangeLog.Changes changes, @Nullable RegistryInterest interest) {
+        Applications apps = new Applications();
+        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
+        logger.debug("The number of elements in the delta queue is : {}", changes.getInstances().size());
+        for (InstanceInfo instanceInfo : changes.getInstances()) {
+            if (interest != null && !interest.matches(instanceInfo)) {
+                continue;
+            }
+            logger.debug("The instance id {} is found with status {} and actiontype {}",
+                    instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
+            Application app = applicationInstancesMap.get(instanceInfo.getAppName());
+            if (app == null) {
+                app = new Application(instanceInfo.getAppName());
+                applicationInstancesMap.put(instanceInfo.getAppName(), app);
+                apps.addApplication(app);
+            }
+            // Later changes of the same instance replace the earlier ones
+            app.addInstance(instanceInfo);
+        }
+        return apps;
     }
 
     /**
@@ -1117,6 +1263,269 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return list;
     }
 
+    /**
+     * Returns the read-only snapshot of the local region registry, rebuilding it from the per application snapshots
+     * only if the registry changed since it was last published.
+     */
+    private Applications getLocalRegistrySnapshot() {
+        RegistrySnapshot snapshot = localRegistrySnapshot.get();
+        long currentVersion = localRegistryVersion.get();
+        if (snapshot.version == currentVersion) {
+            return snapshot.applications;
+        }
+        Applications apps = new Applications();
+        apps.setVersion(1L);
+        for (Application app : localApplicationSnapshots.values()) {
+            apps.addApplication(app);
+        }
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+        RegistrySnapshot newSnapshot = new RegistrySnapshot(currentVersion, apps);
+        // A concurrent reader may have published a newer snapshot in the meantime, never go backwards
+        while (snapshot.version < currentVersion && !localRegistrySnapshot.compareAndSet(snapshot, newSnapshot)) {
+            snapshot = localRegistrySnapshot.get();
+        }
+        return apps;
+    }
+
+    /**
+     * Publishes the view of an application whose lease holder was changed outside of the mutations that already
+     * publish it, under the application lock.
+     */
+    private void republishApplicationSnapshot(String appName) {
+        Lock applicationLock = applicationLocks.get(appName);
+        applicationLock.lock();
+        try {
+            publishApplicationSnapshot(appName);
+        } finally {
+            applicationLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the read-only view of the given application from its leases. The rebuild runs inside
+     * {@link ConcurrentHashMap#compute} so concurrent changes to the same application are published in order. The
+     * VIP indexes are updated from the new view, under the application lock as well.
+     *
+     * <p>
+     * The view holds decorated copies of the lease holders, so the holders can keep changing without changing a
+     * published view, nor how it encodes. As renewals do not republish, the renewal timestamp of the lease info of
+     * the view is the one of the last mutation of the instance, rather than of its last renewal as when the
+     * registry was copied on every cache fill; the lease expiry is still based on the leases themselves.
+     * </p>
+     */
+    private void publishApplicationSnapshot(String appName) {
+        ApplicationBatch batch = currentApplicationBatch.get();
+        if (batch != null && batch.appName.equals(appName)) {
+            batch.snapshotChanged = true;
+            return;
+        }
+        Application snapshot = localApplicationSnapshots.compute(appName, (name, previous) -> {
+            Map<String, Lease<InstanceInfo>> leaseMap = registry.get(name);
+            if (leaseMap == null || leaseMap.isEmpty()) {
+                return null;
+            }
+            Application app = null;
+            for (Lease<InstanceInfo> lease : leaseMap.values()) {
+                if (app == null) {
+                    app = new Application(lease.getHolder().getAppName());
+                }
+                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
+            }
+            return app;
+        });
+        vipIndex.update(appName, snapshot);
+        secureVipIndex.update(appName, snapshot);
+        localRegistryVersion.incrementAndGet();
+        // Only once the version moved, see readConsistently
+        AtomicInteger published = unpublishedChangesByApp.remove(appName);
+        if (published != null) {
+            unpublishedChanges.addAndGet(-published.get());
+        }
+    }
+
+    /**
+     * Reads the change log together with the published snapshots or VIP indexes, so the instances taken from the
+     * one and the reconcile hash code taken from the other describe the same registry. A change is written to the
+     * log before its application is published; the read is retried if a change was in between when it started, or
+     * if an application was published while it ran. Under a constant stream of changes the result of one more read
+     * is returned as is, in which case a client whose hash code does not match fetches the registry again.
+     */
+    private <T> T readConsistently(Supplier<T> reader) {
+        T result = tryReadConsistently(reader);
+        return result != null ? result : reader.get();
+    }
+
+    /**
+     * Same as {@link #readConsistently(Supplier)}, but gives up with <code>null</code> under a constant stream of
+     * changes.
+     */
+    private <T> T tryReadConsistently(Supplier<T> reader) {
+        for (int attempt = 0; attempt < MAX_CONSISTENT_READ_ATTEMPTS; attempt++) {
+            long version = localRegistryVersion.get();
+            if (unpublishedChanges.get() == 0) {
+                T result = reader.get();
+                if (unpublishedChanges.get() == 0 && localRegistryVersion.get() == version) {
+                    return result;
+                }
+            }
+            Thread.yield();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the applications with instances that have the given VIP address, or secure VIP address, among their
+     * comma separated addresses. Only those instances are part of the returned applications.
+     *
+     * <p>
+     * The local region instances are read from the VIP indexes. Unless
+     * {@link EurekaServerConfig#disableTransparentFallbackToOtherRegion()}, the instances of the remote region
+     * applications allowed by {@link EurekaServerConfig#getRemoteRegionAppWhitelist(String)} are included too, as
+     * {@link #getApplications()} includes them.
+     * </p>
+     */
+    public Applications getApplicationsForVip(String vipAddress, boolean secure) {
+        Map<String, Application> appsByName = new LinkedHashMap<String, Application>();
+        for (Application app : (secure ? secureVipIndex : vipIndex).getApplications(vipAddress)) {
+            appsByName.put(app.getName().toUpperCase(Locale.ROOT), app);
+        }
+        if (!serverConfig.disableTransparentFallbackToOtherRegion()) {
+            // The indexed applications are shared, so one is copied before remote instances are merged into it
+            Set<String> copiedApps = new HashSet<String>();
+            for (Map.Entry<String, RemoteRegionRegistry> remoteRegistry : this.regionNameVSRemoteRegistry.entrySet()) {
+                for (Application application : remoteRegistry.getValue().getApplications().getRegisteredApplications()) {
+                    if (!shouldFetchFromRemoteRegistry(application.getName(), remoteRegistry.getKey())) {
+                        continue;
+                    }
+                    String appKey = application.getName().toUpperCase(Locale.ROOT);
+                    for (InstanceInfo instanceInfo : application.getInstances()) {
+                        String vipAddresses = secure ? instanceInfo.getSecureVipAddress() : instanceInfo.getVIPAddress();
+                        if (vipAddresses == null || !Arrays.asList(vipAddresses.split(",")).contains(vipAddress)) {
+                            continue;
+                        }
+                        Application appToAdd = appsByName.get(appKey);
+                        if (copiedApps.add(appKey)) {
+                            Application copy = new Application(application.getName());
+                            if (appToAdd != null) {
+                                for (InstanceInfo localInstance : appToAdd.getInstancesAsIsFromEureka()) {
+                                    copy.addInstance(localInstance);
+                                }
+                            }
+                            appToAdd = copy;
+                            appsByName.put(appKey, appToAdd);
+                        }
+                        appToAdd.addInstance(instanceInfo);
+                    }
+                }
+            }
+        }
+        Applications apps = new Applications();
+        for (Application app : appsByName.values()) {
+            apps.addApplication(app);
+        }
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+        return apps;
+    }
+
+    /**
+     * Gets the instances of the local region registry a client is interested in: all the instances of the
+     * applications of the interest, and the instances having one of its VIP addresses as VIP or secure VIP address.
+     * Unlike {@link #getApplications()}, remote regions are never included.
+     */
+    public Applications getApplicationsForInterest(RegistryInterest interest) {
+        Map<String, Application> interestingApps = new HashMap<String, Application>();
+        for (String appName : interest.getAppNames()) {
+            Application app = localApplicationSnapshots.get(appName);
+            if (app != null) {
+                interestingApps.put(app.getName(), app);
+            }
+        }
+        for (String vipAddress : interest.getVipAddresses()) {
+            addVipApplications(interestingApps, interest, vipIndex.getApplications(vipAddress));
+            addVipApplications(interestingApps, interest, secureVipIndex.getApplications(vipAddress));
+        }
+        Applications apps = new Applications();
+        apps.setVersion(1L);
+        for (Application app : interestingApps.values()) {
+            apps.addApplication(app);
+        }
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+        return apps;
+    }
+
+    private static void addVipApplications(Map<String, Application> interestingApps, RegistryInterest interest,
+                                           Collection<Application> vipApps) {
+        for (Application vipApp : vipApps) {
+            // All the instances of the applications of the interest are already there
+            if (interest.getAppNames().contains(vipApp.getName())) {
+                continue;
+            }
+            // The indexed applications are shared, they are copied before the instances of other VIPs are added
+            Application app = interestingApps.get(vipApp.getName());
+            if (app == null) {
+                app = new Application(vipApp.getName());
+                interestingApps.put(vipApp.getName(), app);
+            }
+            for (InstanceInfo instanceInfo : vipApp.getInstances()) {
+                app.addInstance(instanceInfo);
+            }
+        }
+    }
+
+    /**
+     * Gets the recent changes to the instances of the local region registry a client is interested in, with the
+     * reconcile hash code of {@link #getApplicationsForInterest(RegistryInterest) these instances} as of the same
+     * changes.
+     */
+    public Applications getApplicationDeltasForInterest(RegistryInterest interest) {
+        GET_ALL_CACHE_MISS_DELTA.increment();
+        return readConsistently(() -> {
+            RegistryChangeLog.Changes changes = recentChanges.getRetainedChanges();
+            Applications apps = toDeltaApplications(changes, interest);
+            apps.setVersion(responseCache.getVersionDelta().get());
+            apps.setAppsHashCode(getApplicationsForInterest(interest).getAppsHashCode());
+            return apps;
+        });
+    }
+
+    /**
+     * Gets the applications of the local region registry whose name sorts after the given one, in name order, until
+     * they hold at least the given number of instances. Applications are never split, so a chunk may hold more
+     * instances than requested.
+     *
+     * @param afterAppName the name of the last application of the previous chunk, or null for the first chunk.
+     * @param maxInstances the number of instances after which no more applications are added to the chunk.
+     */
+    public RegistryChunk getRegistryChunk(@Nullable String afterAppName, int maxInstances) {
+        List<String> appNames = new ArrayList<String>();
+        for (String appName : localApplicationSnapshots.keySet()) {
+            if (afterAppName == null || appName.compareTo(afterAppName) > 0) {
+                appNames.add(appName);
+            }
+        }
+        Collections.sort(appNames);
+
+        List<Application> applications = new ArrayList<Application>();
+        int instanceCount = 0;
+        int idx = 0;
+        while (idx < appNames.size() && (applications.isEmpty() || instanceCount < maxInstances)) {
+            // The snapshots are read-only, they can be encoded as is
+            Application app = localApplicationSnapshots.get(appNames.get(idx++));
+            if (app != null) {
+                applications.add(app);
+                instanceCount += app.size();
+            }
+        }
+        return new RegistryChunk(applications, idx == appNames.size());
+    }
+
+    /**
+     * Gets the version of the local region registry, which is incremented on every change to it.
+     */
+    public long getLocalRegistryVersion() {
+        return localRegistryVersion.get();
+    }
+
     private InstanceInfo decorateInstanceInfo(Lease<InstanceInfo> lease) {
         InstanceInfo info = lease.getHolder();
 
@@ -1191,11 +1600,86 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return list;
     }
 
+    /**
+     * Appends the current state of the instance held by the lease to the change log, copied so that later changes
+     * to the instance do not alter the published delta.
+     */
+    private void recordChange(String appName, Lease<InstanceInfo> lease) {
+        beginChange(appName);
+        recentChanges.append(new InstanceInfo(decorateInstanceInfo(lease)));
+    }
+
+    /**
+     * Accounts for a change of the given application that is written to the change log but not published yet. It
+     * is accounted for until the application is next published, under the same application lock.
+     */
+    private void beginChange(String appName) {
+        unpublishedChanges.incrementAndGet();
+        unpublishedChangesByApp.computeIfAbsent(appName, name -> new AtomicInteger()).incrementAndGet();
+    }
+
     private void invalidateCache(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress) {
+        ApplicationBatch batch = currentApplicationBatch.get();
+        if (batch != null && batch.appName.equals(appName)) {
+            batch.cacheInvalidated = true;
+            if (vipAddress != null) {
+                batch.vipAddresses.add(vipAddress);
+            }
+            if (secureVipAddress != null) {
+                batch.secureVipAddresses.add(secureVipAddress);
+            }
+            return;
+        }
         // invalidate cache
         responseCache.invalidate(appName, vipAddress, secureVipAddress);
     }
 
+    /**
+     * Applies a batch of changes to one application while holding its lock. The application snapshot is published,
+     * and its cached responses invalidated, once after all the changes were applied instead of once per change.
+     * Changes made by the batch to other applications are published immediately, as outside of a batch.
+     *
+     * @param appName the application name the changes apply to.
+     * @param changes the changes, made through the registry operations such as {@link #register} or {@link #renew}.
+     */
+    protected void applyToApplication(String appName, Runnable changes) {
+        Lock applicationLock = applicationLocks.get(appName);
+        applicationLock.lock();
+        ApplicationBatch outerBatch = currentApplicationBatch.get();
+        ApplicationBatch batch = new ApplicationBatch(appName);
+        currentApplicationBatch.set(batch);
+        try {
+            changes.run();
+        } finally {
+            if (outerBatch == null) {
+                currentApplicationBatch.remove();
+            } else {
+                currentApplicationBatch.set(outerBatch);
+            }
+            try {
+                // Whatever was applied before a failure is published as well
+                publishApplicationBatch(batch);
+            } finally {
+                applicationLock.unlock();
+            }
+        }
+    }
+
+    private void publishApplicationBatch(ApplicationBatch batch) {
+        if (batch.snapshotChanged) {
+            publishApplicationSnapshot(batch.appName);
+        }
+        if (batch.cacheInvalidated) {
+            Iterator<String> vipAddresses = batch.vipAddresses.iterator();
+            Iterator<String> secureVipAddresses = batch.secureVipAddresses.iterator();
+            do {
+                invalidateCache(batch.appName,
+                        vipAddresses.hasNext() ? vipAddresses.next() : null,
+                        secureVipAddresses.hasNext() ? secureVipAddresses.next() : null);
+            } while (vipAddresses.hasNext() || secureVipAddresses.hasNext());
+        }
+    }
+
     protected void updateRenewsPerMinThreshold() {
         // 每分钟续约门槛: 之前重试次数 * (每分钟期待renewal次数) * 期待的最少续约的client数量
         // 这里修改了, 不再简单是实例*2了.
@@ -1204,21 +1688,29 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 * serverConfig.getRenewalPercentThreshold());
     }
 
-    private static final class RecentlyChangedItem {
-        private long lastUpdateTime;
-        private Lease<InstanceInfo> leaseInfo;
-
-        public RecentlyChangedItem(Lease<InstanceInfo> lease) {
-            this.leaseInfo = lease;
-            lastUpdateTime = System.currentTimeMillis();
+    /**
+     * The snapshot publication and the cache invalidations of an application deferred until the end of
+     * {@link #applyToApplication(String, Runnable)}.
+     */
+    private static final class ApplicationBatch {
+        private final String appName;
+        private final Set<String> vipAddresses = new LinkedHashSet<String>();
+        private final Set<String> secureVipAddresses = new LinkedHashSet<String>();
+        private boolean snapshotChanged;
+        private boolean cacheInvalidated;
+
+        ApplicationBatch(String appName) {
+            this.appName = appName;
         }
+    }
 
-        public long getLastUpdateTime() {
-            return this.lastUpdateTime;
-        }
+    private static final class RegistrySnapshot {
+        private final long version;
+        private final Applications applications;
 
-        public Lease<InstanceInfo> getLeaseInfo() {
-            return this.leaseInfo;
+        RegistrySnapshot(long version, Applications applications) {
+            this.version = version;
+            this.applications = applications;
         }
     }
 
@@ -1233,6 +1725,224 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         evictionTimer.schedule(evictionTaskRef.get(),
                 serverConfig.getEvictionIntervalTimerInMs(),
                 serverConfig.getEvictionIntervalTimerInMs());
+
+        if (serverConfig.shouldPersistRegistrySnapshot()) {
+            if (registrySnapshotTimer != null) {
+                registrySnapshotTimer.cancel();
+            }
+            registrySnapshotTimer = new Timer("Eureka-RegistrySnapshotTimer", true);
+            registrySnapshotTimer.schedule(new TimerTask() {
+                        @Override
+                        public void run() {
+                            writeRegistrySnapshot();
+                        }
+                    },
+                    serverConfig.getRegistrySnapshotIntervalMs(),
+                    serverConfig.getRegistrySnapshotIntervalMs());
+            if (serverConfig.shouldJournalRegistryMutations()) {
+                startRegistryJournal();
+            }
+        }
+    }
+
+    /**
+     * Starts journaling the mutations of the registry, from a snapshot of the registry as it is now.
+     */
+    void startRegistryJournal() {
+        stopRegistryJournal();
+        File journalFile = new File(serverConfig.getRegistryJournalFile());
+        try {
+            registryJournal = new RegistryJournal(journalFile, serverCodecs.getFullJsonCodec(),
+                    serverConfig.getRegistryJournalGroupCommitMs(), serverConfig.getRegistryJournalQueueSize());
+        } catch (IOException e) {
+            logger.warn("Cannot open the registry journal {}; registry mutations are not journaled", journalFile, e);
+            return;
+        }
+        // 从当前注册表的快照开始记journal
+        writeRegistrySnapshot();
+    }
+
+    /**
+     * Writes the mutations still waiting to be journaled and stops journaling.
+     */
+    void stopRegistryJournal() {
+        RegistryJournal journal = registryJournal;
+        if (journal != null) {
+            registryJournal = null;
+            journal.close();
+        }
+    }
+
+    private void journalMutation(RegistryJournal.Entry entry) {
+        RegistryJournal journal = registryJournal;
+        if (journal != null && !journal.append(entry)) {
+            // 写journal的队列满了, 这个变更只能靠马上写一次快照补上
+            if (registrySnapshotRequested.compareAndSet(false, true)) {
+                logger.warn("The registry journal {} is full; writing a registry snapshot instead", journal.getFile());
+                Timer timer = registrySnapshotTimer;
+                if (timer != null) {
+                    timer.schedule(new TimerTask() {
+                        @Override
+                        public void run() {
+                            registrySnapshotRequested.set(false);
+                            writeRegistrySnapshot();
+                        }
+                    }, 0);
+                } else {
+                    registrySnapshotRequested.set(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the leases and overridden statuses of the local registry to the snapshot file, if enabled, so that
+     * the server can restore them when it restarts.
+     */
+    public void writeRegistrySnapshot() {
+        if (!serverConfig.shouldPersistRegistrySnapshot()) {
+            return;
+        }
+        RegistrySnapshotFile snapshotFile = newRegistrySnapshotFile();
+        // The mutations journaled before this time are all part of the leases taken below
+        long takenAt = System.currentTimeMillis();
+        List<Lease<InstanceInfo>> leases = new ArrayList<Lease<InstanceInfo>>();
+        for (Map<String, Lease<InstanceInfo>> leaseMap : registry.values()) {
+            leases.addAll(leaseMap.values());
+        }
+        try {
+            snapshotFile.write(takenAt, leases, new HashMap<String, InstanceStatus>(overriddenInstanceStatusMap));
+            logger.debug("Wrote {} leases to the registry snapshot {}", leases.size(), snapshotFile.getFile());
+            // The snapshot is on disk by now, the journal records it holds can go
+            RegistryJournal journal = registryJournal;
+            if (journal != null) {
+                journal.compact(takenAt);
+            }
+        } catch (Throwable e) {
+            logger.warn("Cannot write the registry snapshot {}", snapshotFile.getFile(), e);
+        }
+    }
+
+    /**
+     * Restores the leases of the registry snapshot written before the server restarted, if enabled. The restored
+     * leases count as renewed now, so the instances that went away while the server was down expire after a lease
+     * duration like any other. A snapshot older than
+     * {@link EurekaServerConfig#getRegistrySnapshotMaxAgeMs()} is ignored. If the registry mutations are journaled,
+     * the ones made after the snapshot was taken are replayed on top of it.
+     *
+     * @return the number of instances restored.
+     */
+    public int restoreFromRegistrySnapshot() {
+        if (!serverConfig.shouldPersistRegistrySnapshot()) {
+            return 0;
+        }
+        RegistrySnapshotFile snapshotFile = newRegistrySnapshotFile();
+        RegistrySnapshotFile.Snapshot snapshot;
+        try {
+            snapshot = snapshotFile.read();
+        } catch (Throwable e) {
+            logger.warn("Cannot read the registry snapshot {}", snapshotFile.getFile(), e);
+            return 0;
+        }
+        if (snapshot == null) {
+            return 0;
+        }
+        long age = System.currentTimeMillis() - snapshot.takenAt;
+        if (age > serverConfig.getRegistrySnapshotMaxAgeMs()) {
+            logger.info("Ignoring the registry snapshot {} taken {}ms ago", snapshotFile.getFile(), age);
+            return 0;
+        }
+
+        // 先恢复overridden状态, 注册的时候就会用上
+        overriddenInstanceStatusMap.putAll(snapshot.overriddenStatuses);
+        Map<String, List<RegistrySnapshotFile.SnapshotLease>> leasesByApp = new HashMap<String, List<RegistrySnapshotFile.SnapshotLease>>();
+        for (RegistrySnapshotFile.SnapshotLease lease : snapshot.leases) {
+            String appName = lease.instanceInfo.getAppName();
+            List<RegistrySnapshotFile.SnapshotLease> appLeases = leasesByApp.get(appName);
+            if (appLeases == null) {
+                appLeases = new ArrayList<RegistrySnapshotFile.SnapshotLease>();
+                leasesByApp.put(appName, appLeases);
+            }
+            appLeases.add(lease);
+        }
+        final Set<String> restoredIds = new HashSet<String>();
+        for (final Map.Entry<String, List<RegistrySnapshotFile.SnapshotLease>> entry : leasesByApp.entrySet()) {
+            applyToApplication(entry.getKey(), () -> {
+                for (RegistrySnapshotFile.SnapshotLease snapshotLease : entry.getValue()) {
+                    if (restoreLease(snapshotLease)) {
+                        restoredIds.add(snapshotLease.instanceInfo.getId());
+                    }
+                }
+            });
+        }
+        logger.info("Restored {} instances from the registry snapshot {} taken {}ms ago",
+                restoredIds.size(), snapshotFile.getFile(), age);
+        if (serverConfig.shouldJournalRegistryMutations()) {
+            replayRegistryJournal(snapshot.takenAt, restoredIds);
+        }
+        return restoredIds.size();
+    }
+
+    private void replayRegistryJournal(long since, Set<String> restoredIds) {
+        File journalFile = new File(serverConfig.getRegistryJournalFile());
+        List<RegistryJournal.Entry> entries;
+        try {
+            entries = RegistryJournal.read(journalFile, serverCodecs.getFullJsonCodec(), since);
+        } catch (Throwable e) {
+            logger.warn("Cannot read the registry journal {}", journalFile, e);
+            return;
+        }
+        for (RegistryJournal.Entry entry : entries) {
+            try {
+                switch (entry.type) {
+                    case Register:
+                        register(entry.instanceInfo, entry.leaseDuration, true);
+                        restoredIds.add(entry.id);
+                        break;
+                    case Cancel:
+                        if (internalCancel(entry.appName, entry.id, true)) {
+                            restoredIds.remove(entry.id);
+                        }
+                        break;
+                    case StatusUpdate:
+                        statusUpdate(entry.appName, entry.id, entry.status, entry.lastDirtyTimestamp, true);
+                        break;
+                    case DeleteStatusOverride:
+                        deleteStatusOverride(entry.appName, entry.id, entry.status, entry.lastDirtyTimestamp, true);
+                        break;
+                }
+            } catch (Throwable e) {
+                logger.error("Cannot replay the journaled {} of {}/{}", entry.type, entry.appName, entry.id, e);
+            }
+        }
+        logger.info("Replayed {} mutations from the registry journal {}", entries.size(), journalFile);
+    }
+
+    private boolean restoreLease(RegistrySnapshotFile.SnapshotLease snapshotLease) {
+        InstanceInfo info = snapshotLease.instanceInfo;
+        try {
+            int leaseDuration = Lease.DEFAULT_DURATION_IN_SECS;
+            if (info.getLeaseInfo() != null && info.getLeaseInfo().getDurationInSecs() > 0) {
+                leaseDuration = info.getLeaseInfo().getDurationInSecs();
+            }
+            register(info, leaseDuration, true);
+            Map<String, Lease<InstanceInfo>> leaseMap = registry.get(info.getAppName());
+            Lease<InstanceInfo> lease = leaseMap == null ? null : leaseMap.get(info.getId());
+            if (lease != null && lease.getHolder() == info) {
+                lease.setRegistrationTimestamp(snapshotLease.registrationTimestamp);
+                if (snapshotLease.serviceUpTimestamp > 0) {
+                    lease.setServiceUpTimestamp(snapshotLease.serviceUpTimestamp);
+                }
+            }
+            return true;
+        } catch (Throwable e) {
+            logger.error("Cannot restore instance {}/{} from the registry snapshot", info.getAppName(), info.getId(), e);
+            return false;
+        }
+    }
+
+    private RegistrySnapshotFile newRegistrySnapshotFile() {
+        return new RegistrySnapshotFile(new File(serverConfig.getRegistrySnapshotFile()), serverCodecs.getFullJsonCodec());
     }
 
     /**
@@ -1242,6 +1952,12 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     public void shutdown() {
         deltaRetentionTimer.cancel();
         evictionTimer.cancel();
+        if (registrySnapshotTimer != null) {
+            registrySnapshotTimer.cancel();
+            stopRegistryJournal();
+            // The last snapshot before a restart is the one restored
+            writeRegistrySnapshot();
+        }
         renewsLastMin.stop();
         responseCache.stop();
     }
@@ -1359,23 +2075,14 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return rule.apply(r, existingLease, isReplication).status();
     }
 
-    // 删除recentlyChangedQueue里超过3分钟的
+    // 删除变更日志里超过3分钟的
     private TimerTask getDeltaRetentionTask() {
         return new TimerTask() {
 
             @Override
             public void run() {
-                Iterator<RecentlyChangedItem> it = recentlyChangedQueue.iterator();
-                while (it.hasNext()) {
-                    // 如果 recentlyChangedQueue更新时间超过了3分钟, 就干掉了.
-                    if (it.next().getLastUpdateTime() <
-                            // 当前时间-3分钟
-                            System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue()) {
-                        it.remove();
-                    } else {
-                        break;
-                    }
-                }
+                // 当前时间-3分钟
+                recentChanges.expire(System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue());
             }
 
         };
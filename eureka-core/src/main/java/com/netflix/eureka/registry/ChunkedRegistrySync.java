@@ -0,0 +1,127 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies the registry of a peer eureka node in chunks of whole applications, instead of decoding it in one piece.
+ * A chunk is registered while the next one is fetched, its applications in parallel, so no more than two chunks
+ * are held in memory whatever the size of the registry.
+ *
+ * <p>
+ * If a peer fails in the middle of the transfer, the next peer continues after the last application received.
+ * </p>
+ */
+class ChunkedRegistrySync {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedRegistrySync.class);
+
+    private final PeerAwareInstanceRegistryImpl registry;
+    private final int chunkSize;
+    private final int threads;
+
+    ChunkedRegistrySync(PeerAwareInstanceRegistryImpl registry, int chunkSize, int threads) {
+        this.registry = registry;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return the number of instances registered, or -1 if none of the peers could provide the whole registry
+     */
+    int syncUp(List<PeerEurekaNode> peers) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("Eureka-RegistrySync-%d")
+                        .setDaemon(true)
+                        .build());
+        AtomicInteger count = new AtomicInteger();
+        List<Future<?>> pendingApps = new ArrayList<Future<?>>();
+        try {
+            String afterAppName = null;
+            for (PeerEurekaNode peer : peers) {
+                while (true) {
+                    RegistryChunk chunk = fetchChunk(peer, afterAppName);
+                    if (chunk == null) {
+                        break;
+                    }
+                    // The previous chunk is registered while this one is fetched
+                    awaitAll(pendingApps);
+                    for (final Application app : chunk.getApplications()) {
+                        pendingApps.add(executor.submit(() -> register(app, count)));
+                        afterAppName = app.getName();
+                    }
+                    if (chunk.isComplete()) {
+                        awaitAll(pendingApps);
+                        logger.info("Copied {} instances from the registry of {} in chunks", count.get(), peer.getServiceUrl());
+                        return count.get();
+                    }
+                }
+            }
+            awaitAll(pendingApps);
+            logger.warn("No peer could provide the rest of the registry after {}; {} instances copied in chunks",
+                    afterAppName, count.get());
+            return -1;
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted during registry transfer..");
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RegistryChunk fetchChunk(PeerEurekaNode peer, String afterAppName) {
+        try {
+            EurekaHttpResponse<RegistryChunk> response = peer.getRegistryChunk(afterAppName, chunkSize);
+            if (response.getStatusCode() == 200 && response.getEntity() != null) {
+                return response.getEntity();
+            }
+            logger.info("Cannot get the registry chunk after {} from {}; statusCode={}",
+                    afterAppName, peer.getServiceUrl(), response.getStatusCode());
+        } catch (Throwable e) {
+            logger.warn("Cannot get the registry chunk after {} from {}", afterAppName, peer.getServiceUrl(), e);
+        }
+        return null;
+    }
+
+    private void register(final Application app, final AtomicInteger count) {
+        registry.applyToApplication(app.getName(), () -> {
+            for (InstanceInfo instance : app.getInstances()) {
+                try {
+                    if (registry.isRegisterable(instance)) {
+                        registry.register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
+                        count.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    logger.error("During DS init copy", t);
+                }
+            }
+        });
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.error("During DS init copy", e.getCause());
+            }
+        }
+        futures.clear();
+    }
+}
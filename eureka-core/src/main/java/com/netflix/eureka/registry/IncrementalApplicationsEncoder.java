@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Encodes a full {@link Applications} payload by concatenating per application fragments that are kept between
+ * calls, so only the applications that changed since the previous payload are encoded again.
+ *
+ * <p>
+ * The encoders are pluggable, so the envelope around the application list is not known upfront. It is derived by
+ * comparing the encoding of an empty registry with the encoding of a registry holding a single placeholder
+ * application. The derived layout is checked against a full encoding the first time it is used, and an encoder
+ * whose output cannot be assembled this way is always used to encode the full payload.
+ * </p>
+ *
+ * <p>
+ * Fragments are tracked by the identity of the {@link Application} they were encoded from, which relies on the
+ * registry publishing a new {@link Application} object whenever one of its instances changes.
+ * </p>
+ */
+class IncrementalApplicationsEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalApplicationsEncoder.class);
+
+    private static final String PLACEHOLDER_APP_1 = "EUREKA-PAYLOAD-PLACEHOLDER-1";
+    private static final String PLACEHOLDER_APP_2 = "EUREKA-PAYLOAD-PLACEHOLDER-2";
+    private static final long FRAGMENT_ENVELOPE_VERSION = 1L;
+    private static final String FRAGMENT_ENVELOPE_HASH_CODE = "";
+
+    private final EncoderWrapper encoder;
+    private final ConcurrentMap<String, Fragment> fragments = new ConcurrentHashMap<String, Fragment>();
+
+    private volatile Layout fragmentLayout;
+    private volatile String placeholderFragment;
+    private volatile String separator;
+    private volatile boolean verified;
+    private volatile boolean disabled;
+
+    IncrementalApplicationsEncoder(EncoderWrapper encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Encodes the given applications, reusing the fragments of applications that did not change since the last call.
+     */
+    String encode(Applications apps) throws IOException {
+        List<Application> registeredApps = apps.getRegisteredApplications();
+        if (disabled || registeredApps.isEmpty() || !initialize()) {
+            return encoder.encode(apps);
+        }
+
+        Layout layout = deriveLayout(apps.getVersion(), apps.getAppsHashCode());
+        if (layout == null) {
+            return encoder.encode(apps);
+        }
+
+        StringBuilder payload = new StringBuilder(layout.prefix);
+        Set<String> appNames = new HashSet<String>();
+        boolean first = true;
+        for (Application app : registeredApps) {
+            if (!first) {
+                payload.append(separator);
+            }
+            first = false;
+            payload.append(getFragment(app));
+            appNames.add(app.getName());
+        }
+        payload.append(layout.suffix);
+        fragments.keySet().retainAll(appNames);
+
+        String result = payload.toString();
+        if (!verified) {
+            String expected = encoder.encode(apps);
+            if (!expected.equals(result)) {
+                logger.warn("Encoder {} output cannot be assembled from application fragments; "
+                        + "falling back to encoding the full payload", encoder.codecName());
+                disable();
+                return expected;
+            }
+            verified = true;
+        }
+        return result;
+    }
+
+    /**
+     * Drops all cached fragments.
+     */
+    void clear() {
+        fragments.clear();
+    }
+
+    private String getFragment(Application app) throws IOException {
+        Fragment fragment = fragments.get(app.getName());
+        if (fragment != null && fragment.application == app) {
+            return fragment.payload;
+        }
+        String payload = extract(fragmentLayout, encodeSingle(app, FRAGMENT_ENVELOPE_VERSION, FRAGMENT_ENVELOPE_HASH_CODE));
+        if (payload == null) {
+            throw new IOException("Unexpected envelope in the encoding of application " + app.getName());
+        }
+        fragments.put(app.getName(), new Fragment(app, payload));
+        return payload;
+    }
+
+    private synchronized boolean initialize() throws IOException {
+        if (disabled) {
+            return false;
+        }
+        if (fragmentLayout != null) {
+            return true;
+        }
+        Layout layout = deriveLayout(FRAGMENT_ENVELOPE_VERSION, FRAGMENT_ENVELOPE_HASH_CODE);
+        if (layout == null) {
+            return false;
+        }
+        String second = extract(layout, encodeSingle(new Application(PLACEHOLDER_APP_2),
+                FRAGMENT_ENVELOPE_VERSION, FRAGMENT_ENVELOPE_HASH_CODE));
+        Applications both = newApplications(FRAGMENT_ENVELOPE_VERSION, FRAGMENT_ENVELOPE_HASH_CODE);
+        both.addApplication(new Application(PLACEHOLDER_APP_1));
+        both.addApplication(new Application(PLACEHOLDER_APP_2));
+        String encodedBoth = encoder.encode(both);
+
+        String head = layout.prefix + layout.placeholder;
+        String tail = second == null ? null : second + layout.suffix;
+        if (tail == null || !encodedBoth.startsWith(head) || !encodedBoth.endsWith(tail)
+                || encodedBoth.length() < head.length() + tail.length()) {
+            logger.warn("Cannot determine the application separator of encoder {}; "
+                    + "falling back to encoding the full payload", encoder.codecName());
+            disable();
+            return false;
+        }
+        separator = encodedBoth.substring(head.length(), encodedBoth.length() - tail.length());
+        placeholderFragment = layout.placeholder;
+        fragmentLayout = layout;
+        return true;
+    }
+
+    /**
+     * Splits the encoding of an empty registry with the given envelope into the text before and after the
+     * application list, and checks that the placeholder application fragment fits in between.
+     */
+    private Layout deriveLayout(Long version, String appsHashCode) throws IOException {
+        String empty = encoder.encode(newApplications(version, appsHashCode));
+        String single = encodeSingle(new Application(PLACEHOLDER_APP_1), version, appsHashCode);
+
+        int prefixLength = 0;
+        int maxPrefix = Math.min(empty.length(), single.length());
+        while (prefixLength < maxPrefix && empty.charAt(prefixLength) == single.charAt(prefixLength)) {
+            prefixLength++;
+        }
+        String prefix = empty.substring(0, prefixLength);
+        String suffix = empty.substring(prefixLength);
+        if (!single.startsWith(prefix) || !single.endsWith(suffix)
+                || single.length() <= prefix.length() + suffix.length()) {
+            disable();
+            logger.warn("Cannot determine the envelope of encoder {}; falling back to encoding the full payload",
+                    encoder.codecName());
+            return null;
+        }
+        String placeholder = single.substring(prefix.length(), single.length() - suffix.length());
+        if (placeholderFragment != null && !placeholderFragment.equals(placeholder)) {
+            logger.debug("Envelope of encoder {} changed shape; encoding the full payload", encoder.codecName());
+            return null;
+        }
+        return new Layout(prefix, suffix, placeholder);
+    }
+
+    private String encodeSingle(Application app, Long version, String appsHashCode) throws IOException {
+        Applications apps = newApplications(version, appsHashCode);
+        apps.addApplication(app);
+        return encoder.encode(apps);
+    }
+
+    private synchronized void disable() {
+        disabled = true;
+        fragments.clear();
+    }
+
+    private static String extract(Layout layout, String encoded) {
+        if (!encoded.startsWith(layout.prefix) || !encoded.endsWith(layout.suffix)
+                || encoded.length() < layout.prefix.length() + layout.suffix.length()) {
+            return null;
+        }
+        return encoded.substring(layout.prefix.length(), encoded.length() - layout.suffix.length());
+    }
+
+    private static Applications newApplications(Long version, String appsHashCode) {
+        return new Applications(appsHashCode, version, Collections.<Application>emptyList());
+    }
+
+    private static final class Layout {
+        private final String prefix;
+        private final String suffix;
+        private final String placeholder;
+
+        Layout(String prefix, String suffix, String placeholder) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.placeholder = placeholder;
+        }
+    }
+
+    private static final class Fragment {
+        private final Application application;
+        private final String payload;
+
+        Fragment(Application application, String payload) {
+            this.application = application;
+            this.payload = payload;
+        }
+    }
+}
@@ -86,6 +86,39 @@ public interface InstanceRegistry extends LeaseManager<InstanceInfo>, LookupServ
 
     List<Pair<Long, String>> getLastNCanceledInstances();
 
+    /**
+     * Gets the changes made to the local region registry after the given sequence number.
+     *
+     * @return the changed instances, or null if some of the changes are no longer retained.
+     */
+    Applications getApplicationDeltasSince(long sequence);
+
+    long getLastChangeSequence();
+
+    /**
+     * Gets the position of the local region registry in its change log, which is the version a client passes to
+     * wait for the changes after it.
+     *
+     * @return the position, or null if the registry kept changing while it was taken.
+     */
+    String getChangePosition();
+
+    String toChangePosition(long sequence);
+
+    /**
+     * @return the sequence number of the given change position, or -1 if it is not a position of this registry.
+     * @throws IllegalArgumentException if the given string is not a change position.
+     */
+    long getChangeSequence(String changePosition);
+
+    /**
+     * Waits until a change is made to the local region registry after the given sequence number, or the timeout
+     * elapses.
+     *
+     * @return the sequence number of the last change, or -1 if too many threads are already waiting.
+     */
+    long awaitChangesAfter(long sequence, long timeoutMs) throws InterruptedException;
+
     /**
      * Checks whether lease expiration is enabled.
      * @return true if enabled
@@ -1,6 +1,7 @@
 package com.netflix.eureka.registry;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.Version;
 
 import javax.annotation.Nullable;
@@ -16,10 +17,11 @@ public class Key {
     }
 
     /**
-     * An enum to define the entity that is stored in this cache for this key.
+     * An enum to define the entity that is stored in this cache for this key. For {@link #Interest} and
+     * {@link #InterestDelta}, the entity name is the string form of a {@link RegistryInterest}.
      */
     public enum EntityType {
-        Application, VIP, SVIP
+        Application, VIP, SVIP, Interest, InterestDelta
     }
 
     private final String entityName;
@@ -19,9 +19,16 @@ package com.netflix.eureka.registry;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.Application;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * @author Tomasz Bak
@@ -52,4 +59,27 @@ public interface PeerAwareInstanceRegistry extends InstanceRegistry {
      void register(InstanceInfo info, boolean isReplication);
 
      void statusUpdate(final String asgName, final ASGResource.ASGStatus newStatus, final boolean isReplication);
+
+    /**
+     * Applies a batch of replication events received from a peer eureka node, one application at a time.
+     *
+     * @param eventHandler applies a single event and gives its response, without throwing.
+     * @return the responses to the individual events, in the order of the events.
+     */
+    ReplicationListResponse applyReplicationBatch(ReplicationList replicationList,
+                                                  Function<ReplicationInstance, ReplicationInstanceResponse> eventHandler);
+
+    /**
+     * Renews the leases of the instances of a heartbeat frame received from a peer eureka node, and adds their
+     * status codes to the given response.
+     */
+    void applyHeartbeatFrame(HeartbeatFrame heartbeatFrame, ReplicationListResponse batchResponse);
+
+    /**
+     * Gets a part of the local registry, for a peer eureka node to copy it in chunks at start up.
+     *
+     * @param afterAppName the name of the last application of the previous chunk, or null for the first chunk.
+     * @param maxInstances the number of instances after which no more applications are added to the chunk.
+     */
+    RegistryChunk getRegistryChunk(String afterAppName, int maxInstances);
 }
@@ -28,6 +28,11 @@ import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.cluster.PeerEurekaNode;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.registry.rule.*;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -43,8 +48,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.ws.rs.core.Response.Status;
 import java.net.URI;
 import java.util.*;
+import java.util.function.Function;
 
 import static com.netflix.eureka.Names.METRIC_REGISTRY_PREFIX;
 
@@ -204,11 +211,26 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
      */
     @Override
     public int syncUp() {
+        // 重启的时候先从本地的snapshot恢复, 不用等peer就可以对外服务; peer的注册表随后覆盖上来
+        int restoredCount = restoreFromRegistrySnapshot();
+
+        if (serverConfig.shouldSyncRegistryInChunks()
+                && peerEurekaNodes != null && !peerEurekaNodes.getPeerEurekaNodes().isEmpty()) {
+            int chunkedCount = new ChunkedRegistrySync(
+                    this, serverConfig.getRegistrySyncChunkSize(), serverConfig.getRegistrySyncThreads()
+            ).syncUp(peerEurekaNodes.getPeerEurekaNodes());
+            if (chunkedCount >= 0) {
+                return Math.max(chunkedCount, restoredCount);
+            }
+            logger.info("Copying the registry fetched by the eureka client instead");
+        }
+
         // Copy entire entry from neighboring DS node
         int count = 0;
 
-        // 最多重试RegistrySyncRetries{5}次.
-        for (int i = 0; ((i < serverConfig.getRegistrySyncRetries()) && (count == 0)); i++) {
+        // 最多重试RegistrySyncRetries{5}次. 从snapshot恢复了的话不再等待重试
+        int retries = restoredCount > 0 ? 1 : serverConfig.getRegistrySyncRetries();
+        for (int i = 0; ((i < retries) && (count == 0)); i++) {
             if (i > 0) {
                 try { // 重试之前睡一睡. 这个应该是等discoveryClient从其它的peer里拿.
                     Thread.sleep(serverConfig.getRegistrySyncRetryWaitMs());
@@ -232,7 +254,7 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
                 }
             }
         }
-        return count;
+        return Math.max(count, restoredCount);
     }
 
     //
@@ -469,6 +491,86 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         return false;
     }
 
+    /**
+     * Applies a batch of replication events received from a peer. The events are grouped per application and the
+     * events of an application are applied while holding its lock, so that the application snapshot is published,
+     * and its cached responses invalidated, once per batch instead of once per event.
+     *
+     * <p>
+     * Each event is applied by the given function, the same one that applies the events outside of a batch, so
+     * that the responses do not depend on how the batch is applied. The responses are in the order of the events.
+     * Heartbeat frames are renewed the same way, their status codes follow the responses.
+     * </p>
+     */
+    @Override
+    public ReplicationListResponse applyReplicationBatch(final ReplicationList replicationList,
+                                                         final Function<ReplicationInstance, ReplicationInstanceResponse> eventHandler) {
+        final List<ReplicationInstance> events = replicationList.getReplicationList();
+        final ReplicationInstanceResponse[] responses = new ReplicationInstanceResponse[events.size()];
+
+        // 按application分组, 每个application只拿一次锁, 只发布一次snapshot和失效一次缓存
+        Map<String, List<Integer>> eventsByApp = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < events.size(); i++) {
+            String appName = events.get(i).getAppName();
+            if (appName == null) {
+                responses[i] = eventHandler.apply(events.get(i));
+                continue;
+            }
+            appName = appName.toUpperCase(Locale.ROOT);
+            List<Integer> appEvents = eventsByApp.get(appName);
+            if (appEvents == null) {
+                appEvents = new ArrayList<Integer>();
+                eventsByApp.put(appName, appEvents);
+            }
+            appEvents.add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : eventsByApp.entrySet()) {
+            final List<Integer> appEvents = entry.getValue();
+            applyToApplication(entry.getKey(), () -> {
+                for (int i : appEvents) {
+                    responses[i] = eventHandler.apply(events.get(i));
+                }
+            });
+        }
+
+        ReplicationListResponse batchResponse = new ReplicationListResponse(new ArrayList<ReplicationInstanceResponse>(Arrays.asList(responses)));
+        if (replicationList.getHeartbeatFrames() != null) {
+            for (final HeartbeatFrame heartbeatFrame : replicationList.getHeartbeatFrames()) {
+                if (heartbeatFrame.getAppName() == null) {
+                    applyHeartbeatFrame(heartbeatFrame, batchResponse);
+                } else {
+                    applyToApplication(heartbeatFrame.getAppName().toUpperCase(Locale.ROOT),
+                            () -> applyHeartbeatFrame(heartbeatFrame, batchResponse));
+                }
+            }
+        }
+        return batchResponse;
+    }
+
+    /**
+     * Renews the leases of the heartbeat frame instances. The replicating node already had their state acknowledged
+     * by this node, so there is no dirty timestamp to validate, as for a heartbeat without one.
+     */
+    @Override
+    public void applyHeartbeatFrame(HeartbeatFrame heartbeatFrame, ReplicationListResponse batchResponse) {
+        String appName = heartbeatFrame.getAppName();
+        for (String id : heartbeatFrame.getIds()) {
+            int statusCode;
+            try {
+                if (renew(appName, id, true)) {
+                    statusCode = Status.OK.getStatusCode();
+                } else {
+                    logger.warn("Not Found (Renew): {} - {}", appName, id);
+                    statusCode = Status.NOT_FOUND.getStatusCode();
+                }
+            } catch (Exception e) {
+                statusCode = Status.INTERNAL_SERVER_ERROR.getStatusCode();
+                logger.error("Heartbeat request processing failed for batch item {}/{}", appName, id, e);
+            }
+            batchResponse.addHeartbeatStatusCode(statusCode);
+        }
+    }
+
     /**
      * Replicate the <em>ASG status</em> updates to peer eureka nodes. If this
      * event is a replication from other nodes, then it is not replicated to
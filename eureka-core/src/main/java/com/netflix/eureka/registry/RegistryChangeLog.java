@@ -0,0 +1,272 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.discovery.shared.Applications;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Versioned log of the changes made to the local region registry, kept in a ring buffer indexed by a monotonically
+ * increasing sequence number.
+ *
+ * <p>
+ * Every change holds a copy of the {@link InstanceInfo} taken when the change was made, and the log maintains the
+ * number of instances per status alongside it. A reader therefore gets the changes since a given sequence number
+ * together with the reconcile hash of the registry after the last of them, without locking the registry itself.
+ * Only appends and reads of the log are serialized, and both are proportional to the number of changes involved.
+ * </p>
+ */
+class RegistryChangeLog {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Change[] ring = new Change[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+    private long nextSequence = 1;
+    private int waiters;
+
+    private final Map<String, InstanceInfo.InstanceStatus> instanceStatuses = new HashMap<String, InstanceInfo.InstanceStatus>();
+    private final TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<String, AtomicInteger>();
+    private String reconcileHashCode = "";
+
+    /**
+     * Appends a change to the log.
+     *
+     * @param instanceInfo a copy of the instance as of the change, with its {@link ActionType} set.
+     * @return the sequence number of the change.
+     */
+    synchronized long append(InstanceInfo instanceInfo) {
+        if (size == ring.length) {
+            grow();
+        }
+        long sequence = nextSequence++;
+        ring[(head + size) % ring.length] = new Change(System.currentTimeMillis(), instanceInfo);
+        size++;
+        if (waiters > 0) {
+            notifyAll();
+        }
+        if (instanceInfo.getActionType() == ActionType.DELETED) {
+            updateStatus(instanceInfo.getAppName(), instanceInfo.getId(), null);
+        } else {
+            updateStatus(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo.getStatus());
+        }
+        return sequence;
+    }
+
+    /**
+     * Records a status change that is not published as a delta, so that the reconcile hash still reflects it.
+     */
+    synchronized void statusChanged(InstanceInfo instanceInfo) {
+        updateStatus(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo.getStatus());
+    }
+
+    /**
+     * Gets the changes made after the given sequence number.
+     *
+     * @return the changes, or null if some of the changes after the sequence number were already expired.
+     */
+    synchronized Changes getChangesSince(long sequence) {
+        long firstSequence = nextSequence - size;
+        if (sequence < firstSequence - 1) {
+            return null;
+        }
+        int skip = (int) Math.min(size, Math.max(0, sequence - firstSequence + 1));
+        List<InstanceInfo> instances = new ArrayList<InstanceInfo>(size - skip);
+        for (int i = skip; i < size; i++) {
+            instances.add(ring[(head + i) % ring.length].instanceInfo);
+        }
+        Map<String, Integer> instanceCounts = new TreeMap<String, Integer>();
+        for (Map.Entry<String, AtomicInteger> entry : instanceCountMap.entrySet()) {
+            instanceCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return new Changes(instances, nextSequence - 1, reconcileHashCode, instanceCounts);
+    }
+
+    /**
+     * Waits until a change is made after the given sequence number, or the timeout elapses.
+     *
+     * @param maxWaiters the maximum number of threads waiting at the same time.
+     * @return the sequence number of the last change, which is the given one if nothing changed in time, or -1 if
+     * there were already {@code maxWaiters} threads waiting.
+     */
+    synchronized long awaitChangesAfter(long sequence, long timeoutMs, int maxWaiters) throws InterruptedException {
+        if (nextSequence - 1 > sequence) {
+            return nextSequence - 1;
+        }
+        if (waiters >= maxWaiters) {
+            return -1;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        waiters++;
+        try {
+            while (nextSequence - 1 <= sequence && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } finally {
+            waiters--;
+        }
+        return nextSequence - 1;
+    }
+
+    /**
+     * Gets all the changes that are still retained.
+     */
+    synchronized Changes getRetainedChanges() {
+        return getChangesSince(nextSequence - size - 1);
+    }
+
+    /**
+     * Removes the changes made before the given time.
+     */
+    synchronized void expire(long timestamp) {
+        while (size > 0 && ring[head].timestamp < timestamp) {
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+        }
+    }
+
+    synchronized void clear() {
+        ring = new Change[INITIAL_CAPACITY];
+        head = 0;
+        size = 0;
+        // Skip a sequence number, so that readers holding any earlier one notice the gap
+        nextSequence++;
+        if (waiters > 0) {
+            notifyAll();
+        }
+        instanceStatuses.clear();
+        instanceCountMap.clear();
+        reconcileHashCode = "";
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    private void grow() {
+        Change[] newRing = new Change[ring.length * 2];
+        for (int i = 0; i < size; i++) {
+            newRing[i] = ring[(head + i) % ring.length];
+        }
+        ring = newRing;
+        head = 0;
+    }
+
+    private void updateStatus(String appName, String id, InstanceInfo.InstanceStatus newStatus) {
+        String key = appName + '/' + id;
+        InstanceInfo.InstanceStatus oldStatus = newStatus == null
+                ? instanceStatuses.remove(key)
+                : instanceStatuses.put(key, newStatus);
+        if (oldStatus == newStatus) {
+            return;
+        }
+        if (oldStatus != null) {
+            AtomicInteger count = instanceCountMap.get(oldStatus.name());
+            if (count != null && count.decrementAndGet() <= 0) {
+                instanceCountMap.remove(oldStatus.name());
+            }
+        }
+        if (newStatus != null) {
+            AtomicInteger count = instanceCountMap.get(newStatus.name());
+            if (count == null) {
+                count = new AtomicInteger(0);
+                instanceCountMap.put(newStatus.name(), count);
+            }
+            count.incrementAndGet();
+        }
+        reconcileHashCode = Applications.getReconcileHashCode(instanceCountMap);
+    }
+
+    // The sequence number of a change is implied by its position in the ring
+    private static final class Change {
+        private final long timestamp;
+        private final InstanceInfo instanceInfo;
+
+        Change(long timestamp, InstanceInfo instanceInfo) {
+            this.timestamp = timestamp;
+            this.instanceInfo = instanceInfo;
+        }
+    }
+
+    /**
+     * A consistent view of a range of the log.
+     */
+    static final class Changes {
+        private final List<InstanceInfo> instances;
+        private final long lastSequence;
+        private final String reconcileHashCode;
+        private final Map<String, Integer> instanceCounts;
+
+        Changes(List<InstanceInfo> instances, long lastSequence, String reconcileHashCode,
+                Map<String, Integer> instanceCounts) {
+            this.instances = Collections.unmodifiableList(instances);
+            this.lastSequence = lastSequence;
+            this.reconcileHashCode = reconcileHashCode;
+            this.instanceCounts = instanceCounts;
+        }
+
+        /**
+         * @return the instances as of each change, oldest first.
+         */
+        List<InstanceInfo> getInstances() {
+            return instances;
+        }
+
+        /**
+         * @return the sequence number of the last change in the log when the view was taken.
+         */
+        long getLastSequence() {
+            return lastSequence;
+        }
+
+        /**
+         * @return the reconcile hash code of the local region registry after the last change.
+         */
+        String getReconcileHashCode() {
+            return reconcileHashCode;
+        }
+
+        /**
+         * @return a new instance count map of the local region registry after the last change, to which the
+         * instances of other registries can be added to get their combined reconcile hash code.
+         */
+        TreeMap<String, AtomicInteger> copyInstanceCountMap() {
+            TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<String, AtomicInteger>();
+            for (Map.Entry<String, Integer> entry : instanceCounts.entrySet()) {
+                instanceCountMap.put(entry.getKey(), new AtomicInteger(entry.getValue()));
+            }
+            return instanceCountMap;
+        }
+    }
+}
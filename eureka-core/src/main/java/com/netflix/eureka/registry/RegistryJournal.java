@@ -0,0 +1,341 @@
+package com.netflix.eureka.registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of the registrations, cancellations and status changes of the local registry, replayed on
+ * top of the last {@link RegistrySnapshotFile registry snapshot} when the server restarts.
+ *
+ * <p>
+ * Mutations are only queued by the threads making them; a single writer thread appends them and syncs the file once
+ * per group of mutations gathered during {@code groupCommitMs}. Renewals are not journaled. Each record carries its
+ * length and CRC32, so a record torn by a crash ends the replay instead of failing it. Once a snapshot is written,
+ * the records older than the snapshot are dropped from the journal.
+ * </p>
+ */
+class RegistryJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryJournal.class);
+
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    enum Type {
+        Register, Cancel, StatusUpdate, DeleteStatusOverride
+    }
+
+    private final File file;
+    private final CodecWrapper codec;
+    private final long groupCommitMs;
+    private final BlockingQueue<Entry> pendingEntries;
+    private final Thread writerThread;
+
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private volatile boolean closed;
+
+    RegistryJournal(File file, CodecWrapper codec, long groupCommitMs, int queueSize) throws IOException {
+        this.file = file;
+        this.codec = codec;
+        this.groupCommitMs = groupCommitMs;
+        this.pendingEntries = new LinkedBlockingQueue<Entry>(Math.max(1, queueSize));
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create the registry journal directory " + parent);
+        }
+        openForAppend();
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "Eureka-RegistryJournalWriter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Queues a mutation to be journaled, without waiting for it to be written.
+     *
+     * @return false if the mutation could not be queued, in which case the journal misses it
+     */
+    boolean append(Entry entry) {
+        return !closed && pendingEntries.offer(entry);
+    }
+
+    /**
+     * Drops the records older than {@code takenAt}, whose mutations are part of a snapshot taken at that time. The
+     * snapshot must already be on disk, see {@link RegistrySnapshotFile#write}.
+     */
+    synchronized void compact(long takenAt) throws IOException {
+        closeFile();
+        File tmpFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        int kept = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+             FileOutputStream tmpFileOut = new FileOutputStream(tmpFile);
+             DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(tmpFileOut))) {
+            byte[] record;
+            while ((record = readRecord(in)) != null) {
+                if (timestampOf(record) >= takenAt) {
+                    writeRecord(tmpOut, record);
+                    kept++;
+                }
+            }
+            tmpOut.flush();
+            tmpFileOut.getChannel().force(true);
+        }
+        RegistrySnapshotFile.moveDurably(tmpFile, file);
+        logger.debug("Compacted the registry journal {}; {} records kept", file, kept);
+        if (!closed) {
+            openForAppend();
+        }
+    }
+
+    /**
+     * Writes the mutations still queued and stops the journal.
+     */
+    void close() {
+        // Not interrupted, an interrupt in the middle of a sync would close the file
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            List<Entry> batch = new ArrayList<Entry>();
+            pendingEntries.drainTo(batch);
+            writeBatch(batch);
+            closeFile();
+        }
+    }
+
+    /**
+     * @return the entries journaled at or after {@code since}, in journal order, up to the first torn record
+     */
+    static List<Entry> read(File file, CodecWrapper codec, long since) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        if (!file.isFile()) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] record;
+            while ((record = readRecord(in)) != null) {
+                if (timestampOf(record) >= since) {
+                    entries.add(decode(record, codec));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<Entry>();
+        while (!closed) {
+            try {
+                Entry first = pendingEntries.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 攒一批再一起fsync
+                long deadline = System.currentTimeMillis() + groupCommitMs;
+                long remaining;
+                while (batch.size() < MAX_BATCH_SIZE && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    Entry next = pendingEntries.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                pendingEntries.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            } catch (InterruptedException e) {
+                // The interrupt is not restored, it would make the sync of the last batch fail
+                closed = true;
+            }
+            synchronized (this) {
+                writeBatch(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty() || out == null) {
+            return;
+        }
+        try {
+            for (Entry entry : batch) {
+                writeRecord(out, encode(entry));
+            }
+            out.flush();
+            fileOut.getChannel().force(false);
+        } catch (Throwable e) {
+            logger.warn("Cannot write {} mutations to the registry journal {}", batch.size(), file, e);
+        }
+    }
+
+    private byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeLong(entry.timestamp);
+        record.writeByte(entry.type.ordinal());
+        if (entry.type == Type.Register) {
+            // The instance is encoded here rather than by the thread registering it
+            byte[] encoded = codec.encode(entry.instanceInfo).getBytes(StandardCharsets.UTF_8);
+            record.writeInt(entry.leaseDuration);
+            record.writeInt(encoded.length);
+            record.write(encoded);
+        } else {
+            record.writeUTF(entry.appName);
+            record.writeUTF(entry.id);
+            record.writeUTF(entry.status == null ? "" : entry.status.name());
+            record.writeUTF(entry.lastDirtyTimestamp == null ? "" : entry.lastDirtyTimestamp);
+        }
+        record.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] record, CodecWrapper codec) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        long timestamp = in.readLong();
+        Type type = Type.values()[in.readByte()];
+        if (type == Type.Register) {
+            int leaseDuration = in.readInt();
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+            InstanceInfo instanceInfo = codec.decode(new String(encoded, StandardCharsets.UTF_8), InstanceInfo.class);
+            return Entry.register(timestamp, instanceInfo, leaseDuration);
+        }
+        String appName = in.readUTF();
+        String id = in.readUTF();
+        String status = in.readUTF();
+        String lastDirtyTimestamp = in.readUTF();
+        return new Entry(timestamp, type, appName, id,
+                status.isEmpty() ? null : InstanceStatus.toEnum(status),
+                lastDirtyTimestamp.isEmpty() ? null : lastDirtyTimestamp,
+                null, 0);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        out.writeInt(record.length);
+        out.writeLong(crc.getValue());
+        out.write(record);
+    }
+
+    /**
+     * @return the next record, or null at the end of the journal or at a torn record
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            long expectedCrc = in.readLong();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            return crc.getValue() == expectedCrc ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static long timestampOf(byte[] record) {
+        long timestamp = 0;
+        for (int i = 0; i < 8; i++) {
+            timestamp = (timestamp << 8) | (record[i] & 0xFF);
+        }
+        return timestamp;
+    }
+
+    private void openForAppend() throws IOException {
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.flush();
+                fileOut.getChannel().force(false);
+                out.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close the registry journal {}", file, e);
+            }
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    static final class Entry {
+        final long timestamp;
+        final Type type;
+        final String appName;
+        final String id;
+        final InstanceStatus status;
+        final String lastDirtyTimestamp;
+        final InstanceInfo instanceInfo;
+        final int leaseDuration;
+
+        private Entry(long timestamp, Type type, String appName, String id, InstanceStatus status,
+                      String lastDirtyTimestamp, InstanceInfo instanceInfo, int leaseDuration) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.appName = appName;
+            this.id = id;
+            this.status = status;
+            this.lastDirtyTimestamp = lastDirtyTimestamp;
+            this.instanceInfo = instanceInfo;
+            this.leaseDuration = leaseDuration;
+        }
+
+        static Entry register(long timestamp, InstanceInfo instanceInfo, int leaseDuration) {
+            return new Entry(timestamp, Type.Register, instanceInfo.getAppName(), instanceInfo.getId(),
+                    null, null, instanceInfo, leaseDuration);
+        }
+
+        static Entry cancel(long timestamp, String appName, String id) {
+            return new Entry(timestamp, Type.Cancel, appName, id, null, null, null, 0);
+        }
+
+        static Entry statusUpdate(long timestamp, String appName, String id, InstanceStatus status, String lastDirtyTimestamp) {
+            return new Entry(timestamp, Type.StatusUpdate, appName, id, status, lastDirtyTimestamp, null, 0);
+        }
+
+        static Entry deleteStatusOverride(long timestamp, String appName, String id, InstanceStatus status, String lastDirtyTimestamp) {
+            return new Entry(timestamp, Type.DeleteStatusOverride, appName, id, status, lastDirtyTimestamp, null, 0);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.netflix.eureka.registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * A copy of the local registry leases and overridden statuses on disk, read back when the server restarts.
+ *
+ * <p>
+ * The file holds a header with the time the leases were taken, then for each lease its registration and service up
+ * timestamps followed by the instance encoded with the server JSON codec, then the overridden statuses, and ends
+ * with a CRC32 of everything before it. It is written to a temporary file first, synced to disk and moved in
+ * place, so a crash while writing leaves the previous snapshot intact, and once {@link #write} returns the snapshot
+ * survives a power loss.
+ * </p>
+ */
+class RegistrySnapshotFile {
+
+    private static final int MAGIC = 0x45524B53;
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final CodecWrapper codec;
+
+    RegistrySnapshotFile(File file, CodecWrapper codec) {
+        this.file = file;
+        this.codec = codec;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @param takenAt the time the leases were taken from the registry, the changes made after that are not part of
+     *                the snapshot
+     */
+    void write(long takenAt, Iterable<Lease<InstanceInfo>> leases, Map<String, InstanceStatus> overriddenStatuses) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create the registry snapshot directory " + parent);
+        }
+        File tmpFile = new File(parent, file.getName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(
+                     new CheckedOutputStream(new BufferedOutputStream(fileOut), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(takenAt);
+            for (Lease<InstanceInfo> lease : leases) {
+                byte[] encoded = codec.encode(lease.getHolder()).getBytes(StandardCharsets.UTF_8);
+                out.writeBoolean(true);
+                out.writeLong(lease.getRegistrationTimestamp());
+                out.writeLong(lease.getServiceUpTimestamp());
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            out.writeBoolean(false);
+            out.writeInt(overriddenStatuses.size());
+            for (Map.Entry<String, InstanceStatus> entry : overriddenStatuses.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().name());
+            }
+            // The checksum itself is not part of what it covers
+            out.writeLong(crc.getValue());
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        moveDurably(tmpFile, file);
+    }
+
+    /**
+     * Moves a file that was synced to disk in place of another, and syncs the directory so the move itself survives
+     * a power loss.
+     */
+    static void moveDurably(File source, File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            try (FileChannel dir = FileChannel.open(parent.toPath(), StandardOpenOption.READ)) {
+                dir.force(true);
+            } catch (IOException e) {
+                // Directories cannot be opened for sync on every platform, the move is atomic nonetheless
+            }
+        }
+    }
+
+    /**
+     * @return the snapshot, or null if there is none
+     * @throws IOException if the snapshot cannot be read or its checksum does not match
+     */
+    Snapshot read() throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a registry snapshot of a supported version: " + file);
+            }
+            long takenAt = in.readLong();
+            // Decoded only once the checksum was verified
+            List<SnapshotLease> leases = new ArrayList<>();
+            while (in.readBoolean()) {
+                long registrationTimestamp = in.readLong();
+                long serviceUpTimestamp = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > file.length()) {
+                    throw new IOException("Corrupted registry snapshot: " + file);
+                }
+                byte[] encoded = new byte[length];
+                in.readFully(encoded);
+                leases.add(new SnapshotLease(registrationTimestamp, serviceUpTimestamp, encoded));
+            }
+            int overrideCount = in.readInt();
+            Map<String, InstanceStatus> overriddenStatuses = new HashMap<>();
+            for (int i = 0; i < overrideCount; i++) {
+                overriddenStatuses.put(in.readUTF(), InstanceStatus.toEnum(in.readUTF()));
+            }
+            long expectedCrc = crc.getValue();
+            if (in.readLong() != expectedCrc) {
+                throw new IOException("Registry snapshot checksum mismatch: " + file);
+            }
+            for (SnapshotLease lease : leases) {
+                lease.decode(codec);
+            }
+            return new Snapshot(takenAt, leases, overriddenStatuses);
+        }
+    }
+
+    static final class Snapshot {
+        final long takenAt;
+        final List<SnapshotLease> leases;
+        final Map<String, InstanceStatus> overriddenStatuses;
+
+        Snapshot(long takenAt, List<SnapshotLease> leases, Map<String, InstanceStatus> overriddenStatuses) {
+            this.takenAt = takenAt;
+            this.leases = leases;
+            this.overriddenStatuses = overriddenStatuses;
+        }
+    }
+
+    static final class SnapshotLease {
+        final long registrationTimestamp;
+        final long serviceUpTimestamp;
+        private byte[] encoded;
+        InstanceInfo instanceInfo;
+
+        SnapshotLease(long registrationTimestamp, long serviceUpTimestamp, byte[] encoded) {
+            this.registrationTimestamp = registrationTimestamp;
+            this.serviceUpTimestamp = serviceUpTimestamp;
+            this.encoded = encoded;
+        }
+
+        private void decode(CodecWrapper codec) throws IOException {
+            instanceInfo = codec.decode(new String(encoded, StandardCharsets.UTF_8), InstanceInfo.class);
+            encoded = null;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.SynchronousQueue;
@@ -32,6 +33,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.appinfo.InstanceInfo;
@@ -41,6 +43,7 @@ import com.netflix.discovery.EurekaIdentityHeaderFilter;
 import com.netflix.discovery.TimedSupervisorTask;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
 import com.netflix.discovery.shared.LookupService;
 import com.netflix.discovery.shared.resolver.ClusterResolver;
 import com.netflix.discovery.shared.resolver.StaticClusterResolver;
@@ -451,6 +454,10 @@ public class RemoteRegionRegistry implements LookupService<String> {
 
         long currentGeneration = fetchRegistryGeneration.get();
 
+        if (reconcileDivergedApplications(currentGeneration)) {
+            return true;
+        }
+
         Applications apps = this.fetchRemoteRegistry(false);
         if (apps == null) {
             logger.error("The application is null for some reason. Not storing this information");
@@ -470,6 +477,101 @@ public class RemoteRegionRegistry implements LookupService<String> {
         }
     }
 
+    /**
+     * Reconciles the registry by fetching only the applications whose hash code differs from the one in the
+     * {@link ApplicationsManifest manifest} of the remote region, as long as there are no more of them than
+     * {@link EurekaServerConfig#getRemoteRegionReconcileMaxApplications()}.
+     *
+     * @return true if the registry was reconciled, false if the full registry has to be fetched instead.
+     */
+    private boolean reconcileDivergedApplications(long currentGeneration) {
+        int maxApplications = serverConfig.getRemoteRegionReconcileMaxApplications();
+        if (maxApplications <= 0) {
+            return false;
+        }
+        ApplicationsManifest manifest = fetchRemoteEntity("apps/manifest", ApplicationsManifest.class,
+                () -> eurekaHttpClient.getApplicationsManifest());
+        if (manifest == null) {
+            return false;
+        }
+
+        Applications currentApps = getApplications();
+        Set<String> divergedApps = manifest.getDivergedApplications(currentApps);
+        if (divergedApps.size() > maxApplications) {
+            logger.info("{} applications diverged from the remote region {}, more than the {} fetched one by one",
+                    divergedApps.size(), this.remoteRegionURL, maxApplications);
+            return false;
+        }
+        List<Application> changedApps = new ArrayList<>();
+        for (String appName : divergedApps) {
+            if (!manifest.getAppHashCodes().containsKey(appName)) {
+                changedApps.add(new Application(appName));
+                continue;
+            }
+            Application app = fetchRemoteEntity("apps/" + appName, Application.class,
+                    () -> eurekaHttpClient.getApplication(appName));
+            if (app == null) {
+                return false;
+            }
+            changedApps.add(app);
+        }
+
+        Applications apps = currentApps.withChangedApplications(changedApps, false);
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+        if (!apps.getAppsHashCode().equals(manifest.getAppsHashCode())) {
+            logger.info("The Reconcile hashcodes after fetching {} applications, client : {}, server : {}.",
+                    divergedApps.size(), apps.getAppsHashCode(), manifest.getAppsHashCode());
+            return false;
+        }
+        if (fetchRegistryGeneration.compareAndSet(currentGeneration, currentGeneration + 1)) {
+            applications.set(apps);
+            applicationsDelta.set(apps);
+            logger.warn("Reconciled the registry of the remote region {} by fetching the diverged applications {}",
+                    this.remoteRegionURL, divergedApps);
+        } else {
+            logger.warn("Not setting the applications map as another thread has advanced the update generation");
+        }
+        return true;
+    }
+
+    /**
+     * Fetch an entity other than the registry from the remote region.
+     * @param urlPath - the path of the entity, used by the legacy transport
+     * @param request - the request of the entity, used by the experimental transport
+     * @return - the entity, or null if it could not be fetched.
+     */
+    private <T> T fetchRemoteEntity(String urlPath, Class<T> entityType, Supplier<EurekaHttpResponse<T>> request) {
+        if (shouldUseExperimentalTransport()) {
+            try {
+                EurekaHttpResponse<T> httpResponse = request.get();
+                int httpStatus = httpResponse.getStatusCode();
+                if (httpStatus >= 200 && httpStatus < 300) {
+                    return httpResponse.getEntity();
+                }
+                logger.warn("Cannot get {} from {} : {}", urlPath, this.remoteRegionURL, httpStatus);
+            } catch (Throwable t) {
+                logger.error("Can't get a response from {}", this.remoteRegionURL, t);
+            }
+        } else {
+            ClientResponse response = null;
+            try {
+                response = discoveryApacheClient.resource(this.remoteRegionURL + urlPath)
+                        .accept(MediaType.APPLICATION_JSON_TYPE)
+                        .get(ClientResponse.class);
+                int httpStatus = response.getStatus();
+                if (httpStatus >= 200 && httpStatus < 300) {
+                    return response.getEntity(entityType);
+                }
+                logger.warn("Cannot get {} from {} : {}", urlPath, this.remoteRegionURL, httpStatus);
+            } catch (Throwable t) {
+                logger.error("Can't get a response from {}", this.remoteRegionURL, t);
+            } finally {
+                closeResponse(response);
+            }
+        }
+        return null;
+    }
+
     /**
      * Logs the total number of non-filtered instances stored locally.
      */
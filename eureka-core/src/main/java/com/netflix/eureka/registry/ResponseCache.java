@@ -30,6 +30,19 @@ public interface ResponseCache {
      */
     String get(Key key);
 
+    /**
+     * Get the cached information about applications as UTF-8 encoded bytes.
+     *
+     * <p>
+     * The returned array is shared by all callers, so it must not be modified. It can be written to the
+     * response as is, which avoids encoding the payload again on every request.
+     * </p>
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @return UTF-8 encoded payload which contains information about the applications.
+     */
+    byte[] getBytes(Key key);
+
     /**
      * Get the compressed information about the applications.
      *
@@ -38,6 +51,22 @@ public interface ResponseCache {
      */
     byte[] getGZIP(Key key);
 
+    /**
+     * Get the position in the registry change log the cached information was generated at, see
+     * {@link InstanceRegistry#getChangePosition()}. Only the applications of the local region and their delta have
+     * one.
+     *
+     * <p>
+     * The cached information only moves forward, so the position read before the information itself is never
+     * ahead of it.
+     * </p>
+     *
+     * @param key the key for which the position needs to be obtained.
+     * @return the change position, or null if the cached information has none.
+     */
+    @Nullable
+    String getChangePosition(Key key);
+
     /**
      * Performs a shutdown of this cache by stopping internal threads and unregistering
      * Servo monitors.
@@ -26,6 +26,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.resources.CurrentRequestVersion;
@@ -41,11 +43,13 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPOutputStream;
 
@@ -71,6 +75,7 @@ public class ResponseCacheImpl implements ResponseCache {
 
     public static final String ALL_APPS = "ALL_APPS";
     public static final String ALL_APPS_DELTA = "ALL_APPS_DELTA";
+    public static final String ALL_APPS_MANIFEST = "ALL_APPS_MANIFEST";
 
     // FIXME deprecated, here for backwards compatibility.
     private static final AtomicLong versionDeltaLegacy = new AtomicLong(0);
@@ -87,6 +92,8 @@ public class ResponseCacheImpl implements ResponseCache {
     private final Timer serializeDeltaAppsWithRemoteRegionTimer = Monitors.newTimer("serialize-all-delta_remote_region");
     private final Timer serializeOneApptimer = Monitors.newTimer("serialize-one");
     private final Timer serializeViptimer = Monitors.newTimer("serialize-one-vip");
+    private final Timer serializeInterestTimer = Monitors.newTimer("serialize-interest");
+    private final Timer serializeManifestTimer = Monitors.newTimer("serialize-all-manifest");
     private final Timer compressPayloadTimer = Monitors.newTimer("compress-payload");
 
     /**
@@ -106,8 +113,26 @@ public class ResponseCacheImpl implements ResponseCache {
 
     private final ConcurrentMap<Key, Value> readOnlyCacheMap = new ConcurrentHashMap<Key, Value>();
 
+    /**
+     * The interest keys of the read write cache, with their interest. Unlike the other keys, they cannot be derived
+     * from the application that changed, so an invalidation looks for the ones whose interest matches it.
+     */
+    private final ConcurrentMap<Key, RegistryInterest> interestKeys = new ConcurrentHashMap<Key, RegistryInterest>();
+
+    /**
+     * Keys of the read only cache that were invalidated since the last dirty key refresh. Only used when
+     * {@link EurekaServerConfig#shouldUseDirtyKeyResponseCacheRefresh()} is enabled.
+     */
+    private final Set<Key> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dirtyKeyRefreshScheduled = new AtomicBoolean(false);
+
     private final LoadingCache<Key, Value> readWriteCacheMap;
     private final boolean shouldUseReadOnlyResponseCache;
+    private final boolean shouldUseIncrementalAllAppsPayload;
+    private final boolean shouldUseDirtyKeyRefresh;
+    private final long dirtyKeyCoalescingWindowMs;
+    private final ConcurrentMap<Key, IncrementalApplicationsEncoder> incrementalEncoders =
+            new ConcurrentHashMap<Key, IncrementalApplicationsEncoder>();
     private final AbstractInstanceRegistry registry;
     private final EurekaServerConfig serverConfig;
     private final ServerCodecs serverCodecs;
@@ -116,6 +141,10 @@ public class ResponseCacheImpl implements ResponseCache {
         this.serverConfig = serverConfig;
         this.serverCodecs = serverCodecs;
         this.shouldUseReadOnlyResponseCache = serverConfig.shouldUseReadOnlyResponseCache();
+        this.shouldUseIncrementalAllAppsPayload = serverConfig.shouldUseIncrementalAllAppsPayload();
+        this.shouldUseDirtyKeyRefresh = shouldUseReadOnlyResponseCache
+                && serverConfig.shouldUseDirtyKeyResponseCacheRefresh();
+        this.dirtyKeyCoalescingWindowMs = Math.max(0, serverConfig.getResponseCacheDirtyKeyCoalescingWindowMs());
         this.registry = registry;
 
         long responseCacheUpdateIntervalMs = serverConfig.getResponseCacheUpdateIntervalMs();
@@ -130,6 +159,7 @@ public class ResponseCacheImpl implements ResponseCache {
                             @Override
                             public void onRemoval(RemovalNotification<Key, Value> notification) {
                                 Key removedKey = notification.getKey();
+                                interestKeys.remove(removedKey);
                                 if (removedKey.hasRegions()) {
                                     Key cloneWithNoRegions = removedKey.cloneWithoutRegions();
                                     regionSpecificKeys.remove(cloneWithNoRegions, removedKey);
@@ -145,6 +175,9 @@ public class ResponseCacheImpl implements ResponseCache {
                                     Key cloneWithNoRegions = key.cloneWithoutRegions();
                                     regionSpecificKeys.put(cloneWithNoRegions, key);
                                 }
+                                if (isInterestKey(key)) {
+                                    interestKeys.put(key, RegistryInterest.valueOf(key.getName()));
+                                }
                                 Value value = generatePayload(key);
                                 return value;
                             }
@@ -172,27 +205,72 @@ public class ResponseCacheImpl implements ResponseCache {
             public void run() {
                 logger.debug("Updating the client cache from response cache");
                 for (Key key : readOnlyCacheMap.keySet()) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Updating the client cache from response cache for key : {} {} {} {}",
-                                key.getEntityType(), key.getName(), key.getVersion(), key.getType());
+                    // 脏key模式下, 本地注册表的变更已经通过invalidate刷新过了, 这里只需要处理依赖远程region的key,
+                    // 以及会随着时间过期内容的增量key. interest key在readWriteCache过期之后就不会再被invalidate了, 也要刷新.
+                    if (shouldUseDirtyKeyRefresh && !key.hasRegions() && !ALL_APPS_DELTA.equals(key.getName())
+                            && !isInterestKey(key)) {
+                        continue;
                     }
-                    try {
-                        CurrentRequestVersion.set(key.getVersion());
-                        Value cacheValue = readWriteCacheMap.get(key);
-                        Value currentCacheValue = readOnlyCacheMap.get(key);
-                        if (cacheValue != currentCacheValue) {
-                            readOnlyCacheMap.put(key, cacheValue);
-                        }
-                    } catch (Throwable th) {
-                        logger.error("Error while updating the client cache from response cache for key {}", key.toStringCompact(), th);
-                    } finally {
-                        CurrentRequestVersion.remove();
+                    updateReadOnlyCacheValue(key);
+                }
+            }
+        };
+    }
+
+    // 只刷新被invalidate过的key
+    private TimerTask getDirtyKeyRefreshTask() {
+        return new TimerTask() {
+            @Override
+            public void run() {
+                // Reset before draining, so an invalidation arriving during the refresh schedules another one
+                dirtyKeyRefreshScheduled.set(false);
+                logger.debug("Refreshing the invalidated keys of the client cache from response cache");
+                Iterator<Key> it = dirtyKeys.iterator();
+                while (it.hasNext()) {
+                    Key key = it.next();
+                    it.remove();
+                    if (readOnlyCacheMap.containsKey(key)) {
+                        updateReadOnlyCacheValue(key);
                     }
                 }
             }
         };
     }
 
+    private void updateReadOnlyCacheValue(Key key) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updating the client cache from response cache for key : {} {} {} {}",
+                    key.getEntityType(), key.getName(), key.getVersion(), key.getType());
+        }
+        try {
+            CurrentRequestVersion.set(key.getVersion());
+            Value cacheValue = readWriteCacheMap.get(key);
+            Value currentCacheValue = readOnlyCacheMap.get(key);
+            if (cacheValue != currentCacheValue) {
+                readOnlyCacheMap.put(key, cacheValue);
+            }
+        } catch (Throwable th) {
+            logger.error("Error while updating the client cache from response cache for key {}", key.toStringCompact(), th);
+        } finally {
+            CurrentRequestVersion.remove();
+        }
+    }
+
+    private void markDirty(Key key) {
+        if (!readOnlyCacheMap.containsKey(key)) {
+            return;
+        }
+        dirtyKeys.add(key);
+        if (dirtyKeyRefreshScheduled.compareAndSet(false, true)) {
+            try {
+                timer.schedule(getDirtyKeyRefreshTask(), dirtyKeyCoalescingWindowMs);
+            } catch (IllegalStateException e) {
+                // The timer is cancelled once the cache is stopped
+                logger.debug("Cannot schedule the refresh of invalidated keys", e);
+            }
+        }
+    }
+
     /**
      * Get the cached information about applications.
      *
@@ -215,13 +293,29 @@ public class ResponseCacheImpl implements ResponseCache {
     String get(final Key key, boolean useReadOnlyCache) {
         // 1. 真正查询.
         Value payload = getValue(key, useReadOnlyCache);
-        if (payload == null || payload.getPayload().equals(EMPTY_PAYLOAD)) {
+        if (payload == null || payload.isEmpty()) {
             return null;
         } else {
             return payload.getPayload();
         }
     }
 
+    /**
+     * Get the cached information about applications as UTF-8 encoded bytes, ready to be written to the response
+     * without any further encoding.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @return UTF-8 encoded payload which contains information about the applications.
+     */
+    @Override
+    public byte[] getBytes(final Key key) {
+        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        return payload.getBytes();
+    }
+
     /**
      * Get the compressed information about the applications.
      *
@@ -239,6 +333,15 @@ public class ResponseCacheImpl implements ResponseCache {
         return payload.getGzipped();
     }
 
+    @Override
+    public String getChangePosition(Key key) {
+        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        if (payload == null) {
+            return null;
+        }
+        return payload.getChangePosition();
+    }
+
     @Override
     public void stop() {
         timer.cancel();
@@ -260,7 +363,8 @@ public class ResponseCacheImpl implements ResponseCache {
                         new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.full),
                         new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.compact),
                         new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.compact)
+                        new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.compact),
+                        new Key(Key.EntityType.Application, ALL_APPS_MANIFEST, type, v, EurekaAccept.full)
                 );
                 if (null != vipAddress) {
                     invalidate(new Key(Key.EntityType.VIP, vipAddress, type, v, EurekaAccept.full));
@@ -270,6 +374,15 @@ public class ResponseCacheImpl implements ResponseCache {
                 }
             }
         }
+        for (Map.Entry<Key, RegistryInterest> entry : interestKeys.entrySet()) {
+            if (entry.getValue().matches(appName, vipAddress, secureVipAddress)) {
+                invalidate(entry.getKey());
+            }
+        }
+    }
+
+    private static boolean isInterestKey(Key key) {
+        return key.getEntityType() == Key.EntityType.Interest || key.getEntityType() == Key.EntityType.InterestDelta;
     }
 
     /**
@@ -283,12 +396,18 @@ public class ResponseCacheImpl implements ResponseCache {
                     key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
 
             readWriteCacheMap.invalidate(key);
+            if (shouldUseDirtyKeyRefresh) {
+                markDirty(key);
+            }
             Collection<Key> keysWithRegions = regionSpecificKeys.get(key);
             if (null != keysWithRegions && !keysWithRegions.isEmpty()) {
                 for (Key keysWithRegion : keysWithRegions) {
                     logger.debug("Invalidating the response cache key : {} {} {} {} {}",
                             key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
                     readWriteCacheMap.invalidate(keysWithRegion);
+                    if (shouldUseDirtyKeyRefresh) {
+                        markDirty(keysWithRegion);
+                    }
                 }
             }
         }
@@ -365,6 +484,10 @@ public class ResponseCacheImpl implements ResponseCache {
                 } else {
                     payload = readWriteCacheMap.get(key);
                     readOnlyCacheMap.put(key, payload);
+                    if (shouldUseDirtyKeyRefresh && readWriteCacheMap.getIfPresent(key) != payload) {
+                        // Invalidated before it was visible in the read only cache, so it was not marked dirty
+                        markDirty(key);
+                    }
                 }
             } else {
                 payload = readWriteCacheMap.get(key);
@@ -393,6 +516,40 @@ public class ResponseCacheImpl implements ResponseCache {
         return result;
     }
 
+    /**
+     * Generate pay load for all applications, re-encoding only the applications that changed since the
+     * previous payload for the same key.
+     */
+    private String getIncrementalPayLoad(final Key key, Applications apps) {
+        IncrementalApplicationsEncoder incrementalEncoder = incrementalEncoders.computeIfAbsent(key,
+                k -> new IncrementalApplicationsEncoder(serverCodecs.getEncoder(k.getType(), k.getEurekaAccept())));
+        String result;
+        try {
+            result = incrementalEncoder.encode(apps);
+        } catch (Exception e) {
+            incrementalEncoder.clear();
+            logger.error("Failed to encode the payload for all apps", e);
+            return "";
+        }
+        if(logger.isDebugEnabled()) {
+            logger.debug("New application cache entry {} with apps hashcode {}", key.toStringCompact(), apps.getAppsHashCode());
+        }
+        return result;
+    }
+
+    /**
+     * Generate pay load for the manifest of all applications.
+     */
+    private String getPayLoad(Key key, ApplicationsManifest manifest) {
+        EncoderWrapper encoderWrapper = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
+        try {
+            return encoderWrapper.encode(manifest);
+        } catch (Exception e) {
+            logger.error("Failed to encode the payload for the manifest of all apps", e);
+            return "";
+        }
+    }
+
     /**
      * Generate pay load with both JSON and XML formats for a given application.
      */
@@ -419,6 +576,8 @@ public class ResponseCacheImpl implements ResponseCache {
         Stopwatch tracer = null;
         try {
             String payload;
+            // 本region的全量和delta: 生成之前取变更日志的位置, payload至少包含到这个位置的变更
+            String changePosition = null;
             switch (key.getEntityType()) {
                 case Application:
                     boolean isRemoteRegionRequested = key.hasRegions();
@@ -430,8 +589,13 @@ public class ResponseCacheImpl implements ResponseCache {
                             payload = getPayLoad(key, registry.getApplicationsFromMultipleRegions(key.getRegions()));
                         } else {
                             tracer = serializeAllAppsTimer.start();
+                            changePosition = registry.getChangePosition();
                             // 2. 这里是从registry中的applications拿出来生成Value, 最终放进缓存里.
-                            payload = getPayLoad(key, registry.getApplications());
+                            if (shouldUseIncrementalAllAppsPayload) {
+                                payload = getIncrementalPayLoad(key, registry.getApplications());
+                            } else {
+                                payload = getPayLoad(key, registry.getApplications());
+                            }
                         }
                     } else if (ALL_APPS_DELTA.equals(key.getName())) {
                         // 3. delta更新查询
@@ -444,10 +608,15 @@ public class ResponseCacheImpl implements ResponseCache {
                                     registry.getApplicationDeltasFromMultipleRegions(key.getRegions()));
                         } else {
                             tracer = serializeDeltaAppsTimer.start();
+                            changePosition = registry.getChangePosition();
                             versionDelta.incrementAndGet();
                             versionDeltaLegacy.incrementAndGet();
                             payload = getPayLoad(key, registry.getApplicationDeltas());
                         }
+                    } else if (ALL_APPS_MANIFEST.equals(key.getName())) {
+                        // 4. 每个application的hashCode, 给client对账用
+                        tracer = serializeManifestTimer.start();
+                        payload = getPayLoad(key, ApplicationsManifest.of(registry.getApplications()));
                     } else {
                         tracer = serializeOneApptimer.start();
                         payload = getPayLoad(key, registry.getApplication(key.getName()));
@@ -458,12 +627,23 @@ public class ResponseCacheImpl implements ResponseCache {
                     tracer = serializeViptimer.start();
                     payload = getPayLoad(key, getApplicationsForVip(key, registry));
                     break;
+                case Interest:
+                    tracer = serializeInterestTimer.start();
+                    payload = getPayLoad(key, registry.getApplicationsForInterest(RegistryInterest.valueOf(key.getName())));
+                    break;
+                case InterestDelta:
+                    tracer = serializeInterestTimer.start();
+                    versionDelta.incrementAndGet();
+                    versionDeltaLegacy.incrementAndGet();
+                    payload = getPayLoad(key,
+                            registry.getApplicationDeltasForInterest(RegistryInterest.valueOf(key.getName())));
+                    break;
                 default:
                     logger.error("Unidentified entity type: {} found in the cache key.", key.getEntityType());
                     payload = "";
                     break;
             }
-            return new Value(payload);
+            return new Value(payload, changePosition);
         } finally {
             if (tracer != null) {
                 tracer.stop();
@@ -475,35 +655,16 @@ public class ResponseCacheImpl implements ResponseCache {
         logger.debug(
                 "Retrieving applications from registry for key : {} {} {} {}",
                 key.getEntityType(), key.getName(), key.getVersion(), key.getType());
-        Applications toReturn = new Applications();
-        Applications applications = registry.getApplications();
-        for (Application application : applications.getRegisteredApplications()) {
-            Application appToAdd = null;
-            for (InstanceInfo instanceInfo : application.getInstances()) {
-                String vipAddress;
-                if (Key.EntityType.VIP.equals(key.getEntityType())) {
-                    vipAddress = instanceInfo.getVIPAddress();
-                } else if (Key.EntityType.SVIP.equals(key.getEntityType())) {
-                    vipAddress = instanceInfo.getSecureVipAddress();
-                } else {
-                    // should not happen, but just in case.
-                    continue;
-                }
-
-                if (null != vipAddress) {
-                    String[] vipAddresses = vipAddress.split(",");
-                    Arrays.sort(vipAddresses);
-                    if (Arrays.binarySearch(vipAddresses, key.getName()) >= 0) {
-                        if (null == appToAdd) {
-                            appToAdd = new Application(application.getName());
-                            toReturn.addApplication(appToAdd);
-                        }
-                        appToAdd.addInstance(instanceInfo);
-                    }
-                }
-            }
+        Applications toReturn;
+        if (Key.EntityType.VIP.equals(key.getEntityType())) {
+            toReturn = registry.getApplicationsForVip(key.getName(), false);
+        } else if (Key.EntityType.SVIP.equals(key.getEntityType())) {
+            toReturn = registry.getApplicationsForVip(key.getName(), true);
+        } else {
+            // should not happen, but just in case.
+            toReturn = new Applications();
+            toReturn.setAppsHashCode(toReturn.getReconcileHashCode());
         }
-        toReturn.setAppsHashCode(toReturn.getReconcileHashCode());
         logger.debug(
                 "Retrieved applications from registry for key : {} {} {} {}, reconcile hashcode: {}",
                 key.getEntityType(), key.getName(), key.getVersion(), key.getType(),
@@ -512,22 +673,28 @@ public class ResponseCacheImpl implements ResponseCache {
     }
 
     /**
-     * The class that stores payload in both compressed and uncompressed form.
+     * The class that stores payload in both compressed and uncompressed form. Both forms are kept as UTF-8 encoded
+     * bytes, so they can be written to the response as is.
      *
      */
     public class Value {
-        private final String payload;
+        private final byte[] payload;
         private byte[] gzipped;
+        private final String changePosition;
 
         public Value(String payload) {
-            this.payload = payload;
+            this(payload, null);
+        }
+
+        public Value(String payload, @Nullable String changePosition) {
+            this.changePosition = changePosition;
+            this.payload = payload.getBytes(StandardCharsets.UTF_8);
             if (!EMPTY_PAYLOAD.equals(payload)) {
                 Stopwatch tracer = compressPayloadTimer.start();
                 try {
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream(this.payload.length / 4 + 64);
                     GZIPOutputStream out = new GZIPOutputStream(bos);
-                    byte[] rawBytes = payload.getBytes();
-                    out.write(rawBytes);
+                    out.write(this.payload);
                     // Finish creation of gzip file
                     out.finish();
                     out.close();
@@ -546,13 +713,25 @@ public class ResponseCacheImpl implements ResponseCache {
         }
 
         public String getPayload() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        public byte[] getBytes() {
             return payload;
         }
 
+        public boolean isEmpty() {
+            return payload.length == 0;
+        }
+
         public byte[] getGzipped() {
             return gzipped;
         }
 
+        public String getChangePosition() {
+            return changePosition;
+        }
+
     }
 
 }
@@ -0,0 +1,100 @@
+package com.netflix.eureka.registry;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+
+/**
+ * Index of the local region applications by VIP address, or secure VIP address, kept up to date as the application
+ * snapshots are published. For each address it holds, per application, the instances having that address among
+ * their comma separated addresses, so a VIP query reads them as is instead of scanning the whole registry.
+ *
+ * <p>
+ * The updates of an application must be serialized, which they are as the snapshots are published under the
+ * application lock. The updates of different applications and the reads are concurrent.
+ * </p>
+ */
+class VipIndex {
+
+    private final boolean secure;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Application>> applicationsByVip =
+            new ConcurrentHashMap<String, ConcurrentHashMap<String, Application>>();
+    private final ConcurrentHashMap<String, Set<String>> vipsByApplication = new ConcurrentHashMap<String, Set<String>>();
+
+    VipIndex(boolean secure) {
+        this.secure = secure;
+    }
+
+    /**
+     * Re-indexes an application after its snapshot was published.
+     *
+     * @param snapshot the published snapshot, or null if the application has no instances anymore.
+     */
+    void update(String appName, @Nullable Application snapshot) {
+        Map<String, Application> byVip = new HashMap<String, Application>();
+        if (snapshot != null) {
+            for (InstanceInfo instanceInfo : snapshot.getInstances()) {
+                String vipAddresses = secure ? instanceInfo.getSecureVipAddress() : instanceInfo.getVIPAddress();
+                if (vipAddresses == null) {
+                    continue;
+                }
+                for (String vipAddress : vipAddresses.split(",")) {
+                    Application app = byVip.get(vipAddress);
+                    if (app == null) {
+                        app = new Application(snapshot.getName());
+                        byVip.put(vipAddress, app);
+                    }
+                    app.addInstance(instanceInfo);
+                }
+            }
+        }
+
+        Set<String> previousVips = byVip.isEmpty()
+                ? vipsByApplication.remove(appName)
+                : vipsByApplication.put(appName, Collections.unmodifiableSet(byVip.keySet()));
+        if (previousVips != null) {
+            for (String vipAddress : previousVips) {
+                if (!byVip.containsKey(vipAddress)) {
+                    applicationsByVip.computeIfPresent(vipAddress, (vip, apps) -> {
+                        apps.remove(appName);
+                        return apps.isEmpty() ? null : apps;
+                    });
+                }
+            }
+        }
+        for (final Map.Entry<String, Application> entry : byVip.entrySet()) {
+            applicationsByVip.compute(entry.getKey(), (vip, apps) -> {
+                if (apps == null) {
+                    apps = new ConcurrentHashMap<String, Application>();
+                }
+                apps.put(appName, entry.getValue());
+                return apps;
+            });
+        }
+    }
+
+    /**
+     * @return the applications having instances with the given address, holding only those instances.
+     */
+    Collection<Application> getApplications(String vipAddress) {
+        Map<String, Application> apps = applicationsByVip.get(vipAddress);
+        return apps == null ? Collections.<Application>emptyList() : apps.values();
+    }
+
+    int size() {
+        return applicationsByVip.size();
+    }
+
+    void clear() {
+        applicationsByVip.clear();
+        vipsByApplication.clear();
+    }
+}
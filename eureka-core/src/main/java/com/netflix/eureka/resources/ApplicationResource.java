@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import java.util.Locale;
 
 /**
  * A <em>jersey</em> resource that handles request related to a particular
@@ -51,7 +52,7 @@ public class ApplicationResource {
     ApplicationResource(String appName,
                         EurekaServerConfig serverConfig,
                         PeerAwareInstanceRegistry registry) {
-        this.appName = appName.toUpperCase();
+        this.appName = appName.toUpperCase(Locale.ROOT);
         this.serverConfig = serverConfig;
         this.registry = registry;
         this.responseCache = registry.getResponseCache();
@@ -96,7 +97,7 @@ public class ApplicationResource {
                 EurekaAccept.fromString(eurekaAccept)
         );
 
-        String payLoad = responseCache.get(cacheKey);
+        byte[] payLoad = responseCache.getBytes(cacheKey);
         CurrentRequestVersion.remove();
 
         if (payLoad != null) {
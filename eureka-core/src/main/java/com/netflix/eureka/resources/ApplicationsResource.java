@@ -17,6 +17,8 @@
 package com.netflix.eureka.resources;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
@@ -24,6 +26,8 @@ import com.netflix.eureka.Version;
 import com.netflix.eureka.registry.*;
 import com.netflix.eureka.registry.Key.KeyType;
 import com.netflix.eureka.util.EurekaMonitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -33,6 +37,8 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 /**
@@ -45,22 +51,27 @@ import java.util.Arrays;
 @Path("/{version}/apps")
 @Produces({"application/xml", "application/json"})
 public class ApplicationsResource {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationsResource.class);
+
     private static final String HEADER_ACCEPT = "Accept";
     private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
     private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
     private static final String HEADER_GZIP_VALUE = "gzip";
     private static final String HEADER_JSON_VALUE = "json";
+    static final String HEADER_CHANGE_POSITION = "X-Eureka-Change-Position";
 
     private final EurekaServerConfig serverConfig;
     private final PeerAwareInstanceRegistry registry;
     private final ResponseCache responseCache;
+    private final ServerCodecs serverCodecs;
 
     @Inject
     ApplicationsResource(EurekaServerContext eurekaServer) {
         this.serverConfig = eurekaServer.getServerConfig();
         this.registry = eurekaServer.getRegistry();
         this.responseCache = registry.getResponseCache();
+        this.serverCodecs = eurekaServer.getServerCodecs();
     }
 
     public ApplicationsResource() {
@@ -144,15 +155,19 @@ public class ApplicationsResource {
                 keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
         );
 
+        // Read before the payload, so it is never ahead of it
+        String changePosition = isRemoteRegionRequested ? null : responseCache.getChangePosition(cacheKey);
         Response response;
         if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
             response = Response.ok(responseCache.getGZIP(cacheKey))
                     .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
                     .header(HEADER_CONTENT_TYPE, returnMediaType)
+                    .header(HEADER_CHANGE_POSITION, changePosition)
                     .build();
         } else {
             // 从缓存里取
-            response = Response.ok(responseCache.get(cacheKey))
+            response = Response.ok(responseCache.getBytes(cacheKey))
+                    .header(HEADER_CHANGE_POSITION, changePosition)
                     .build();
         }
         CurrentRequestVersion.remove();
@@ -228,18 +243,252 @@ public class ApplicationsResource {
                 keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
         );
 
+        // Read before the payload, so it is never ahead of it
+        String changePosition = isRemoteRegionRequested ? null : responseCache.getChangePosition(cacheKey);
         final Response response;
 
         if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
              response = Response.ok(responseCache.getGZIP(cacheKey))
                     .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
                     .header(HEADER_CONTENT_TYPE, returnMediaType)
+                    .header(HEADER_CHANGE_POSITION, changePosition)
                     .build();
         } else {
-            response = Response.ok(responseCache.get(cacheKey)).build();
+            response = Response.ok(responseCache.getBytes(cacheKey))
+                    .header(HEADER_CHANGE_POSITION, changePosition)
+                    .build();
+        }
+
+        CurrentRequestVersion.remove();
+        return response;
+    }
+
+    /**
+     * Get the reconcile hash code of each application of the registry, as returned by {@link #getContainers} without
+     * remote regions. A client whose registry does not have the hash code of the last delta compares it with its own
+     * applications and fetches only the ones that diverged, instead of the whole registry.
+     *
+     * @param version the version of the request.
+     * @param acceptEncoding the accept header to indicate whether to serve compressed or uncompressed data.
+     * @return the {@link com.netflix.discovery.shared.ApplicationsManifest}, always as JSON.
+     *
+     * 对账用: 每个application的hashCode, client只需要重新拉取不一致的application.
+     */
+    @Path("manifest")
+    @GET
+    public Response getContainerManifest(@PathParam("version") String version,
+                                         @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding) {
+        if (!registry.shouldAllowAccess(false)) {
+            return Response.status(Status.FORBIDDEN).build();
+        }
+        EurekaMonitors.GET_ALL_MANIFEST.increment();
+
+        CurrentRequestVersion.set(Version.toEnum(version));
+        Key cacheKey = new Key(Key.EntityType.Application,
+                ResponseCacheImpl.ALL_APPS_MANIFEST,
+                Key.KeyType.JSON, CurrentRequestVersion.get(), EurekaAccept.full
+        );
+
+        Response response;
+        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
+            response = Response.ok(responseCache.getGZIP(cacheKey))
+                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
+                    .header(HEADER_CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                    .build();
+        } else {
+            response = Response.ok(responseCache.getBytes(cacheKey))
+                    .header(HEADER_CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                    .build();
+        }
+        CurrentRequestVersion.remove();
+        return response;
+    }
+
+    /**
+     * Get the instances of the local region registry a client is interested in, see
+     * {@link AbstractInstanceRegistry#getApplicationsForInterest(RegistryInterest)}.
+     *
+     * @param version the version of the request.
+     * @param acceptHeader the accept header to indicate whether to serve JSON or XML data.
+     * @param acceptEncoding the accept header to indicate whether to serve compressed or uncompressed data.
+     * @param eurekaAccept an eureka accept extension, see {@link com.netflix.appinfo.EurekaAccept}
+     * @param appNames comma separated names of the applications the client is interested in.
+     * @param vipAddresses comma separated VIP addresses the client is interested in.
+     * @return the instances of interest, or 400 if the interest is empty.
+     *
+     * 只查询client关心的application和VIP
+     */
+    @Path("interest")
+    @GET
+    public Response getInterestContainers(@PathParam("version") String version,
+                                          @HeaderParam(HEADER_ACCEPT) String acceptHeader,
+                                          @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
+                                          @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+                                          @Nullable @QueryParam("apps") String appNames,
+                                          @Nullable @QueryParam("vips") String vipAddresses) {
+        if (!registry.shouldAllowAccess(false)) {
+            return Response.status(Status.FORBIDDEN).build();
+        }
+        EurekaMonitors.GET_INTEREST.increment();
+        return getInterestResponse(Key.EntityType.Interest, version, acceptHeader, acceptEncoding, eurekaAccept,
+                appNames, vipAddresses);
+    }
+
+    /**
+     * Get the recent changes to the instances of the local region registry a client is interested in, see
+     * {@link #getContainerDifferential} and {@link #getInterestContainers}.
+     *
+     * @return the changes to the instances of interest, or 400 if the interest is empty.
+     */
+    @Path("interest/delta")
+    @GET
+    public Response getInterestContainerDifferential(@PathParam("version") String version,
+                                                     @HeaderParam(HEADER_ACCEPT) String acceptHeader,
+                                                     @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
+                                                     @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+                                                     @Nullable @QueryParam("apps") String appNames,
+                                                     @Nullable @QueryParam("vips") String vipAddresses) {
+        if (serverConfig.shouldDisableDelta() || !registry.shouldAllowAccess(false)) {
+            return Response.status(Status.FORBIDDEN).build();
+        }
+        EurekaMonitors.GET_INTEREST_DELTA.increment();
+        return getInterestResponse(Key.EntityType.InterestDelta, version, acceptHeader, acceptEncoding, eurekaAccept,
+                appNames, vipAddresses);
+    }
+
+    private Response getInterestResponse(Key.EntityType entityType, String version, String acceptHeader,
+                                         String acceptEncoding, String eurekaAccept,
+                                         @Nullable String appNames, @Nullable String vipAddresses) {
+        RegistryInterest interest = RegistryInterest.parse(appNames, vipAddresses);
+        if (interest == null) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        CurrentRequestVersion.set(Version.toEnum(version));
+        KeyType keyType = Key.KeyType.JSON;
+        String returnMediaType = MediaType.APPLICATION_JSON;
+        if (acceptHeader == null || !acceptHeader.contains(HEADER_JSON_VALUE)) {
+            keyType = Key.KeyType.XML;
+            returnMediaType = MediaType.APPLICATION_XML;
         }
 
+        // The same interest always has the same string form, so clients with the same interest share the cache entry
+        Key cacheKey = new Key(entityType, interest.toString(),
+                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept)
+        );
+
+        Response response;
+        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
+            response = Response.ok(responseCache.getGZIP(cacheKey))
+                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
+                    .header(HEADER_CONTENT_TYPE, returnMediaType)
+                    .build();
+        } else {
+            response = Response.ok(responseCache.getBytes(cacheKey)).build();
+        }
         CurrentRequestVersion.remove();
         return response;
     }
+
+    /**
+     * Waits for changes to the local region registry after the version a client has already seen, and returns only
+     * those changes.
+     *
+     * <p>
+     * The client passes the {@value #HEADER_CHANGE_POSITION} header of the last response it received from this
+     * endpoint, or of the registry or delta it fetched before without remote regions. The position names the change
+     * log of this server, so a position from another server or from before a restart is rejected. The request is
+     * held until a change is made after that position or the timeout elapses, so the client learns about changes as
+     * soon as they are made instead of at its next delta poll. Unlike {@link #getContainerDifferential}, the result
+     * is not cached, as it depends on the position of each client. Every response but the errors carries the
+     * position to pass next.
+     * </p>
+     *
+     * <p>
+     * Each waiting client holds a request thread, so the endpoint is disabled unless
+     * {@link EurekaServerConfig#getMaxDeltaWatches()} is set.
+     * </p>
+     *
+     * @param version the version of the request.
+     * @param acceptHeader the accept header to indicate whether to serve JSON or XML data.
+     * @param eurekaAccept an eureka accept extension, see {@link com.netflix.appinfo.EurekaAccept}
+     * @param since the change position of the registry the client already has.
+     * @param timeoutMs the maximum time to wait for changes, capped by
+     *                  {@link EurekaServerConfig#getDeltaWatchTimeoutMs()}.
+     * @return the changes made after {@code since}, 304 if nothing changed before the timeout, 400 if {@code since}
+     *         is missing or not a change position, 410 if it is not a position of this server or the changes after
+     *         it are no longer retained and the client must fetch the full registry, or 503 if too many clients are
+     *         already waiting and the client should poll the deltas instead.
+     *
+     * 长轮询: 有比since新的变更就马上返回, 否则等到超时.
+     */
+    @Path("delta/watch")
+    @GET
+    public Response watchContainerDifferential(
+            @PathParam("version") String version,
+            @HeaderParam(HEADER_ACCEPT) String acceptHeader,
+            @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+            @Nullable @QueryParam("since") String since,
+            @Nullable @QueryParam("timeoutMs") Long timeoutMs) {
+
+        if (serverConfig.shouldDisableDelta() || serverConfig.getMaxDeltaWatches() <= 0
+                || !registry.shouldAllowAccess(false)) {
+            return Response.status(Status.FORBIDDEN).build();
+        }
+        EurekaMonitors.GET_ALL_DELTA_WATCH.increment();
+
+        if (since == null || since.isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        long sinceSequence;
+        try {
+            sinceSequence = registry.getChangeSequence(since);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        // A position this server never had, e.g. from another server or before a restart
+        if (sinceSequence < 0 || sinceSequence > registry.getLastChangeSequence()) {
+            return Response.status(Status.GONE).build();
+        }
+
+        long maxTimeoutMs = serverConfig.getDeltaWatchTimeoutMs();
+        long lastSequence;
+        try {
+            lastSequence = registry.awaitChangesAfter(sinceSequence,
+                    timeoutMs == null ? maxTimeoutMs : Math.max(0, Math.min(timeoutMs, maxTimeoutMs)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Status.SERVICE_UNAVAILABLE).build();
+        }
+        if (lastSequence < 0) {
+            return Response.status(Status.SERVICE_UNAVAILABLE).build();
+        }
+        if (lastSequence == sinceSequence) {
+            return Response.status(Status.NOT_MODIFIED).header(HEADER_CHANGE_POSITION, since).build();
+        }
+        Applications deltas = registry.getApplicationDeltasSince(sinceSequence);
+        if (deltas == null) {
+            return Response.status(Status.GONE).build();
+        }
+
+        CurrentRequestVersion.set(Version.toEnum(version));
+        try {
+            KeyType keyType = Key.KeyType.JSON;
+            String returnMediaType = MediaType.APPLICATION_JSON;
+            if (acceptHeader == null || !acceptHeader.contains(HEADER_JSON_VALUE)) {
+                keyType = Key.KeyType.XML;
+                returnMediaType = MediaType.APPLICATION_XML;
+            }
+            String payload = serverCodecs.getEncoder(keyType, EurekaAccept.fromString(eurekaAccept)).encode(deltas);
+            return Response.ok(payload.getBytes(StandardCharsets.UTF_8))
+                    .header(HEADER_CONTENT_TYPE, returnMediaType)
+                    .header(HEADER_CHANGE_POSITION, registry.toChangePosition(deltas.getVersion()))
+                    .build();
+        } catch (IOException e) {
+            logger.error("Cannot encode the registry changes after {}", since, e);
+            return Response.serverError().build();
+        } finally {
+            CurrentRequestVersion.remove();
+        }
+    }
 }
@@ -17,9 +17,12 @@
 package com.netflix.eureka.resources;
 
 import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -27,6 +30,8 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContextHolder;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse.Builder;
@@ -67,8 +72,11 @@ public class PeerReplicationResource {
      * Process batched replication events from peer eureka nodes.
      *
      * <p>
-     *  The batched events are delegated to underlying resources to generate a
-     *  {@link ReplicationListResponse} containing the individual responses to the batched events
+     *  The batched events are delegated to underlying resources to generate a {@link ReplicationListResponse}
+     *  containing the individual responses to the batched events. If
+     *  {@link EurekaServerConfig#shouldBatchApplyPeerReplication()}, the registry holds the lock of each application
+     *  while its events are delegated, see
+     *  {@link PeerAwareInstanceRegistry#applyReplicationBatch(ReplicationList, java.util.function.Function)}.
      * </p>
      *
      * @param replicationList
@@ -79,14 +87,16 @@ public class PeerReplicationResource {
     @POST
     public Response batchReplication(ReplicationList replicationList) {
         try {
+            if (serverConfig.shouldBatchApplyPeerReplication()) {
+                return Response.ok(registry.applyReplicationBatch(replicationList, this::dispatchSafely)).build();
+            }
             ReplicationListResponse batchResponse = new ReplicationListResponse();
             for (ReplicationInstance instanceInfo : replicationList.getReplicationList()) {
-                try {
-                    batchResponse.addResponse(dispatch(instanceInfo));
-                } catch (Exception e) {
-                    batchResponse.addResponse(new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null));
-                    logger.error("{} request processing failed for batch item {}/{}",
-                            instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
+                batchResponse.addResponse(dispatchSafely(instanceInfo));
+            }
+            if (replicationList.getHeartbeatFrames() != null) {
+                for (HeartbeatFrame heartbeatFrame : replicationList.getHeartbeatFrames()) {
+                    registry.applyHeartbeatFrame(heartbeatFrame, batchResponse);
                 }
             }
             return Response.ok(batchResponse).build();
@@ -96,6 +106,43 @@ public class PeerReplicationResource {
         }
     }
 
+    /**
+     * Gets a part of the local registry for a peer eureka node that starts up, see
+     * {@link PeerAwareInstanceRegistry#getRegistryChunk(String, int)}. A node that has not copied the registry of
+     * its own peers yet replies with a 403, so that the requesting node copies it from another peer.
+     *
+     * @param afterAppName
+     *            the name of the last application of the previous chunk, none for the first chunk
+     * @param maxInstances
+     *            the number of instances after which no more applications are added to the chunk
+     * @return the {@link RegistryChunk}
+     */
+    @Path("registry")
+    @GET
+    public Response getRegistryChunk(@QueryParam("after") String afterAppName,
+                                     @QueryParam("maxInstances") @DefaultValue("1000") int maxInstances) {
+        try {
+            if (!registry.shouldAllowAccess(false)) {
+                return Response.status(Status.FORBIDDEN).build();
+            }
+            RegistryChunk chunk = registry.getRegistryChunk(afterAppName, Math.max(1, maxInstances));
+            return Response.ok(chunk).build();
+        } catch (Throwable e) {
+            logger.error("Cannot get the registry chunk after {}", afterAppName, e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private ReplicationInstanceResponse dispatchSafely(ReplicationInstance instanceInfo) {
+        try {
+            return dispatch(instanceInfo);
+        } catch (Exception e) {
+            logger.error("{} request processing failed for batch item {}/{}",
+                    instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
+            return new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null);
+        }
+    }
+
     private ReplicationInstanceResponse dispatch(ReplicationInstance instanceInfo) {
         ApplicationResource applicationResource = createApplicationResource(instanceInfo);
         InstanceResource resource = createInstanceResource(instanceInfo, applicationResource);
@@ -19,6 +19,7 @@ import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.DynamicGZIPContentEncodingFilter;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -127,6 +128,32 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         }
     }
 
+    @Override
+    public EurekaHttpResponse<RegistryChunk> getRegistryChunk(String afterAppName, int maxInstances) {
+        ClientResponse response = null;
+        try {
+            WebResource webResource = jerseyApacheClient.resource(serviceUrl)
+                    .path(PeerEurekaNode.REGISTRY_URL_PATH)
+                    .queryParam("maxInstances", Integer.toString(maxInstances));
+            if (afterAppName != null) {
+                webResource = webResource.queryParam("after", afterAppName);
+            }
+            response = webResource
+                    .header(PeerEurekaNode.HEADER_REPLICATION, "true")
+                    .accept(MediaType.APPLICATION_JSON_TYPE)
+                    .get(ClientResponse.class);
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), RegistryChunk.class).build();
+            }
+            RegistryChunk chunk = response.getEntity(RegistryChunk.class);
+            return anEurekaHttpResponse(response.getStatus(), chunk).type(MediaType.APPLICATION_JSON_TYPE).build();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     public void addReplicationClientFilter(ClientFilter clientFilter) {
         jerseyApacheClient.addFilter(clientFilter);
     }
@@ -50,6 +50,10 @@ public enum EurekaMonitors {
     GET_ALL_WITH_REMOTE_REGIONS_CACHE_MISS_DELTA("getAllWithRemoteRegionCacheMissDeltaCounter",
             "Number of total registry queries for delta with remote region seen since startup"),
     GET_ALL_DELTA("getAllDeltaCounter", "Number of total deltas since startup"),
+    GET_ALL_DELTA_WATCH("getAllDeltaWatchCounter", "Number of total delta watches since startup"),
+    GET_INTEREST("getInterestCounter", "Number of total registry queries limited to an interest since startup"),
+    GET_INTEREST_DELTA("getInterestDeltaCounter", "Number of total deltas limited to an interest since startup"),
+    GET_ALL_MANIFEST("getAllManifestCounter", "Number of total application manifests since startup"),
     GET_ALL_DELTA_WITH_REMOTE_REGIONS("getAllDeltaWithRemoteRegionCounter",
             "Number of total deltas with remote regions since startup"),
     GET_ALL("getAllCounter", "Number of total registry queries seen since startup"),
@@ -14,6 +14,8 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
 
@@ -31,6 +33,15 @@ import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
  * task(s) back to the {@link AcceptorExecutor}. This data will be merged with current workload, possibly discarded if
  * a newer version has been already received.
  *
+ * <h3>Dispatching</h3>
+ * The internal thread does not poll. It parks until there is input to take in, a worker requesting work, or the
+ * point in time at which pending work becomes dispatchable: the end of a traffic shaper delay, or the batching
+ * delay of the oldest pending task. A batch is dispatched as soon as it is full or its batching delay elapsed.
+ *
+ * <h3>Batch window</h3>
+ * The size of the batches, and the number of batches processed at the same time, are bounded by a
+ * {@link BatchWindow}. Workers report the outcome of each batch, and an adaptive window grows or shrinks from it.
+ *
  * @author Tomasz Bak
  */
 class AcceptorExecutor<ID, T> {
@@ -39,7 +50,6 @@ class AcceptorExecutor<ID, T> {
 
     private final String id;
     private final int maxBufferSize;
-    private final int maxBatchingSize;
     private final long maxBatchingDelay;
 
     private final AtomicBoolean isShutdown = new AtomicBoolean(false);
@@ -48,8 +58,8 @@ class AcceptorExecutor<ID, T> {
     private final BlockingDeque<TaskHolder<ID, T>> reprocessQueue = new LinkedBlockingDeque<>();
     private final Thread acceptorThread;
 
-    private final Map<ID, TaskHolder<ID, T>> pendingTasks = new HashMap<>();
-    private final Deque<ID> processingOrder = new LinkedList<>();
+    // Pending tasks by id, in processing order
+    private final PendingTaskIndex<ID, T> pendingTasks;
 
     private final Semaphore singleItemWorkRequests = new Semaphore(0);
     private final BlockingQueue<TaskHolder<ID, T>> singleItemWorkQueue = new LinkedBlockingQueue<>();
@@ -59,6 +69,12 @@ class AcceptorExecutor<ID, T> {
 
     private final TrafficShaper trafficShaper;
 
+    private final BatchWindow batchWindow;
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+
+    // Set by the acceptor thread while it is about to park, producers only unpark it when they see it set
+    private volatile boolean acceptorWaiting;
+
     /*
      * Metrics
      */
@@ -86,10 +102,20 @@ class AcceptorExecutor<ID, T> {
                      long maxBatchingDelay,
                      long congestionRetryDelayMs,
                      long networkFailureRetryMs) {
+        this(id, maxBufferSize, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs, BatchWindow.fixed(maxBatchingSize));
+    }
+
+    AcceptorExecutor(String id,
+                     int maxBufferSize,
+                     long maxBatchingDelay,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs,
+                     BatchWindow batchWindow) {
         this.id = id;
         this.maxBufferSize = maxBufferSize;
-        this.maxBatchingSize = maxBatchingSize;
         this.maxBatchingDelay = maxBatchingDelay;
+        this.batchWindow = batchWindow;
+        this.pendingTasks = new PendingTaskIndex<>(maxBufferSize);
         // 任务分发
         this.trafficShaper = new TrafficShaper(congestionRetryDelayMs, networkFailureRetryMs);
 
@@ -117,30 +143,47 @@ class AcceptorExecutor<ID, T> {
     void process(ID id, T task, long expiryTime) {
         acceptorQueue.add(new TaskHolder<ID, T>(id, task, expiryTime));
         acceptedTasks++;
+        wakeUpAcceptor();
     }
 
     void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult) {
         reprocessQueue.addAll(holders);
         replayedTasks += holders.size();
         trafficShaper.registerFailure(processingResult);
+        wakeUpAcceptor();
     }
 
     void reprocess(TaskHolder<ID, T> taskHolder, ProcessingResult processingResult) {
         reprocessQueue.add(taskHolder);
         replayedTasks++;
         trafficShaper.registerFailure(processingResult);
+        wakeUpAcceptor();
     }
 
     BlockingQueue<TaskHolder<ID, T>> requestWorkItem() {
         singleItemWorkRequests.release();
+        wakeUpAcceptor();
         return singleItemWorkQueue;
     }
 
     BlockingQueue<List<TaskHolder<ID, T>>> requestWorkItems() {
         batchWorkRequests.release();
+        wakeUpAcceptor();
         return batchWorkQueue;
     }
 
+    /**
+     * Called by a worker once it processed a batch obtained from {@link #requestWorkItems()}.
+     */
+    void batchCompleted(int size, long startTime, long endTime, ProcessingResult processingResult) {
+        try {
+            batchWindow.batchCompleted(size, startTime, endTime, processingResult);
+        } finally {
+            inFlightBatches.decrementAndGet();
+            wakeUpAcceptor();
+        }
+    }
+
     void shutdown() {
         if (isShutdown.compareAndSet(false, true)) {
             Monitors.unregisterObject(id, this);
@@ -148,6 +191,12 @@ class AcceptorExecutor<ID, T> {
         }
     }
 
+    private void wakeUpAcceptor() {
+        if (acceptorWaiting) {
+            LockSupport.unpark(acceptorThread);
+        }
+    }
+
     @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptorQueueSize", description = "Number of tasks waiting in the acceptor queue", type = DataSourceType.GAUGE)
     public long getAcceptorQueueSize() {
         return acceptorQueue.size();
@@ -163,6 +212,21 @@ class AcceptorExecutor<ID, T> {
         return pendingTasks.size();
     }
 
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchWindowSize", description = "Current maximum number of tasks in a batch", type = DataSourceType.GAUGE)
+    public long getBatchWindowSize() {
+        return batchWindow.getBatchSize();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchWindowConcurrency", description = "Current maximum number of batches in flight", type = DataSourceType.GAUGE)
+    public long getBatchWindowConcurrency() {
+        return batchWindow.getConcurrency();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "inFlightBatches", description = "Number of batches being processed by the workers", type = DataSourceType.GAUGE)
+    public long getInFlightBatches() {
+        return inFlightBatches.get();
+    }
+
     @Monitor(name = METRIC_REPLICATION_PREFIX + "pendingJobRequests", description = "Number of worker threads awaiting job assignment", type = DataSourceType.GAUGE)
     public long getPendingJobRequests() {
         return singleItemWorkRequests.availablePermits() + batchWorkRequests.availablePermits();
@@ -176,6 +240,7 @@ class AcceptorExecutor<ID, T> {
     // 本质就是
     // 1. 把requestQueue和acceptorQueue的任务放到processingOrder队列里
     // 2. 检查processingOrder里面是否满足制作批次, 如果批次到了, 把processingOrder的任务制作一个批次放到batchWorkQueue队列里
+    // 3. 没有事情可做就park, 直到有新任务/worker来要任务/下一个批次到期
     class AcceptorRunner implements Runnable {
         @Override
         public void run() {
@@ -185,29 +250,21 @@ class AcceptorExecutor<ID, T> {
                     // 1. 把 ReprocessQueue&acceptorQueue的任务都放进processingOrder里, 把任务放进Pending map里.
                     drainInputQueues();
 
-                    int totalItems = processingOrder.size();
-
                     long now = System.currentTimeMillis();
-                    if (scheduleTime < now) {
+                    if (scheduleTime <= now) {
                         scheduleTime = now + trafficShaper.transmissionDelay();
                     }
 
                     // 2. 到了规定时间, 就开始
                     if (scheduleTime <= now) {
-                        // 2.1 如果批次够了(有任务到期/processingQueue满了), 就把processingQueue的都放到batchWorkQueue里面
+                        // 2.1 如果批次够了(批次满了/有任务到期/processingQueue满了), 就把processingQueue的放到batchWorkQueue里面
                         assignBatchWork();
                         // 2.2 把processingQueue的过期任务放到singleItemWorkQueue里
                         assignSingleItemWork();
                     }
 
-                    // 3. 如果没有变化就睡一会.
-                    // If no worker is requesting data or there is a delay injected by the traffic shaper,
-                    // sleep for some time to avoid tight loop.
-                    if (totalItems == processingOrder.size()) {
-                        Thread.sleep(10);
-                    }
-                } catch (InterruptedException ex) {
-                    // Ignore
+                    // 3. 等到有事可做
+                    awaitWork(scheduleTime);
                 } catch (Throwable e) {
                     // Safe-guard, so we never exit this loop in an uncontrolled way.
                     logger.warn("Discovery AcceptorThread error", e);
@@ -215,30 +272,63 @@ class AcceptorExecutor<ID, T> {
             }
         }
 
-        private boolean isFull() {
-            return pendingTasks.size() >= maxBufferSize;
+        /**
+         * Parks the acceptor thread until there is something to do. Producers and workers unpark it when
+         * {@link #acceptorWaiting} is set, and it is set before the wake-up time is computed, so that a change
+         * made concurrently is either seen here or followed by an unpark.
+         */
+        private void awaitWork(long scheduleTime) {
+            acceptorWaiting = true;
+            try {
+                long wakeUpTime = nextWakeUpTime(scheduleTime);
+                if (wakeUpTime == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else {
+                    long delay = wakeUpTime - System.currentTimeMillis();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delay));
+                    }
+                }
+            } finally {
+                acceptorWaiting = false;
+            }
         }
 
-        private void drainInputQueues() throws InterruptedException {
-            do {
-                // 1. ReprocessQueue的 把任务归到pending map里, 然后添加到processOrder里
-                drainReprocessQueue();
-                // 2. acceptorQueue的 task放到processingOrder里, 标记任务到pending Map里
-                drainAcceptorQueue();
+        /**
+         * @return the time at which pending work becomes dispatchable, a time in the past if there is work to do
+         * now, or {@link Long#MAX_VALUE} if nothing can happen until there is new input or a worker requests work.
+         */
+        private long nextWakeUpTime(long scheduleTime) {
+            if (isShutdown.get() || !acceptorQueue.isEmpty() || !reprocessQueue.isEmpty()) {
+                return 0;
+            }
+            if (pendingTasks.isEmpty()) {
+                return Long.MAX_VALUE;
+            }
+            boolean singleItemRequested = singleItemWorkRequests.availablePermits() > 0;
+            boolean batchRequested = batchWorkRequests.availablePermits() > 0 && canDispatchBatch();
+            if (!singleItemRequested && !batchRequested) {
+                return Long.MAX_VALUE;
+            }
+            long now = System.currentTimeMillis();
+            if (scheduleTime > now) {
+                return scheduleTime;
+            }
+            if (singleItemRequested || hasEnoughTasksForNextBatch()) {
+                return now;
+            }
+            return pendingTasks.peekFirst().getSubmitTimestamp() + maxBatchingDelay;
+        }
 
-                if (isShutdown.get()) {
-                    break;
-                }
+        private boolean isFull() {
+            return pendingTasks.isFull();
+        }
 
-                // 3. 如果两个input Queue 都空了, 就等一等
-                // If all queues are empty, block for a while on the acceptor queue
-                if (reprocessQueue.isEmpty() && acceptorQueue.isEmpty() && pendingTasks.isEmpty()) {
-                    TaskHolder<ID, T> taskHolder = acceptorQueue.poll(10, TimeUnit.MILLISECONDS);
-                    if (taskHolder != null) {
-                        appendTaskHolder(taskHolder);
-                    }
-                }
-            } while (!reprocessQueue.isEmpty() || !acceptorQueue.isEmpty() || pendingTasks.isEmpty());
+        private void drainInputQueues() {
+            // 1. ReprocessQueue的 把任务归到pending map里, 然后添加到processOrder里
+            drainReprocessQueue();
+            // 2. acceptorQueue的 task放到processingOrder里, 标记任务到pending Map里
+            drainAcceptorQueue();
         }
 
         private void drainAcceptorQueue() {
@@ -255,17 +345,12 @@ class AcceptorExecutor<ID, T> {
             while (!reprocessQueue.isEmpty() && !isFull()) {
                 // 1. 拿到task
                 TaskHolder<ID, T> taskHolder = reprocessQueue.pollLast();
-                ID id = taskHolder.getId();
                 if (taskHolder.getExpiryTime() <= now) {
                     // 2. 过期直接计数
                     expiredTasks++;
-                } else if (pendingTasks.containsKey(id)) {
-                    // 3. 如果任务正在pending, 就放弃.
+                } else if (!pendingTasks.addFirst(taskHolder)) {
+                    // 3. 如果任务正在pending, 就放弃. 否则已经添加到pending的最前面
                     overriddenTasks++;
-                } else {
-                    // 4. 添加到pending-开始执行了, 然后添加到processOrder里
-                    pendingTasks.put(id, taskHolder);
-                    processingOrder.addFirst(id);
                 }
             }
             if (isFull()) {
@@ -276,26 +361,23 @@ class AcceptorExecutor<ID, T> {
 
         private void appendTaskHolder(TaskHolder<ID, T> taskHolder) {
             if (isFull()) {
-                pendingTasks.remove(processingOrder.poll());
+                pendingTasks.pollFirst();
                 queueOverflows++;
             }
-            // 把task放到pending Map里. 放到processingOrder里.
-            TaskHolder<ID, T> previousTask = pendingTasks.put(taskHolder.getId(), taskHolder);
-            if (previousTask == null) {
-                processingOrder.add(taskHolder.getId());
-            } else {
+            // 把task放到pending里: 同id的任务原地替换, 否则排到最后.
+            TaskHolder<ID, T> previousTask = pendingTasks.put(taskHolder);
+            if (previousTask != null) {
                 overriddenTasks++;
             }
         }
 
         // 把processingQueue的过期任务放到singleItemWorkQueue里
         void assignSingleItemWork() {
-            if (!processingOrder.isEmpty()) {
+            if (!pendingTasks.isEmpty()) {
                 if (singleItemWorkRequests.tryAcquire(1)) {
                     long now = System.currentTimeMillis();
-                    while (!processingOrder.isEmpty()) {
-                        ID id = processingOrder.poll();
-                        TaskHolder<ID, T> holder = pendingTasks.remove(id);
+                    while (!pendingTasks.isEmpty()) {
+                        TaskHolder<ID, T> holder = pendingTasks.pollFirst();
                         if (holder.getExpiryTime() > now) {
                             singleItemWorkQueue.add(holder);
                             return;
@@ -309,16 +391,15 @@ class AcceptorExecutor<ID, T> {
 
         // 如果批次够了(有任务到期/processingQueue满了), 就把processingQueue的都放到batchWorkQueue里面
         void assignBatchWork() {
-            // 如果processingOrder有任务到期了或者满了, 就开始
-            if (hasEnoughTasksForNextBatch()) {
+            // 如果processingOrder够一个批次了, 有任务到期了或者满了, 就开始
+            if (hasEnoughTasksForNextBatch() && canDispatchBatch()) {
                 if (batchWorkRequests.tryAcquire(1)) {
                     long now = System.currentTimeMillis();
-                    int len = Math.min(maxBatchingSize, processingOrder.size());
+                    int len = Math.min(batchWindow.getBatchSize(), pendingTasks.size());
                     List<TaskHolder<ID, T>> holders = new ArrayList<>(len);
                     // 如果没有处理完, 而且processingQueue里面还有, 就把任务都倒到holders里
-                    while (holders.size() < len && !processingOrder.isEmpty()) {
-                        ID id = processingOrder.poll();
-                        TaskHolder<ID, T> holder = pendingTasks.remove(id);
+                    while (holders.size() < len && !pendingTasks.isEmpty()) {
+                        TaskHolder<ID, T> holder = pendingTasks.pollFirst();
                         if (holder.getExpiryTime() > now) {
                             holders.add(holder);
                         } else {
@@ -329,6 +410,7 @@ class AcceptorExecutor<ID, T> {
                         batchWorkRequests.release();
                     } else {
                         batchSizeMetric.record(holders.size(), TimeUnit.MILLISECONDS);
+                        inFlightBatches.incrementAndGet();
                         // 把holders放进batchWorkQueue
                         batchWorkQueue.add(holders);
                     }
@@ -337,16 +419,19 @@ class AcceptorExecutor<ID, T> {
         }
 
         private boolean hasEnoughTasksForNextBatch() {
-            if (processingOrder.isEmpty()) {
+            if (pendingTasks.isEmpty()) {
                 return false;
             }
-            if (pendingTasks.size() >= maxBufferSize) {
+            if (pendingTasks.isFull() || pendingTasks.size() >= batchWindow.getBatchSize()) {
                 return true;
             }
 
-            TaskHolder<ID, T> nextHolder = pendingTasks.get(processingOrder.peek());
-            long delay = System.currentTimeMillis() - nextHolder.getSubmitTimestamp();
+            long delay = System.currentTimeMillis() - pendingTasks.peekFirst().getSubmitTimestamp();
             return delay >= maxBatchingDelay;
         }
+
+        private boolean canDispatchBatch() {
+            return inFlightBatches.get() < batchWindow.getConcurrency();
+        }
     }
 }
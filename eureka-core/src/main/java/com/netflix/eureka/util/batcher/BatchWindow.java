@@ -0,0 +1,101 @@
+package com.netflix.eureka.util.batcher;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+
+/**
+ * The size of the batches dispatched by an {@link AcceptorExecutor}, and the number of batches that may be
+ * processed at the same time, adjusted in an additive increase/multiplicative decrease manner from the outcome
+ * of each processed batch:
+ * <ul>
+ *     <li>a {@code Congestion} result halves both the batch size and the concurrency</li>
+ *     <li>a {@code Success} slower than the target latency shrinks the batch size by a quarter</li>
+ *     <li>a {@code Success} within the target latency of a full batch grows the batch size by the minimum batch
+ *     size, and the concurrency by one once a full round of {@code concurrency} batches succeeded</li>
+ * </ul>
+ * Other results leave the window unchanged, the {@link TrafficShaper} already delays the processing after them.
+ *
+ * <p>
+ * The batches in flight when the window shrinks were dispatched with the previous window, so their outcome is
+ * ignored. A burst of congestion errors therefore halves the window once, not once per batch.
+ * </p>
+ *
+ * <p>
+ * A window created with {@link #fixed(int)} never changes, and does not limit the concurrency.
+ * </p>
+ */
+class BatchWindow {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int maxConcurrency;
+    private final long targetLatencyMs;
+    private final boolean adaptive;
+
+    private volatile int batchSize;
+    private volatile int concurrency;
+
+    // Guarded by this
+    private int fullBatchesSinceConcurrencyIncrease;
+    private long lastDecreaseTime;
+
+    BatchWindow(int minBatchSize, int initialBatchSize, int maxBatchSize, int maxConcurrency, long targetLatencyMs) {
+        this(minBatchSize, initialBatchSize, maxBatchSize, maxConcurrency, targetLatencyMs, true);
+    }
+
+    private BatchWindow(int minBatchSize, int initialBatchSize, int maxBatchSize, int maxConcurrency,
+                        long targetLatencyMs, boolean adaptive) {
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.targetLatencyMs = targetLatencyMs;
+        this.batchSize = Math.min(this.maxBatchSize, Math.max(this.minBatchSize, initialBatchSize));
+        this.concurrency = this.maxConcurrency;
+        this.adaptive = adaptive;
+    }
+
+    static BatchWindow fixed(int batchSize) {
+        return new BatchWindow(batchSize, batchSize, batchSize, Integer.MAX_VALUE, Long.MAX_VALUE, false);
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @param size number of tasks in the batch
+     * @param startTime time at which the batch processing started
+     * @param endTime time at which the batch processing finished
+     * @param result outcome of the batch processing
+     */
+    synchronized void batchCompleted(int size, long startTime, long endTime, ProcessingResult result) {
+        if (!adaptive || startTime < lastDecreaseTime) {
+            return;
+        }
+        if (result == ProcessingResult.Congestion) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+            concurrency = Math.max(1, concurrency / 2);
+            shrunk(endTime);
+        } else if (result == ProcessingResult.Success) {
+            if (endTime - startTime > targetLatencyMs) {
+                batchSize = Math.max(minBatchSize, batchSize * 3 / 4);
+                shrunk(endTime);
+            } else if (size >= batchSize) {
+                // Grow only on demand, a partial batch means the window is already large enough
+                batchSize = Math.min(maxBatchSize, batchSize + minBatchSize);
+                if (++fullBatchesSinceConcurrencyIncrease >= concurrency) {
+                    concurrency = Math.min(maxConcurrency, concurrency + 1);
+                    fullBatchesSinceConcurrencyIncrease = 0;
+                }
+            }
+        }
+    }
+
+    private void shrunk(long time) {
+        lastDecreaseTime = time;
+        fullBatchesSinceConcurrencyIncrease = 0;
+    }
+}
@@ -0,0 +1,247 @@
+package com.netflix.eureka.util.batcher;
+
+/**
+ * Bounded, insertion ordered index of the tasks pending in the {@link AcceptorExecutor}, with at most one task
+ * per task id.
+ *
+ * <p>
+ * All the storage is allocated up front for {@code capacity} tasks: the tasks live in slots whose processing order
+ * is kept as a doubly linked list of slot numbers, and they are looked up by id through an open addressing table,
+ * with linear probing and backward shift deletion, holding slot numbers. Adding, overriding and draining tasks
+ * therefore allocates nothing, unlike a map entry plus a list node per task.
+ * </p>
+ *
+ * <p>
+ * Not thread safe, it is only accessed by the acceptor thread.
+ * </p>
+ */
+class PendingTaskIndex<ID, T> {
+
+    private static final int NONE = -1;
+
+    private final int capacity;
+
+    private final Object[] ids;
+    private final Object[] holders;
+    private final int[] hashes;
+    // Processing order of the slots in use, and the chain of free slots through next
+    private final int[] next;
+    private final int[] prev;
+
+    // Slot number + 1 for each bucket, 0 for an empty bucket
+    private final int[] table;
+    private final int mask;
+
+    private int head = NONE;
+    private int tail = NONE;
+    private int freeSlot;
+    private int size;
+
+    PendingTaskIndex(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.ids = new Object[capacity];
+        this.holders = new Object[capacity];
+        this.hashes = new int[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            next[slot] = slot + 1 < capacity ? slot + 1 : NONE;
+        }
+        this.freeSlot = 0;
+
+        // Keep the load factor at or below 0.5, so probe sequences stay short
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return size >= capacity;
+    }
+
+    boolean containsKey(ID id) {
+        return findSlot(id, hash(id)) != NONE;
+    }
+
+    TaskHolder<ID, T> get(ID id) {
+        int slot = findSlot(id, hash(id));
+        return slot == NONE ? null : holderAt(slot);
+    }
+
+    /**
+     * Replaces the task with the same id in place, keeping its position in the processing order, or appends the
+     * task at the end of the processing order.
+     *
+     * @return the replaced task, or null if there was no task with the same id
+     * @throws IllegalStateException if the task is appended and the index is full
+     */
+    TaskHolder<ID, T> put(TaskHolder<ID, T> holder) {
+        ID id = holder.getId();
+        int hash = hash(id);
+        int slot = findSlot(id, hash);
+        if (slot != NONE) {
+            TaskHolder<ID, T> previous = holderAt(slot);
+            holders[slot] = holder;
+            return previous;
+        }
+        slot = insert(id, hash, holder);
+        linkLast(slot);
+        return null;
+    }
+
+    /**
+     * Adds the task at the front of the processing order, unless there is already a task with the same id.
+     *
+     * @return false if there is a task with the same id, in which case the index is left unchanged
+     * @throws IllegalStateException if the task is added and the index is full
+     */
+    boolean addFirst(TaskHolder<ID, T> holder) {
+        ID id = holder.getId();
+        int hash = hash(id);
+        if (findSlot(id, hash) != NONE) {
+            return false;
+        }
+        int slot = insert(id, hash, holder);
+        linkFirst(slot);
+        return true;
+    }
+
+    /**
+     * @return the task first in the processing order, or null if the index is empty
+     */
+    TaskHolder<ID, T> peekFirst() {
+        return head == NONE ? null : holderAt(head);
+    }
+
+    /**
+     * Removes the task first in the processing order.
+     *
+     * @return the removed task, or null if the index is empty
+     */
+    TaskHolder<ID, T> pollFirst() {
+        if (head == NONE) {
+            return null;
+        }
+        int slot = head;
+        TaskHolder<ID, T> holder = holderAt(slot);
+
+        removeFromTable(slot);
+        head = next[slot];
+        if (head == NONE) {
+            tail = NONE;
+        } else {
+            prev[head] = NONE;
+        }
+
+        ids[slot] = null;
+        holders[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+        return holder;
+    }
+
+    private int insert(ID id, int hash, TaskHolder<ID, T> holder) {
+        if (freeSlot == NONE) {
+            throw new IllegalStateException("Pending task index is full (capacity " + capacity + ')');
+        }
+        int slot = freeSlot;
+        freeSlot = next[slot];
+
+        ids[slot] = id;
+        holders[slot] = holder;
+        hashes[slot] = hash;
+
+        int bucket = hash & mask;
+        while (table[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        table[bucket] = slot + 1;
+        size++;
+        return slot;
+    }
+
+    private int findSlot(ID id, int hash) {
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = table[bucket];
+            if (entry == 0) {
+                return NONE;
+            }
+            int slot = entry - 1;
+            if (hashes[slot] == hash && id.equals(ids[slot])) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Empties the bucket of the given slot, moving back the entries that follow it in the same probe run so
+     * that no lookup stops early at the emptied bucket.
+     */
+    private void removeFromTable(int slot) {
+        int gap = hashes[slot] & mask;
+        while (table[gap] != slot + 1) {
+            gap = (gap + 1) & mask;
+        }
+        for (int bucket = (gap + 1) & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = table[bucket];
+            if (entry == 0) {
+                break;
+            }
+            int home = hashes[entry - 1] & mask;
+            // The entry can fill the gap only if its home bucket is not cyclically within (gap, bucket]
+            boolean reachable = gap <= bucket
+                    ? gap < home && home <= bucket
+                    : gap < home || home <= bucket;
+            if (!reachable) {
+                table[gap] = entry;
+                gap = bucket;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private void linkLast(int slot) {
+        next[slot] = NONE;
+        prev[slot] = tail;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head == NONE) {
+            tail = slot;
+        } else {
+            prev[head] = slot;
+        }
+        head = slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TaskHolder<ID, T> holderAt(int slot) {
+        return (TaskHolder<ID, T>) holders[slot];
+    }
+
+    private static int hash(Object id) {
+        // Spread the bits, as the table is indexed by the low ones
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -43,6 +43,36 @@ public class TaskDispatchers {
         final AcceptorExecutor<ID, T> acceptorExecutor = new AcceptorExecutor<>(
                 id, maxBufferSize, workloadSize, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs
         );
+        return createBatchingTaskDispatcher(id, workerCount, taskProcessor, acceptorExecutor);
+    }
+
+    /**
+     * Creates a batching dispatcher whose batch size, within {@code minWorkloadSize} and {@code maxWorkloadSize},
+     * and number of batches in flight, up to {@code workerCount}, adapt to the outcome and latency of the processed
+     * batches. See {@link BatchWindow}.
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createAdaptiveBatchingTaskDispatcher(String id,
+                                                                                     int maxBufferSize,
+                                                                                     int minWorkloadSize,
+                                                                                     int initialWorkloadSize,
+                                                                                     int maxWorkloadSize,
+                                                                                     int workerCount,
+                                                                                     long maxBatchingDelay,
+                                                                                     long targetLatencyMs,
+                                                                                     long congestionRetryDelayMs,
+                                                                                     long networkFailureRetryMs,
+                                                                                     TaskProcessor<T> taskProcessor) {
+        BatchWindow batchWindow = new BatchWindow(minWorkloadSize, initialWorkloadSize, maxWorkloadSize, workerCount, targetLatencyMs);
+        final AcceptorExecutor<ID, T> acceptorExecutor = new AcceptorExecutor<>(
+                id, maxBufferSize, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs, batchWindow
+        );
+        return createBatchingTaskDispatcher(id, workerCount, taskProcessor, acceptorExecutor);
+    }
+
+    private static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
+                                                                              int workerCount,
+                                                                              TaskProcessor<T> taskProcessor,
+                                                                              final AcceptorExecutor<ID, T> acceptorExecutor) {
         final TaskExecutors<ID, T> taskExecutor = TaskExecutors.batchExecutors(id, workerCount, taskProcessor, acceptorExecutor);
         return new TaskDispatcher<ID, T>() {
             @Override
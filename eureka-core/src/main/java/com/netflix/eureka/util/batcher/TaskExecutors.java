@@ -187,23 +187,9 @@ class TaskExecutors<ID, T> {
                 while (!isShutdown.get()) {
                     // 1. 从batchWorkQueue批队列里拿一个批次
                     List<TaskHolder<ID, T>> holders = getWork();
-                    metrics.registerExpiryTimes(holders);
-
-                    // 2. 从批次里拿任务队列出来.
-                    List<T> tasks = getTasksOf(holders);
-                    // 3. 开始执行, 判断结果.
-                    ProcessingResult result = processor.process(tasks);
-                    switch (result) {
-                        case Success:
-                            break;
-                        case Congestion:
-                        case TransientError:
-                            taskDispatcher.reprocess(holders, result);
-                            break;
-                        case PermanentError:
-                            logger.warn("Discarding {} tasks of {} due to permanent error", holders.size(), workerName);
+                    if (!holders.isEmpty()) {
+                        process(holders);
                     }
-                    metrics.registerTaskResult(result, tasks.size());
                 }
             } catch (InterruptedException e) {
                 // Ignore
@@ -213,6 +199,40 @@ class TaskExecutors<ID, T> {
             }
         }
 
+        /**
+         * Processes a batch taken from the dispatcher, and always reports its completion, as until then the batch
+         * holds one of the in-flight slots of the batch window. A batch that fails with an exception is discarded.
+         */
+        private void process(List<TaskHolder<ID, T>> holders) {
+            long startTime = System.currentTimeMillis();
+            ProcessingResult result = ProcessingResult.PermanentError;
+            try {
+                metrics.registerExpiryTimes(holders);
+
+                // 2. 从批次里拿任务队列出来.
+                List<T> tasks = getTasksOf(holders);
+                // 3. 开始执行, 判断结果.
+                result = processor.process(tasks);
+                switch (result) {
+                    case Success:
+                        break;
+                    case Congestion:
+                    case TransientError:
+                        taskDispatcher.reprocess(holders, result);
+                        break;
+                    case PermanentError:
+                        logger.warn("Discarding {} tasks of {} due to permanent error", holders.size(), workerName);
+                }
+                metrics.registerTaskResult(result, tasks.size());
+            } catch (Throwable e) {
+                result = ProcessingResult.PermanentError;
+                logger.warn("Discarding {} tasks of {} after a processing error", holders.size(), workerName, e);
+            } finally {
+                // 4. 把结果反馈给batch window, 调整批次大小和并发数, 释放占用的并发槽
+                taskDispatcher.batchCompleted(holders.size(), startTime, System.currentTimeMillis(), result);
+            }
+        }
+
         // 从batchWorkQueue批队列里拿一个批次.
         private List<TaskHolder<ID, T>> getWork() throws InterruptedException {
             // 1. 拿到batchWorkQueue
@@ -0,0 +1,57 @@
+package com.netflix.eureka.cluster;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.transport.ClusterSampleData;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AcknowledgedHeartbeatsTest {
+
+    private final AcknowledgedHeartbeats acknowledgedHeartbeats = new AcknowledgedHeartbeats(TimeUnit.MINUTES.toMillis(5));
+
+    private final InstanceInfo instanceInfo = ClusterSampleData.newInstanceInfo(1);
+
+    @Test
+    public void testInstanceIsAcknowledgedOnceThePeerRepliedToAFullHeartbeat() throws Exception {
+        AcknowledgedHeartbeats.Acknowledgement acknowledgement = acknowledgedHeartbeats.pending(instanceInfo, null);
+        assertThat(acknowledgedHeartbeats.isAcknowledged(instanceInfo, null), is(false));
+
+        acknowledgedHeartbeats.acknowledged(acknowledgement);
+        assertThat(acknowledgedHeartbeats.isAcknowledged(instanceInfo, null), is(true));
+    }
+
+    @Test
+    public void testChangedInstanceIsNotAcknowledged() throws Exception {
+        acknowledgedHeartbeats.acknowledged(acknowledgedHeartbeats.pending(instanceInfo, null));
+
+        assertThat(acknowledgedHeartbeats.isAcknowledged(instanceInfo, InstanceStatus.OUT_OF_SERVICE), is(false));
+
+        instanceInfo.setLastDirtyTimestamp(instanceInfo.getLastDirtyTimestamp() + 1);
+        assertThat(acknowledgedHeartbeats.isAcknowledged(instanceInfo, null), is(false));
+    }
+
+    @Test
+    public void testForgottenInstanceIsNotAcknowledged() throws Exception {
+        acknowledgedHeartbeats.acknowledged(acknowledgedHeartbeats.pending(instanceInfo, null));
+
+        acknowledgedHeartbeats.forget(instanceInfo.getId());
+        assertThat(acknowledgedHeartbeats.isAcknowledged(instanceInfo, null), is(false));
+        assertThat(acknowledgedHeartbeats.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testAcknowledgementIsNotTrustedAfterRevalidationInterval() throws Exception {
+        AcknowledgedHeartbeats expiringHeartbeats = new AcknowledgedHeartbeats(0);
+        expiringHeartbeats.acknowledged(expiringHeartbeats.pending(instanceInfo, null));
+
+        assertThat(expiringHeartbeats.isAcknowledged(instanceInfo, null), is(false));
+        // Expired acknowledgements are dropped
+        assertThat(expiringHeartbeats.size(), is(equalTo(0)));
+    }
+}
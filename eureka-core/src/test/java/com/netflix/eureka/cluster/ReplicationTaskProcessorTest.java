@@ -1,16 +1,20 @@
 package com.netflix.eureka.cluster;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.util.InstanceInfoGenerator;
 import com.netflix.eureka.cluster.TestableInstanceReplicationTask.ProcessingState;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
 import org.junit.Before;
 import org.junit.Test;
 
 import static com.netflix.eureka.cluster.TestableInstanceReplicationTask.aReplicationTask;
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -71,6 +75,27 @@ public class ReplicationTaskProcessorTest {
         assertThat(task.getProcessingState(), is(ProcessingState.Finished));
     }
 
+    @Test
+    public void testIdOnlyHeartbeatsAreReplicatedInHeartbeatFrames() throws Exception {
+        TestableInstanceReplicationTask registerTask = aReplicationTask().withAction(Action.Register).build();
+        TestableInstanceReplicationTask firstHeartbeat = aReplicationTask().withIdOnlyHeartbeat(true).build();
+        TestableInstanceReplicationTask secondHeartbeat = aReplicationTask().withIdOnlyHeartbeat(true).build();
+
+        replicationClient.withBatchReply(200);
+        replicationClient.withNetworkStatusCode(200);
+        ProcessingResult status = replicationTaskProcessor.process(Arrays.<ReplicationTask>asList(firstHeartbeat, registerTask, secondHeartbeat));
+
+        assertThat(status, is(ProcessingResult.Success));
+        assertThat(registerTask.getProcessingState(), is(ProcessingState.Finished));
+        assertThat(firstHeartbeat.getProcessingState(), is(ProcessingState.Finished));
+        assertThat(secondHeartbeat.getProcessingState(), is(ProcessingState.Finished));
+
+        ReplicationList replicationList = (ReplicationList) replicationClient.nextHandledRequest(0, TimeUnit.SECONDS).getData();
+        assertThat(replicationList.getReplicationList().size(), is(equalTo(1)));
+        assertThat(replicationList.getHeartbeatFrames().size(), is(equalTo(1)));
+        assertThat(replicationList.getHeartbeatFrames().get(0).getIds(), is(equalTo(Arrays.asList(firstHeartbeat.getId(), secondHeartbeat.getId()))));
+    }
+
     @Test
     public void testBatchableTaskCongestionFailureHandling() throws Exception {
         TestableInstanceReplicationTask task = aReplicationTask().build();
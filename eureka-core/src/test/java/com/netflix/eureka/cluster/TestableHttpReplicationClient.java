@@ -14,7 +14,11 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
@@ -112,6 +116,11 @@ public class TestableHttpReplicationClient implements HttpReplicationClient {
         return EurekaHttpResponse.status(networkStatusCodes[callCounter.getAndIncrement()]);
     }
 
+    @Override
+    public EurekaHttpResponse<RegistryChunk> getRegistryChunk(String afterAppName, int maxInstances) {
+        throw new IllegalStateException("method not supported");
+    }
+
     @Override
     public EurekaHttpResponse<Applications> getApplications(String... regions) {
         throw new IllegalStateException("method not supported");
@@ -132,6 +141,21 @@ public class TestableHttpReplicationClient implements HttpReplicationClient {
         throw new IllegalStateException("method not supported");
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest) {
+        throw new IllegalStateException("method not supported");
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaOfInterest(RegistryInterest interest) {
+        throw new IllegalStateException("method not supported");
+    }
+
+    @Override
+    public EurekaHttpResponse<ApplicationsManifest> getApplicationsManifest() {
+        throw new IllegalStateException("method not supported");
+    }
+
     @Override
     public EurekaHttpResponse<Application> getApplication(String appName) {
         throw new IllegalStateException("method not supported");
@@ -170,8 +194,17 @@ public class TestableHttpReplicationClient implements HttpReplicationClient {
         }
 
         List<ReplicationInstanceResponse> responseList = new ArrayList<>();
-        responseList.add(new ReplicationInstanceResponse(batchStatusCode, instanceInfoFromPeer));
+        for (int i = 0; i < replicationList.getReplicationList().size(); i++) {
+            responseList.add(new ReplicationInstanceResponse(batchStatusCode, instanceInfoFromPeer));
+        }
         ReplicationListResponse replicationListResponse = new ReplicationListResponse(responseList);
+        if (replicationList.getHeartbeatFrames() != null) {
+            for (HeartbeatFrame heartbeatFrame : replicationList.getHeartbeatFrames()) {
+                for (String id : heartbeatFrame.getIds()) {
+                    replicationListResponse.addHeartbeatStatusCode(batchStatusCode);
+                }
+            }
+        }
 
         handledRequests.add(new HandledRequest(RequestType.Batch, replicationList));
 
@@ -17,6 +17,7 @@ class TestableInstanceReplicationTask extends InstanceReplicationTask {
 
     private final int replyStatusCode;
     private final int networkFailuresRepeatCount;
+    private final boolean idOnlyHeartbeat;
 
     private final AtomicReference<ProcessingState> processingState = new AtomicReference<>(ProcessingState.Pending);
 
@@ -27,10 +28,17 @@ class TestableInstanceReplicationTask extends InstanceReplicationTask {
                                     String id,
                                     Action action,
                                     int replyStatusCode,
-                                    int networkFailuresRepeatCount) {
+                                    int networkFailuresRepeatCount,
+                                    boolean idOnlyHeartbeat) {
         super(peerNodeName, action, appName, id);
         this.replyStatusCode = replyStatusCode;
         this.networkFailuresRepeatCount = networkFailuresRepeatCount;
+        this.idOnlyHeartbeat = idOnlyHeartbeat;
+    }
+
+    @Override
+    public boolean isIdOnlyHeartbeat() {
+        return idOnlyHeartbeat;
     }
 
     @Override
@@ -67,6 +75,7 @@ class TestableInstanceReplicationTask extends InstanceReplicationTask {
         private int replyStatusCode = 200;
         private Action action = Action.Heartbeat;
         private int networkFailuresRepeatCount;
+        private boolean idOnlyHeartbeat;
 
         public TestableReplicationTaskBuilder withReplyStatusCode(int replyStatusCode) {
             this.replyStatusCode = replyStatusCode;
@@ -83,6 +92,11 @@ class TestableInstanceReplicationTask extends InstanceReplicationTask {
             return this;
         }
 
+        public TestableReplicationTaskBuilder withIdOnlyHeartbeat(boolean idOnlyHeartbeat) {
+            this.idOnlyHeartbeat = idOnlyHeartbeat;
+            return this;
+        }
+
         public TestableInstanceReplicationTask build() {
             return new TestableInstanceReplicationTask(
                     "peerNodeName#test",
@@ -90,7 +104,8 @@ class TestableInstanceReplicationTask extends InstanceReplicationTask {
                     "id#" + autoId++,
                     action,
                     replyStatusCode,
-                    networkFailuresRepeatCount
+                    networkFailuresRepeatCount,
+                    idOnlyHeartbeat
             );
         }
     }
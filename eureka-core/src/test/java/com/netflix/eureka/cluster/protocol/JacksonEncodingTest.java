@@ -1,7 +1,12 @@
 package com.netflix.eureka.cluster.protocol;
 
+import java.util.List;
+
 import com.netflix.discovery.converters.EurekaJacksonCodec;
+import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
+import com.netflix.discovery.util.EurekaEntityComparators;
+import com.netflix.discovery.util.InstanceInfoGenerator;
 
 import org.junit.Test;
 
@@ -50,6 +55,46 @@ public class JacksonEncodingTest {
         assertThat(decodedValue, is(equalTo(replicationList)));
     }
 
+    @Test
+    public void testReplicationListWithHeartbeatFramesEncoding() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        replicationList.addReplicationInstance(ClusterSampleData.newReplicationInstance());
+        replicationList.addHeartbeat("app1", "id1");
+        replicationList.addHeartbeat("app1", "id2");
+        replicationList.addHeartbeat("app2", "id3");
+
+        // Encode / decode
+        String jsonText = jacksonCodec.writeToString(replicationList);
+        ReplicationList decodedValue = jacksonCodec.readValue(ReplicationList.class, jsonText);
+
+        assertThat(decodedValue, is(equalTo(replicationList)));
+        assertThat(decodedValue.getHeartbeatFrames().size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testReplicationListWithoutHeartbeatFramesOmitsThem() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        replicationList.addReplicationInstance(ClusterSampleData.newReplicationInstance());
+
+        // Peers not aware of heartbeat frames must be able to decode the list
+        String jsonText = jacksonCodec.writeToString(replicationList);
+        assertThat(jsonText.contains("heartbeatFrames"), is(false));
+    }
+
+    @Test
+    public void testReplicationListResponseWithHeartbeatStatusCodesEncoding() throws Exception {
+        ReplicationListResponse replicationListResponse = new ReplicationListResponse();
+        replicationListResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(false));
+        replicationListResponse.addHeartbeatStatusCode(200);
+        replicationListResponse.addHeartbeatStatusCode(404);
+
+        // Encode / decode
+        String jsonText = jacksonCodec.writeToString(replicationListResponse);
+        ReplicationListResponse decodedValue = jacksonCodec.readValue(ReplicationListResponse.class, jsonText);
+
+        assertThat(decodedValue, is(equalTo(replicationListResponse)));
+    }
+
     @Test
     public void testReplicationListResponseEncoding() throws Exception {
         ReplicationListResponse replicationListResponse = new ReplicationListResponse();
@@ -61,4 +106,29 @@ public class JacksonEncodingTest {
 
         assertThat(decodedValue, is(equalTo(replicationListResponse)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRegistryChunkEncoding() throws Exception {
+        List<Application> applications = InstanceInfoGenerator.newBuilder(6, 3).withMetaData(true).build()
+                .toApplications().getRegisteredApplications();
+
+        for (boolean complete : new boolean[]{false, true}) {
+            RegistryChunk registryChunk = new RegistryChunk(complete);
+            for (Application application : applications) {
+                registryChunk.addApplication(application);
+            }
+
+            // Encode / decode
+            String jsonText = jacksonCodec.writeToString(registryChunk);
+            RegistryChunk decodedValue = jacksonCodec.readValue(RegistryChunk.class, jsonText);
+
+            assertThat(decodedValue.isComplete(), is(equalTo(complete)));
+            assertThat(decodedValue.getApplications().size(), is(equalTo(applications.size())));
+            for (int i = 0; i < applications.size(); i++) {
+                Application decodedApplication = decodedValue.getApplications().get(i);
+                assertThat(decodedApplication.size(), is(equalTo(2)));
+                assertThat(EurekaEntityComparators.equal(decodedApplication, applications.get(i)), is(true));
+            }
+        }
+    }
+}
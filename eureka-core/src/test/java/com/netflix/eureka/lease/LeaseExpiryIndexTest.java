@@ -0,0 +1,44 @@
+package com.netflix.eureka.lease;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LeaseExpiryIndexTest {
+
+    @Test
+    public void testOnlyExpiredLeasesAreReturned() throws Exception {
+        LeaseExpiryIndex<String> index = new LeaseExpiryIndex<String>(10);
+        Lease<String> expiring = new Lease<String>("expiring", 0);
+        Lease<String> live = new Lease<String>("live", 90);
+        Lease<String> removed = new Lease<String>("removed", 0);
+        index.add(expiring);
+        index.add(live);
+        index.add(removed);
+        index.remove(removed);
+
+        Thread.sleep(50);
+
+        List<Lease<String>> expired = index.getExpiredLeases(0);
+        Assert.assertEquals(Collections.singletonList(expiring), expired);
+        // Expired leases stay indexed until they are removed
+        Assert.assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testRenewedLeaseIsMovedToItsNewBucket() throws Exception {
+        LeaseExpiryIndex<String> index = new LeaseExpiryIndex<String>(10);
+        Lease<String> lease = new Lease<String>("renewed", 1);
+        index.add(lease);
+        lease.renew();
+
+        // 1.5s ahead the bucket the lease was added to is due, but the renewed lease is not expired
+        Assert.assertTrue(index.getExpiredLeases(-1500).isEmpty());
+        Assert.assertEquals(1, index.size());
+
+        // 3s ahead the renewed lease is expired as well
+        Assert.assertEquals(Collections.singletonList(lease), index.getExpiredLeases(-3000));
+    }
+}
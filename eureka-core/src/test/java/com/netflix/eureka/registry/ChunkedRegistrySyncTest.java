@@ -0,0 +1,126 @@
+package com.netflix.eureka.registry;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Collections;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.converters.EurekaJacksonCodec;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Pair;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.transport.JerseyReplicationClient;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.Parameter;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.Header.header;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Copies the registry from a peer whose replication endpoint is stubbed, so the chunks go through the HTTP client
+ * and the codec the way they do between eureka nodes.
+ */
+public class ChunkedRegistrySyncTest extends AbstractTester {
+
+    private static final String REGISTRY_PATH = "/eureka/v2/" + PeerEurekaNode.REGISTRY_URL_PATH;
+    private static final String OTHER_APP_NAME = "ALOCAPP";
+
+    @Rule
+    public MockServerRule serverMockRule = new MockServerRule(this);
+    private MockServerClient serverMockClient;
+
+    private final EurekaJacksonCodec jacksonCodec = new EurekaJacksonCodec();
+
+    @Test
+    public void testSyncUpFromStubbedPeer() throws Exception {
+        InstanceInfo otherAppInstance = new InstanceInfo.Builder(
+                createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id0", InstanceStatus.UP))
+                .setAppName(OTHER_APP_NAME)
+                .build();
+        Application otherApp = new Application(OTHER_APP_NAME);
+        otherApp.addInstance(otherAppInstance);
+        Application localApp = new Application(LOCAL_REGION_APP_NAME);
+        localApp.addInstance(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP));
+        localApp.addInstance(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP));
+        registeredApps.add(new Pair<String, String>(OTHER_APP_NAME, otherAppInstance.getId()));
+        registeredApps.add(new Pair<String, String>(LOCAL_REGION_APP_NAME, "id1"));
+        registeredApps.add(new Pair<String, String>(LOCAL_REGION_APP_NAME, "id2"));
+
+        serverMockClient.when(
+                request()
+                        .withMethod("GET")
+                        .withHeader(header(PeerEurekaNode.HEADER_REPLICATION, "true"))
+                        .withPath(REGISTRY_PATH),
+                Times.exactly(1)
+        ).respond(
+                chunkResponse(new RegistryChunk(Collections.singletonList(otherApp), false))
+        );
+        serverMockClient.when(
+                request()
+                        .withMethod("GET")
+                        .withPath(REGISTRY_PATH)
+                        .withQueryStringParameter(new Parameter("after", OTHER_APP_NAME))
+        ).respond(
+                chunkResponse(new RegistryChunk(Collections.singletonList(localApp), true))
+        );
+
+        PeerEurekaNode peer = newPeer();
+        try {
+            int count = new ChunkedRegistrySync(registry, 1, 2).syncUp(Collections.singletonList(peer));
+
+            assertThat(count, is(equalTo(3)));
+            assertThat(registry.getInstanceByAppAndId(OTHER_APP_NAME, otherAppInstance.getId(), false), is(notNullValue()));
+            assertThat(registry.getApplication(LOCAL_REGION_APP_NAME, false).size(), is(equalTo(2)));
+        } finally {
+            peer.shutDown();
+        }
+    }
+
+    @Test
+    public void testSyncUpFailsWhenPeerIsNotReady() throws Exception {
+        serverMockClient.when(
+                request()
+                        .withMethod("GET")
+                        .withPath(REGISTRY_PATH)
+        ).respond(
+                response().withStatusCode(403)
+        );
+
+        PeerEurekaNode peer = newPeer();
+        try {
+            int count = new ChunkedRegistrySync(registry, 1, 2).syncUp(Collections.singletonList(peer));
+
+            assertThat(count, is(equalTo(-1)));
+        } finally {
+            peer.shutDown();
+        }
+    }
+
+    private PeerEurekaNode newPeer() {
+        String serviceUrl = "http://localhost:" + serverMockRule.getHttpPort() + "/eureka/v2";
+        JerseyReplicationClient replicationClient = JerseyReplicationClient.createReplicationClient(
+                serverConfig, new DefaultServerCodecs(serverConfig), serviceUrl
+        );
+        return new PeerEurekaNode(registry, "localhost", serviceUrl, replicationClient, serverConfig);
+    }
+
+    private HttpResponse chunkResponse(RegistryChunk chunk) {
+        return response()
+                .withStatusCode(200)
+                .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                .withBody(jacksonCodec.writeToString(chunk));
+    }
+}
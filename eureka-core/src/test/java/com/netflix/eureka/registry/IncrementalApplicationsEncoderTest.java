@@ -0,0 +1,69 @@
+package com.netflix.eureka.registry;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class IncrementalApplicationsEncoderTest {
+
+    private static final List<EncoderWrapper> ENCODERS = Arrays.<EncoderWrapper>asList(
+            CodecWrappers.getEncoder(CodecWrappers.LegacyJacksonJson.class),
+            CodecWrappers.getEncoder(CodecWrappers.JacksonJson.class),
+            CodecWrappers.getEncoder(CodecWrappers.JacksonJsonMini.class),
+            CodecWrappers.getEncoder(CodecWrappers.XStreamJson.class),
+            CodecWrappers.getEncoder(CodecWrappers.XStreamXml.class),
+            CodecWrappers.getEncoder(CodecWrappers.JacksonXml.class),
+            CodecWrappers.getEncoder(CodecWrappers.JacksonXmlMini.class)
+    );
+
+    @Test
+    public void testIncrementalPayloadMatchesFullEncoding() throws Exception {
+        Applications apps = InstanceInfoGenerator.newBuilder(20, 5).withMetaData(true).build().toApplications();
+
+        for (EncoderWrapper encoder : ENCODERS) {
+            IncrementalApplicationsEncoder incrementalEncoder = new IncrementalApplicationsEncoder(encoder);
+            assertThat(encoder.codecName(), incrementalEncoder.encode(apps), is(equalTo(encoder.encode(apps))));
+            // Second pass is served from the cached fragments
+            assertThat(encoder.codecName(), incrementalEncoder.encode(apps), is(equalTo(encoder.encode(apps))));
+        }
+    }
+
+    @Test
+    public void testChangedApplicationIsReEncoded() throws Exception {
+        Applications apps = InstanceInfoGenerator.newBuilder(20, 5).build().toApplications();
+
+        for (EncoderWrapper encoder : ENCODERS) {
+            IncrementalApplicationsEncoder incrementalEncoder = new IncrementalApplicationsEncoder(encoder);
+            incrementalEncoder.encode(apps);
+
+            Applications updated = new Applications();
+            for (Application app : apps.getRegisteredApplications()) {
+                updated.addApplication(app);
+            }
+            Application changed = updated.getRegisteredApplications().get(0);
+            Application replacement = new Application(changed.getName());
+            for (InstanceInfo instance : changed.getInstancesAsIsFromEureka()) {
+                InstanceInfo copy = new InstanceInfo(instance);
+                copy.setStatusWithoutDirty(InstanceInfo.InstanceStatus.DOWN);
+                replacement.addInstance(copy);
+            }
+            updated.removeApplication(changed);
+            updated.addApplication(replacement);
+            updated.setVersion(2L);
+            updated.setAppsHashCode(updated.getReconcileHashCode());
+
+            assertThat(encoder.codecName(), incrementalEncoder.encode(updated), is(equalTo(encoder.encode(updated))));
+        }
+    }
+}
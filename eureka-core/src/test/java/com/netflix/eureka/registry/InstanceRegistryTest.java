@@ -1,23 +1,42 @@
 package com.netflix.eureka.registry;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.Pair;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.RegistryChunk;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.registry.AbstractInstanceRegistry.CircularQueue;
 import com.netflix.eureka.registry.AbstractInstanceRegistry.EvictionTask;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import org.junit.Assert;
 import org.junit.Test;
 
+import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -128,6 +147,345 @@ public class InstanceRegistryTest extends AbstractTester {
 
     }
 
+    @Test
+    public void testLocalRegistrySnapshotIsRepublishedOnlyOnChange() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+
+        Applications first = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertSame("Unchanged registry should return the published snapshot", first,
+                registry.getApplicationsFromLocalRegionOnly());
+        Assert.assertEquals("UP_1_", first.getAppsHashCode());
+
+        long version = registry.getLocalRegistryVersion();
+        registry.statusUpdate(LOCAL_REGION_APP_NAME, myInstance.getId(), InstanceStatus.OUT_OF_SERVICE, "0", false);
+        Assert.assertTrue("Registry version not incremented", registry.getLocalRegistryVersion() > version);
+
+        Applications second = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertNotSame("Changed registry should publish a new snapshot", first, second);
+        Assert.assertEquals("OUT_OF_SERVICE_1_", second.getAppsHashCode());
+
+        registry.cancel(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        Assert.assertNull(registry.getApplication(LOCAL_REGION_APP_NAME, false));
+        Assert.assertTrue(registry.getApplicationsFromLocalRegionOnly().getRegisteredApplications().isEmpty());
+    }
+
+    @Test
+    public void testLocalRegistrySnapshotIsNotChangedByLeaseHolderUpdates() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+
+        Applications first = registry.getApplicationsFromLocalRegionOnly();
+        InstanceInfo published = first.getRegisteredApplications(LOCAL_REGION_APP_NAME).getByInstanceId(myInstance.getId());
+        Assert.assertNotSame("The snapshot should hold a copy of the lease holder", myInstance, published);
+
+        registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, myInstance.getId());
+        Assert.assertSame("Decorating the lease holder should not change the snapshot", first,
+                registry.getApplicationsFromLocalRegionOnly());
+
+        registry.storeOverriddenStatusIfRequired(LOCAL_REGION_APP_NAME, myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
+        Applications second = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertNotSame("A stored overridden status should republish the application", first, second);
+        Assert.assertEquals(InstanceStatus.OUT_OF_SERVICE, second.getRegisteredApplications(LOCAL_REGION_APP_NAME)
+                .getByInstanceId(myInstance.getId()).getOverriddenStatus());
+        Assert.assertEquals(InstanceStatus.UNKNOWN, published.getOverriddenStatus());
+    }
+
+    @Test
+    public void testApplicationDeltasSinceSequence() throws Exception {
+        InstanceInfo instance1 = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP);
+        InstanceInfo instance2 = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP);
+        registerInstanceLocally(instance1);
+        long sequence = registry.getLastChangeSequence();
+
+        registerInstanceLocally(instance2);
+        registry.statusUpdate(LOCAL_REGION_APP_NAME, instance1.getId(), InstanceStatus.OUT_OF_SERVICE, "0", false);
+
+        Applications delta = registry.getApplicationDeltasSince(sequence);
+        Assert.assertEquals(registry.getLastChangeSequence(), delta.getVersion().longValue());
+        Application app = delta.getRegisteredApplications(LOCAL_REGION_APP_NAME);
+        Assert.assertEquals("Delta should only hold the instances changed after the sequence", 2, app.size());
+        Assert.assertEquals(InstanceStatus.OUT_OF_SERVICE, app.getByInstanceId(instance1.getId()).getStatus());
+        Assert.assertEquals(registry.getApplicationsFromLocalRegionOnly().getAppsHashCode(), delta.getAppsHashCode());
+
+        Applications upToDate = registry.getApplicationDeltasSince(registry.getLastChangeSequence());
+        Assert.assertTrue(upToDate.getRegisteredApplications().isEmpty());
+
+        registry.clearRegistry();
+        Assert.assertNull("Changes lost by clearing the registry should require a full fetch",
+                registry.getApplicationDeltasSince(delta.getVersion()));
+    }
+
+    @Test
+    public void testReplicationBatchIsAppliedPerApplication() throws Exception {
+        InstanceInfo instance1 = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP);
+        instance1.setLastDirtyTimestamp(100l);
+        registerInstanceLocally(instance1);
+        InstanceInfo instance2 = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP);
+        registeredApps.add(new Pair<String, String>(LOCAL_REGION_APP_NAME, instance2.getId()));
+
+        ReplicationList replicationList = new ReplicationList();
+        replicationList.addReplicationInstance(new ReplicationInstance(
+                LOCAL_REGION_APP_NAME, instance2.getId(), instance2.getLastDirtyTimestamp(), null, null, instance2, Action.Register));
+        replicationList.addReplicationInstance(new ReplicationInstance(
+                LOCAL_REGION_APP_NAME, instance2.getId(), null, null, InstanceStatus.OUT_OF_SERVICE.name(), null, Action.StatusUpdate));
+        replicationList.addReplicationInstance(new ReplicationInstance(
+                LOCAL_REGION_APP_NAME.toLowerCase(), "missing", null, null, null, null, Action.Cancel));
+        replicationList.addHeartbeat(LOCAL_REGION_APP_NAME, instance1.getId());
+        replicationList.addHeartbeat(LOCAL_REGION_APP_NAME, "missing");
+
+        long version = registry.getLocalRegistryVersion();
+        List<String> appliedIds = new ArrayList<>();
+        ReplicationListResponse response = registry.applyReplicationBatch(replicationList, event -> {
+            appliedIds.add(event.getId());
+            boolean applied;
+            switch (event.getAction()) {
+                case Register:
+                    registry.register(event.getInstanceInfo(), true);
+                    applied = true;
+                    break;
+                case StatusUpdate:
+                    applied = registry.statusUpdate(LOCAL_REGION_APP_NAME, event.getId(),
+                            InstanceStatus.valueOf(event.getStatus()), null, true);
+                    break;
+                default:
+                    applied = registry.cancel(LOCAL_REGION_APP_NAME, event.getId(), true);
+            }
+            return new ReplicationInstanceResponse(applied ? 200 : 404, null);
+        });
+
+        Assert.assertEquals(Arrays.asList(instance2.getId(), instance2.getId(), "missing"), appliedIds);
+        List<Integer> statusCodes = new ArrayList<>();
+        for (int i = 0; i < response.getResponseList().size(); i++) {
+            statusCodes.add(response.getResponseList().get(i).getStatusCode());
+        }
+        Assert.assertEquals(Arrays.asList(200, 200, 404), statusCodes);
+        Assert.assertEquals(Arrays.asList(200, 404), response.getHeartbeatStatusCodes());
+
+        // The application snapshot is published once, after the whole batch
+        Assert.assertEquals(version + 1, registry.getLocalRegistryVersion());
+        Application app = registry.getApplicationsFromLocalRegionOnly().getRegisteredApplications(LOCAL_REGION_APP_NAME);
+        Assert.assertEquals(2, app.size());
+        Assert.assertEquals(InstanceStatus.OUT_OF_SERVICE, app.getByInstanceId(instance2.getId()).getStatus());
+    }
+
+    @Test
+    public void testRegistryChunksHoldWholeApplicationsInNameOrder() throws Exception {
+        InstanceInfo otherAppInstance = newOtherAppInstance("id0");
+        registry.register(otherAppInstance, 10000000, false);
+        registeredApps.add(new Pair<String, String>(otherAppInstance.getAppName(), otherAppInstance.getId()));
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP));
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP));
+
+        RegistryChunk first = registry.getRegistryChunk(null, 1);
+        Assert.assertFalse(first.isComplete());
+        Assert.assertEquals(1, first.getApplications().size());
+        Assert.assertEquals(otherAppInstance.getAppName(), first.getApplications().get(0).getName());
+
+        // Applications are never split, even if they hold more instances than requested
+        RegistryChunk second = registry.getRegistryChunk(otherAppInstance.getAppName(), 1);
+        Assert.assertTrue(second.isComplete());
+        Assert.assertEquals(1, second.getApplications().size());
+        Assert.assertEquals(2, second.getApplications().get(0).size());
+    }
+
+    @Test
+    public void testSyncUpInChunksContinuesFromTheNextPeer() throws Exception {
+        InstanceInfo otherAppInstance = newOtherAppInstance("id0");
+        Application otherApp = new Application(otherAppInstance.getAppName());
+        otherApp.addInstance(otherAppInstance);
+        Application localApp = new Application(LOCAL_REGION_APP_NAME);
+        localApp.addInstance(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP));
+        localApp.addInstance(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP));
+        registeredApps.add(new Pair<String, String>(otherAppInstance.getAppName(), otherAppInstance.getId()));
+        registeredApps.add(new Pair<String, String>(LOCAL_REGION_APP_NAME, "id1"));
+        registeredApps.add(new Pair<String, String>(LOCAL_REGION_APP_NAME, "id2"));
+
+        // The first peer fails after the first chunk
+        PeerEurekaNode failingPeer = mock(PeerEurekaNode.class);
+        when(failingPeer.getRegistryChunk(null, 1)).thenReturn(
+                anEurekaHttpResponse(200, new RegistryChunk(Collections.singletonList(otherApp), false)).build());
+        when(failingPeer.getRegistryChunk(otherApp.getName(), 1)).thenReturn(
+                anEurekaHttpResponse(503, RegistryChunk.class).build());
+        PeerEurekaNode peer = mock(PeerEurekaNode.class);
+        when(peer.getRegistryChunk(otherApp.getName(), 1)).thenReturn(
+                anEurekaHttpResponse(200, new RegistryChunk(Collections.singletonList(localApp), true)).build());
+
+        int count = new ChunkedRegistrySync(registry, 1, 2).syncUp(Arrays.asList(failingPeer, peer));
+
+        Assert.assertEquals(3, count);
+        Assert.assertNotNull(registry.getInstanceByAppAndId(otherApp.getName(), otherAppInstance.getId(), false));
+        Assert.assertEquals(2, registry.getApplication(LOCAL_REGION_APP_NAME, false).size());
+        verify(peer, never()).getRegistryChunk(null, 1);
+    }
+
+    private static InstanceInfo newOtherAppInstance(String id) {
+        return new InstanceInfo.Builder(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, id, InstanceStatus.UP))
+                .setAppName("ALOCAPP")
+                .build();
+    }
+
+    @Test
+    public void testApplicationsForVipFollowTheRegistry() throws Exception {
+        InstanceInfo first = new InstanceInfo.Builder(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP))
+                .setVIPAddressDeser("vip1,vip2")
+                .setSecureVIPAddressDeser("svip1")
+                .build();
+        InstanceInfo second = new InstanceInfo.Builder(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP))
+                .setVIPAddressDeser("vip2")
+                .build();
+        registerInstanceLocally(first);
+        registerInstanceLocally(second);
+
+        assertThat(instanceIdsForVip("vip1", false), is(setOf("id1")));
+        assertThat(instanceIdsForVip("vip2", false), is(setOf("id1", "id2")));
+        assertThat(instanceIdsForVip("svip1", true), is(setOf("id1")));
+        assertThat(instanceIdsForVip("svip1", false), is(setOf()));
+
+        // The instance moves to another VIP
+        registerInstanceLocally(new InstanceInfo.Builder(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP))
+                .setVIPAddressDeser("vip3")
+                .build());
+        assertThat(instanceIdsForVip("vip1", false), is(setOf()));
+        assertThat(instanceIdsForVip("vip2", false), is(setOf("id2")));
+        assertThat(instanceIdsForVip("vip3", false), is(setOf("id1")));
+        assertThat(instanceIdsForVip("svip1", true), is(setOf()));
+
+        registry.cancel(LOCAL_REGION_APP_NAME, "id2", false);
+        assertThat(instanceIdsForVip("vip2", false), is(setOf()));
+    }
+
+    @Test
+    public void testApplicationsAndDeltasForInterest() throws Exception {
+        InstanceInfo byAppName = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP);
+        InstanceInfo bySecureVip = new InstanceInfo.Builder(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP))
+                .setAppName("otherApp")
+                .setSecureVIPAddressDeser("svip1")
+                .build();
+        InstanceInfo notInteresting = new InstanceInfo.Builder(createLocalInstanceWithIdAndStatus("blahloc3", "id3", InstanceStatus.UP))
+                .setAppName("otherApp")
+                .setVIPAddressDeser("vip2")
+                .build();
+        registerInstanceLocally(byAppName);
+        registry.register(bySecureVip, 10000000, false);
+        registry.register(notInteresting, 10000000, false);
+
+        RegistryInterest interest = RegistryInterest.parse(LOCAL_REGION_APP_NAME.toLowerCase(), "svip1");
+        Applications apps = registry.getApplicationsForInterest(interest);
+        assertThat(instanceIdsOf(apps), is(setOf("id1", "id2")));
+        assertThat(apps.getAppsHashCode(), is("UP_2_"));
+
+        Applications deltas = registry.getApplicationDeltasForInterest(interest);
+        assertThat(instanceIdsOf(deltas), is(setOf("id1", "id2")));
+        assertThat(deltas.getAppsHashCode(), is(apps.getAppsHashCode()));
+
+        registry.cancel("OTHERAPP", "id3", false);
+        assertThat(instanceIdsOf(registry.getApplicationDeltasForInterest(interest)), is(setOf("id1", "id2")));
+        registry.cancel("OTHERAPP", "id2", false);
+        assertThat(instanceIdsOf(registry.getApplicationsForInterest(interest)), is(setOf("id1")));
+        assertThat(registry.getApplicationDeltasForInterest(interest).getAppsHashCode(), is("UP_1_"));
+    }
+
+    private Set<String> instanceIdsForVip(String vipAddress, boolean secure) {
+        return instanceIdsOf(registry.getApplicationsForVip(vipAddress, secure));
+    }
+
+    private static Set<String> instanceIdsOf(Applications apps) {
+        Set<String> ids = new HashSet<>();
+        for (Application app : apps.getRegisteredApplications()) {
+            for (InstanceInfo instanceInfo : app.getInstances()) {
+                ids.add(instanceInfo.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Set<String> setOf(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void testRegistryIsRestoredFromItsSnapshot() throws Exception {
+        File snapshotFile = enableRegistrySnapshot();
+        try {
+            InstanceInfo myInstance = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP);
+            registerInstanceLocally(myInstance);
+            registry.statusUpdate(LOCAL_REGION_APP_NAME, myInstance.getId(), InstanceStatus.OUT_OF_SERVICE, "0", false);
+            long registrationTimestamp = registry.getApplication(LOCAL_REGION_APP_NAME)
+                    .getByInstanceId(myInstance.getId()).getLeaseInfo().getRegistrationTimestamp();
+
+            registry.writeRegistrySnapshot();
+            registry.clearRegistry();
+
+            Assert.assertEquals(1, registry.restoreFromRegistrySnapshot());
+            verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
+            Assert.assertEquals(InstanceStatus.OUT_OF_SERVICE, registry.overriddenInstanceStatusesSnapshot().get(myInstance.getId()));
+            Assert.assertEquals(registrationTimestamp, registry.getApplication(LOCAL_REGION_APP_NAME)
+                    .getByInstanceId(myInstance.getId()).getLeaseInfo().getRegistrationTimestamp());
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptedRegistrySnapshotIsNotRestored() throws Exception {
+        File snapshotFile = enableRegistrySnapshot();
+        try {
+            registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP));
+            registry.writeRegistrySnapshot();
+            registry.clearRegistry();
+
+            try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+                file.seek(file.length() / 2);
+                int value = file.read();
+                file.seek(file.length() / 2);
+                file.write(value ^ 0xFF);
+            }
+
+            Assert.assertEquals(0, registry.restoreFromRegistrySnapshot());
+            Assert.assertNull(registry.getApplication(LOCAL_REGION_APP_NAME, false));
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    @Test
+    public void testJournaledMutationsAreReplayedOnTopOfTheSnapshot() throws Exception {
+        File snapshotFile = enableRegistrySnapshot();
+        File journalFile = new File(snapshotFile.getPath() + ".journal");
+        doReturn(true).when(serverConfig).shouldJournalRegistryMutations();
+        doReturn(journalFile.getPath()).when(serverConfig).getRegistryJournalFile();
+        try {
+            registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP));
+            registry.startRegistryJournal();
+            registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP));
+            registry.statusUpdate(LOCAL_REGION_APP_NAME, "id1", InstanceStatus.OUT_OF_SERVICE, "0", false);
+
+            // Crash before the next snapshot, in the middle of a journal write
+            registry.stopRegistryJournal();
+            try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                out.write(new byte[]{0, 0, 0, 42, 1, 2, 3});
+            }
+            registry.clearRegistry();
+
+            Assert.assertEquals(2, registry.restoreFromRegistrySnapshot());
+            verifyLocalInstanceStatus("id1", InstanceStatus.OUT_OF_SERVICE);
+            verifyLocalInstanceStatus("id2", InstanceStatus.UP);
+        } finally {
+            snapshotFile.delete();
+            journalFile.delete();
+        }
+    }
+
+    private File enableRegistrySnapshot() throws Exception {
+        File snapshotFile = File.createTempFile("eureka-registry", ".snapshot");
+        snapshotFile.delete();
+        doReturn(true).when(serverConfig).shouldPersistRegistrySnapshot();
+        doReturn(snapshotFile.getPath()).when(serverConfig).getRegistrySnapshotFile();
+        return snapshotFile;
+    }
+
     @Test
     public void testStatusOverrideSetAndRemoval() throws Exception {
         InstanceInfo seed = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
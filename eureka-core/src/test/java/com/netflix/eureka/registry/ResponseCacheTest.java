@@ -1,7 +1,9 @@
 package com.netflix.eureka.registry;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
@@ -54,6 +56,22 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null for write view.", cache.get(key, true));
     }
 
+    @Test
+    public void testInterestKeyIsInvalidatedByTheChangesItMatches() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        RegistryInterest interest = RegistryInterest.parse(REMOTE_REGION_APP_NAME, null);
+        Key key = new Key(Key.EntityType.Interest, interest.toString(),
+                Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+        ResponseCacheImpl.Value value = cache.getValue(key, false);
+        Assert.assertNotNull("Cache get returned null.", value);
+
+        cache.invalidate(LOCAL_REGION_APP_NAME, null, null);
+        Assert.assertSame(value, cache.getValue(key, false));
+
+        testRegistry.cancel(REMOTE_REGION_APP_NAME, REMOTE_REGION_INSTANCE_1_HOSTNAME, true);
+        Assert.assertNotSame(value, cache.getValue(key, false));
+    }
+
     @Test
     public void testInvalidateWithRemoteRegion() throws Exception {
         ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
@@ -91,4 +109,40 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key1, true));
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key2, true));
     }
+
+    @Test
+    public void testDirtyKeyRefreshPropagatesInvalidationToReadOnlyCache() throws Exception {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(true).when(serverConfig).disableTransparentFallbackToOtherRegion();
+        doReturn(true).when(serverConfig).shouldUseDirtyKeyResponseCacheRefresh();
+        doReturn(10L).when(serverConfig).getResponseCacheDirtyKeyCoalescingWindowMs();
+
+        PeerAwareInstanceRegistryImpl dirtyKeyRegistry = new PeerAwareInstanceRegistryImpl(
+                serverConfig,
+                new DefaultEurekaClientConfig(),
+                new DefaultServerCodecs(serverConfig),
+                client
+        );
+        dirtyKeyRegistry.init(serverContext.getPeerEurekaNodes());
+        try {
+            InstanceInfo instance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+            dirtyKeyRegistry.register(instance, 10000000, false);
+
+            ResponseCacheImpl cache = (ResponseCacheImpl) dirtyKeyRegistry.getResponseCache();
+            Key key = new Key(Key.EntityType.Application, LOCAL_REGION_APP_NAME,
+                    Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+            Assert.assertNotNull("Cache get returned null.", cache.get(key, true));
+
+            dirtyKeyRegistry.cancel(LOCAL_REGION_APP_NAME, instance.getId(), false);
+
+            // Well before the periodic update interval
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.get(key, true) != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertNull("Read only cache was not refreshed after invalidate.", cache.get(key, true));
+        } finally {
+            dirtyKeyRegistry.getResponseCache().stop();
+        }
+    }
 }
@@ -14,6 +14,8 @@ import com.netflix.eureka.registry.Key;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -63,7 +65,7 @@ public class AbstractVIPResourceTest extends AbstractTester {
                 Key.EntityType.VIP
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decodedApps = decoder.decode(json, Applications.class);
@@ -81,7 +83,7 @@ public class AbstractVIPResourceTest extends AbstractTester {
                 Key.EntityType.VIP
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decodedApps = decoder.decode(json, Applications.class);
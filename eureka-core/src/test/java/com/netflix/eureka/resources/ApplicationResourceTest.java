@@ -16,6 +16,8 @@ import com.netflix.eureka.Version;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -54,7 +56,7 @@ public class ApplicationResourceTest extends AbstractTester {
                 EurekaAccept.full.name()
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Application decodedApp = decoder.decode(json, Application.class);
@@ -69,7 +71,7 @@ public class ApplicationResourceTest extends AbstractTester {
                 EurekaAccept.compact.name()
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Application decodedApp = decoder.decode(json, Application.class);
@@ -7,17 +7,21 @@ import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.ApplicationsManifest;
 import com.netflix.discovery.util.InstanceInfoGenerator;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.Version;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.doReturn;
 
 /**
  * @author David Liu
@@ -53,7 +57,7 @@ public class ApplicationsResourceTest extends AbstractTester {
                 null  // remote regions
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decoded = decoder.decode(json, Applications.class);
@@ -105,7 +109,7 @@ public class ApplicationsResourceTest extends AbstractTester {
                 null  // remote regions
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decoded = decoder.decode(json, Applications.class);
@@ -126,4 +130,139 @@ public class ApplicationsResourceTest extends AbstractTester {
             }
         }
     }
+
+    @Test
+    public void testManifestGet() throws Exception {
+        Response response = applicationsResource.getContainerManifest(
+                Version.V2.name(),
+                null // encoding
+        );
+
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+        DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
+
+        ApplicationsManifest decoded = decoder.decode(json, ApplicationsManifest.class);
+        Applications apps = registry.getApplications();
+        assertThat(decoded, is(ApplicationsManifest.of(apps)));
+        assertThat(decoded.getAppsHashCode(), is(apps.getReconcileHashCode()));
+        // test per app as the full apps list include the mock server that is not part of the test apps
+        for (Application application : testApplications.getRegisteredApplications()) {
+            assertThat(decoded.getAppHashCodes().get(application.getName()), is(ApplicationsManifest.getAppHashCode(application)));
+        }
+    }
+
+    @Test
+    public void testFullAppsGetHasTheChangePosition() throws Exception {
+        Response response = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null  // remote regions
+        );
+
+        String changePosition = (String) response.getMetadata().getFirst(ApplicationsResource.HEADER_CHANGE_POSITION);
+        assertThat(registry.getChangeSequence(changePosition), is(registry.getLastChangeSequence()));
+    }
+
+    @Test
+    public void testDeltaWatchIsDisabledByDefault() throws Exception {
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                EurekaAccept.full.name(),
+                registry.getChangePosition(),
+                10L
+        );
+        assertThat(response.getStatus(), is(403));
+    }
+
+    @Test
+    public void testDeltaWatchReturnsTheChangesAfterTheGivenVersion() throws Exception {
+        doReturn(10).when(serverConfig).getMaxDeltaWatches();
+        String since = registry.getChangePosition();
+        final InstanceInfo instanceInfo = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        Thread registration = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            registerInstanceLocally(instanceInfo);
+        });
+        registration.start();
+
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                EurekaAccept.full.name(),
+                since,
+                5000L
+        );
+        registration.join();
+
+        assertThat(response.getStatus(), is(200));
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+        Applications decoded = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class).decode(json, Applications.class);
+        assertThat(decoded.getRegisteredApplications().size(), is(1));
+        assertThat(decoded.getRegisteredApplications(LOCAL_REGION_APP_NAME).getByInstanceId(instanceInfo.getId()) != null, is(true));
+        assertThat(decoded.getVersion(), is(registry.getLastChangeSequence()));
+        assertThat(response.getMetadata().getFirst(ApplicationsResource.HEADER_CHANGE_POSITION),
+                is((Object) registry.toChangePosition(registry.getLastChangeSequence())));
+    }
+
+    @Test
+    public void testDeltaWatchWithoutChangesIsNotModified() throws Exception {
+        doReturn(10).when(serverConfig).getMaxDeltaWatches();
+        String since = registry.getChangePosition();
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                EurekaAccept.full.name(),
+                since,
+                10L
+        );
+        assertThat(response.getStatus(), is(304));
+        assertThat(response.getMetadata().getFirst(ApplicationsResource.HEADER_CHANGE_POSITION), is((Object) since));
+    }
+
+    @Test
+    public void testDeltaWatchOfUnknownVersionIsGone() throws Exception {
+        doReturn(10).when(serverConfig).getMaxDeltaWatches();
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                EurekaAccept.full.name(),
+                registry.toChangePosition(registry.getLastChangeSequence() + 10),
+                10L
+        );
+        assertThat(response.getStatus(), is(410));
+    }
+
+    @Test
+    public void testDeltaWatchOfAnotherServerIsGone() throws Exception {
+        doReturn(10).when(serverConfig).getMaxDeltaWatches();
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                EurekaAccept.full.name(),
+                "another-server:" + registry.getLastChangeSequence(),
+                10L
+        );
+        assertThat(response.getStatus(), is(410));
+    }
+
+    @Test
+    public void testDeltaWatchWithoutPositionIsBadRequest() throws Exception {
+        doReturn(10).when(serverConfig).getMaxDeltaWatches();
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                EurekaAccept.full.name(),
+                String.valueOf(registry.getLastChangeSequence()),
+                10L
+        );
+        assertThat(response.getStatus(), is(400));
+    }
 }
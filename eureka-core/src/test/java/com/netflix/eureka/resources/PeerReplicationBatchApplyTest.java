@@ -0,0 +1,105 @@
+package com.netflix.eureka.resources;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.Pair;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Checks that a replication batch gets the same responses whether it is applied one application at a time or event
+ * by event, see {@link com.netflix.eureka.EurekaServerConfig#shouldBatchApplyPeerReplication()}.
+ */
+public class PeerReplicationBatchApplyTest extends AbstractTester {
+
+    private static final String MISSING_ID = "missing";
+
+    @Test
+    public void testBatchApplyGivesTheSameResponsesAsTheInstanceResources() throws Exception {
+        doReturn(false).when(serverConfig).shouldBatchApplyPeerReplication();
+        List<String> eventByEvent = applyReplicationBatch();
+
+        registry.clearRegistry();
+        doReturn(true).when(serverConfig).shouldBatchApplyPeerReplication();
+        List<String> perApplication = applyReplicationBatch();
+
+        assertThat(perApplication, is(eventByEvent));
+        assertThat(eventByEvent, is(Arrays.asList(
+                "200", "200", "409 id1", "404", "404", "200", "200", "404",
+                "200", "404", "200", "404", "heartbeats [200, 404]", "invalid registered false")));
+    }
+
+    /**
+     * Registers the instances the batch refers to, and applies a batch with every action, each of them both for an
+     * instance that is registered and for one that is not.
+     *
+     * @return the status codes of the responses, followed by the id of their entity if they have one, then the
+     * status codes of the heartbeat frame and whether the instance that is not valid was registered.
+     */
+    private List<String> applyReplicationBatch() {
+        InstanceInfo instance1 = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP);
+        instance1.setLastDirtyTimestamp(100l);
+        registerInstanceLocally(instance1);
+        InstanceInfo instance3 = createLocalInstanceWithIdAndStatus("blahloc3", "id3", InstanceStatus.UP);
+        registerInstanceLocally(instance3);
+        InstanceInfo instance2 = createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP);
+        registeredApps.add(new Pair<String, String>(LOCAL_REGION_APP_NAME, instance2.getId()));
+        // Rejected by the validation of the application resource, the replication acknowledges it anyway
+        InstanceInfo invalid = new InstanceInfo.Builder(
+                createLocalInstanceWithIdAndStatus("blahloc4", "id4", InstanceStatus.UP)).setIPAddr("").build();
+
+        ReplicationList replicationList = new ReplicationList();
+        replicationList.addReplicationInstance(event(Action.Register, instance2.getId(), instance2.getLastDirtyTimestamp(), null, instance2));
+        replicationList.addReplicationInstance(event(Action.Register, invalid.getId(), invalid.getLastDirtyTimestamp(), null, invalid));
+        // Older than the registry copy, so this node sends its copy back
+        replicationList.addReplicationInstance(event(Action.Heartbeat, instance1.getId(), 50l, null, null));
+        // Newer than the registry copy, so the replicating node registers the instance again
+        replicationList.addReplicationInstance(event(Action.Heartbeat, instance1.getId(), 200l, null, null));
+        replicationList.addReplicationInstance(event(Action.Heartbeat, MISSING_ID, null, null, null));
+        replicationList.addReplicationInstance(event(Action.Heartbeat, instance1.getId(), null, null, null));
+        replicationList.addReplicationInstance(event(Action.Cancel, instance3.getId(), null, null, null));
+        replicationList.addReplicationInstance(event(Action.Cancel, MISSING_ID, null, null, null));
+        replicationList.addReplicationInstance(event(Action.StatusUpdate, instance2.getId(), 0l, InstanceStatus.OUT_OF_SERVICE, null));
+        replicationList.addReplicationInstance(event(Action.StatusUpdate, MISSING_ID, 0l, InstanceStatus.OUT_OF_SERVICE, null));
+        replicationList.addReplicationInstance(event(Action.DeleteStatusOverride, instance2.getId(), 0l, InstanceStatus.UP, null));
+        replicationList.addReplicationInstance(event(Action.DeleteStatusOverride, MISSING_ID, 0l, InstanceStatus.UP, null));
+        replicationList.addHeartbeat(LOCAL_REGION_APP_NAME, instance1.getId());
+        replicationList.addHeartbeat(LOCAL_REGION_APP_NAME, MISSING_ID);
+
+        Response response = new PeerReplicationResource(serverContext).batchReplication(replicationList);
+        assertThat(response.getStatus(), is(200));
+        ReplicationListResponse batchResponse = (ReplicationListResponse) response.getEntity();
+
+        List<String> results = new ArrayList<>();
+        for (ReplicationInstanceResponse instanceResponse : batchResponse.getResponseList()) {
+            String result = String.valueOf(instanceResponse.getStatusCode());
+            if (instanceResponse.getResponseEntity() != null) {
+                result += " " + instanceResponse.getResponseEntity().getId();
+            }
+            results.add(result);
+        }
+        results.add("heartbeats " + batchResponse.getHeartbeatStatusCodes());
+        results.add("invalid registered " + (registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, invalid.getId()) != null));
+        return results;
+    }
+
+    private static ReplicationInstance event(Action action, String id, Long lastDirtyTimestamp,
+                                             InstanceStatus status, InstanceInfo instanceInfo) {
+        return new ReplicationInstance(LOCAL_REGION_APP_NAME, id, lastDirtyTimestamp, null,
+                status == null ? null : status.name(), instanceInfo, action);
+    }
+}
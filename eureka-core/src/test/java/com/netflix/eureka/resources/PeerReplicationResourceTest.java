@@ -2,11 +2,14 @@ package com.netflix.eureka.resources;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import java.util.Arrays;
+import java.util.function.Function;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
@@ -20,8 +23,11 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,6 +39,8 @@ public class PeerReplicationResourceTest {
 
     private final ApplicationResource applicationResource = mock(ApplicationResource.class);
     private final InstanceResource instanceResource = mock(InstanceResource.class);
+    private final PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+    private final EurekaServerConfig serverConfig = mock(EurekaServerConfig.class);
 
     private EurekaServerContext serverContext;
     private PeerReplicationResource peerReplicationResource;
@@ -42,7 +50,8 @@ public class PeerReplicationResourceTest {
     @Before
     public void setUp() {
         serverContext = mock(EurekaServerContext.class);
-        when(serverContext.getServerConfig()).thenReturn(mock(EurekaServerConfig.class));
+        when(serverContext.getServerConfig()).thenReturn(serverConfig);
+        when(serverContext.getRegistry()).thenReturn(registry);
         peerReplicationResource = new PeerReplicationResource(serverContext) {
             @Override
             ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
@@ -103,6 +112,39 @@ public class PeerReplicationResourceTest {
         assertResponseEntityExist(response);
     }
 
+    @Test
+    public void testHeartbeatFrame() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        replicationList.addHeartbeat(instanceInfo.getAppName(), instanceInfo.getId());
+        Response response = peerReplicationResource.batchReplication(replicationList);
+
+        assertThat(response.getStatus(), is(equalTo(200)));
+        ReplicationListResponse entity = (ReplicationListResponse) response.getEntity();
+        assertThat(entity.getResponseList().isEmpty(), is(true));
+        verify(registry, times(1)).applyHeartbeatFrame(replicationList.getHeartbeatFrames().get(0), entity);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchIsAppliedByTheRegistryWhenEnabled() throws Exception {
+        when(instanceResource.cancelLease(anyString())).thenReturn(Response.ok().build());
+        when(serverConfig.shouldBatchApplyPeerReplication()).thenReturn(true);
+        final ReplicationList replicationList = new ReplicationList(newReplicationInstanceOf(Action.Cancel, instanceInfo));
+        when(registry.applyReplicationBatch(eq(replicationList), any(Function.class))).thenAnswer(invocation -> {
+            // The registry applies each event with the handler it is given
+            Function<ReplicationInstance, ReplicationInstanceResponse> eventHandler =
+                    (Function<ReplicationInstance, ReplicationInstanceResponse>) invocation.getArguments()[1];
+            ReplicationListResponse batchResponse = new ReplicationListResponse();
+            batchResponse.addResponse(eventHandler.apply(replicationList.getReplicationList().get(0)));
+            return batchResponse;
+        });
+
+        Response response = peerReplicationResource.batchReplication(replicationList);
+
+        assertStatusOkReply(response);
+        verify(instanceResource, times(1)).cancelLease("true");
+    }
+
     @Test
     public void testStatusUpdate() throws Exception {
         when(instanceResource.statusUpdate(anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
@@ -28,6 +28,7 @@ import org.junit.Test;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -130,6 +131,53 @@ public class AcceptorExecutorTest {
         assertThat(taskHolders.size(), is(equalTo(2)));
     }
 
+    @Test
+    public void testFullBatchIsDispatchedWithoutWaitingForBatchingDelay() throws Exception {
+        AcceptorExecutor<Integer, String> slowBatchingExecutor = new AcceptorExecutor<>(
+                "TEST-SLOW", 10, WORK_LOAD_SIZE, 60 * 1000,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS
+        );
+        try {
+            BlockingQueue<List<TaskHolder<Integer, String>>> taskQueue = slowBatchingExecutor.requestWorkItems();
+            for (int i = 0; i < WORK_LOAD_SIZE; i++) {
+                slowBatchingExecutor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+            }
+
+            List<TaskHolder<Integer, String>> taskHolders = taskQueue.poll(5, TimeUnit.SECONDS);
+            assertThat(taskHolders, is(notNullValue()));
+            assertThat(taskHolders.size(), is(equalTo(WORK_LOAD_SIZE)));
+        } finally {
+            slowBatchingExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInFlightBatchesAreBoundedByBatchWindowConcurrency() throws Exception {
+        BatchWindow batchWindow = new BatchWindow(WORK_LOAD_SIZE, WORK_LOAD_SIZE, WORK_LOAD_SIZE, 1, 60 * 1000);
+        AcceptorExecutor<Integer, String> windowedExecutor = new AcceptorExecutor<>(
+                "TEST-WINDOW", 10, MAX_BATCHING_DELAY_MS,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, batchWindow
+        );
+        try {
+            for (int i = 0; i < 2 * WORK_LOAD_SIZE; i++) {
+                windowedExecutor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+            }
+            BlockingQueue<List<TaskHolder<Integer, String>>> taskQueue = windowedExecutor.requestWorkItems();
+            List<TaskHolder<Integer, String>> firstBatch = taskQueue.poll(5, TimeUnit.SECONDS);
+            assertThat(firstBatch, is(notNullValue()));
+
+            // The second batch waits for the first one to complete
+            windowedExecutor.requestWorkItems();
+            assertThat(taskQueue.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+
+            long now = System.currentTimeMillis();
+            windowedExecutor.batchCompleted(firstBatch.size(), now, now, ProcessingResult.Success);
+            assertThat(taskQueue.poll(5, TimeUnit.SECONDS), is(notNullValue()));
+        } finally {
+            windowedExecutor.shutdown();
+        }
+    }
+
     private static void verifyTaskHolder(TaskHolder<Integer, String> taskHolder, int id, String task) {
         assertThat(taskHolder, is(notNullValue()));
         assertThat(taskHolder.getId(), is(equalTo(id)));
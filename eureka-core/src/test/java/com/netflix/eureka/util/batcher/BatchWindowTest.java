@@ -0,0 +1,99 @@
+package com.netflix.eureka.util.batcher;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BatchWindowTest {
+
+    private static final int MIN_BATCH_SIZE = 10;
+    private static final int INITIAL_BATCH_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final int MAX_CONCURRENCY = 8;
+    private static final long TARGET_LATENCY_MS = 100;
+
+    private final BatchWindow batchWindow = new BatchWindow(
+            MIN_BATCH_SIZE, INITIAL_BATCH_SIZE, MAX_BATCH_SIZE, MAX_CONCURRENCY, TARGET_LATENCY_MS
+    );
+
+    private long time = 1000;
+
+    @Test
+    public void testFullBatchesWithinTargetLatencyGrowTheWindow() throws Exception {
+        batchCompleted(INITIAL_BATCH_SIZE, 10, ProcessingResult.Success);
+        assertThat(batchWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE + MIN_BATCH_SIZE)));
+
+        for (int i = 0; i < 100; i++) {
+            batchCompleted(batchWindow.getBatchSize(), 10, ProcessingResult.Success);
+        }
+        assertThat(batchWindow.getBatchSize(), is(equalTo(MAX_BATCH_SIZE)));
+        assertThat(batchWindow.getConcurrency(), is(equalTo(MAX_CONCURRENCY)));
+    }
+
+    @Test
+    public void testPartialBatchesDoNotGrowTheWindow() throws Exception {
+        batchCompleted(INITIAL_BATCH_SIZE / 2, 10, ProcessingResult.Success);
+        assertThat(batchWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE)));
+    }
+
+    @Test
+    public void testCongestionHalvesTheWindowOncePerBurst() throws Exception {
+        long burstStart = time;
+        batchCompleted(INITIAL_BATCH_SIZE, 10, ProcessingResult.Congestion);
+        assertThat(batchWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE / 2)));
+        assertThat(batchWindow.getConcurrency(), is(equalTo(MAX_CONCURRENCY / 2)));
+
+        // Batches that were in flight when the window shrunk are ignored
+        batchWindow.batchCompleted(INITIAL_BATCH_SIZE, burstStart, time, ProcessingResult.Congestion);
+        assertThat(batchWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE / 2)));
+
+        batchCompleted(INITIAL_BATCH_SIZE, 10, ProcessingResult.Congestion);
+        assertThat(batchWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE / 4)));
+        assertThat(batchWindow.getConcurrency(), is(equalTo(MAX_CONCURRENCY / 4)));
+    }
+
+    @Test
+    public void testSlowBatchesShrinkTheBatchSizeDownToTheMinimum() throws Exception {
+        batchCompleted(INITIAL_BATCH_SIZE, 2 * TARGET_LATENCY_MS, ProcessingResult.Success);
+        assertThat(batchWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE * 3 / 4)));
+        assertThat(batchWindow.getConcurrency(), is(equalTo(MAX_CONCURRENCY)));
+
+        for (int i = 0; i < 100; i++) {
+            batchCompleted(batchWindow.getBatchSize(), 2 * TARGET_LATENCY_MS, ProcessingResult.Success);
+        }
+        assertThat(batchWindow.getBatchSize(), is(equalTo(MIN_BATCH_SIZE)));
+    }
+
+    @Test
+    public void testConcurrencyRecoversOneBatchPerRound() throws Exception {
+        batchCompleted(INITIAL_BATCH_SIZE, 10, ProcessingResult.Congestion);
+        int concurrency = batchWindow.getConcurrency();
+
+        for (int i = 0; i < concurrency - 1; i++) {
+            batchCompleted(batchWindow.getBatchSize(), 10, ProcessingResult.Success);
+        }
+        assertThat(batchWindow.getConcurrency(), is(equalTo(concurrency)));
+        batchCompleted(batchWindow.getBatchSize(), 10, ProcessingResult.Success);
+        assertThat(batchWindow.getConcurrency(), is(equalTo(concurrency + 1)));
+    }
+
+    @Test
+    public void testFixedWindowNeverChanges() throws Exception {
+        BatchWindow fixedWindow = BatchWindow.fixed(INITIAL_BATCH_SIZE);
+        fixedWindow.batchCompleted(INITIAL_BATCH_SIZE, 0, 10, ProcessingResult.Congestion);
+        fixedWindow.batchCompleted(INITIAL_BATCH_SIZE, 20, 30, ProcessingResult.Success);
+
+        assertThat(fixedWindow.getBatchSize(), is(equalTo(INITIAL_BATCH_SIZE)));
+        assertThat(fixedWindow.getConcurrency(), is(equalTo(Integer.MAX_VALUE)));
+    }
+
+    private void batchCompleted(int size, long latencyMs, ProcessingResult result) {
+        long startTime = time;
+        time += latencyMs;
+        batchWindow.batchCompleted(size, startTime, time, result);
+        time++;
+    }
+}
@@ -0,0 +1,153 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PendingTaskIndexTest {
+
+    private static final long EXPIRY_TIME = Long.MAX_VALUE;
+
+    @Test
+    public void testTasksAreDrainedInInsertionOrder() throws Exception {
+        PendingTaskIndex<String, String> index = new PendingTaskIndex<>(10);
+        index.put(holder("a", "task1"));
+        index.put(holder("b", "task2"));
+        index.put(holder("c", "task3"));
+
+        assertThat(index.size(), is(equalTo(3)));
+        assertThat(drainIds(index), is(equalTo(ids("a", "b", "c"))));
+        assertThat(index.isEmpty(), is(true));
+        assertThat(index.pollFirst(), is(nullValue()));
+        assertThat(index.peekFirst(), is(nullValue()));
+    }
+
+    @Test
+    public void testTaskWithSameIdIsReplacedInPlace() throws Exception {
+        PendingTaskIndex<String, String> index = new PendingTaskIndex<>(10);
+        index.put(holder("a", "task1"));
+        index.put(holder("b", "task2"));
+
+        TaskHolder<String, String> previous = index.put(holder("a", "task3"));
+
+        assertThat(previous.getTask(), is(equalTo("task1")));
+        assertThat(index.size(), is(equalTo(2)));
+        assertThat(index.get("a").getTask(), is(equalTo("task3")));
+        assertThat(drainIds(index), is(equalTo(ids("a", "b"))));
+    }
+
+    @Test
+    public void testAddFirstSkipsPendingIds() throws Exception {
+        PendingTaskIndex<String, String> index = new PendingTaskIndex<>(10);
+        index.put(holder("a", "task1"));
+
+        assertThat(index.addFirst(holder("a", "task2")), is(false));
+        assertThat(index.addFirst(holder("b", "task3")), is(true));
+
+        assertThat(index.get("a").getTask(), is(equalTo("task1")));
+        assertThat(drainIds(index), is(equalTo(ids("b", "a"))));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddingToFullIndexFails() throws Exception {
+        PendingTaskIndex<String, String> index = new PendingTaskIndex<>(2);
+        index.put(holder("a", "task1"));
+        index.put(holder("b", "task2"));
+        assertThat(index.isFull(), is(true));
+
+        index.put(holder("c", "task3"));
+    }
+
+    @Test
+    public void testIndexMatchesLinkedHashMapUnderChurn() throws Exception {
+        int capacity = 64;
+        PendingTaskIndex<CollidingId, String> index = new PendingTaskIndex<>(capacity);
+        Map<CollidingId, String> expected = new LinkedHashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            // Few distinct hash codes, so that lookups and removals go through long probe runs
+            CollidingId id = new CollidingId(random.nextInt(200));
+            String task = "task" + i;
+            int operation = random.nextInt(3);
+            if (operation == 0 && !expected.isEmpty()) {
+                CollidingId first = expected.keySet().iterator().next();
+                assertThat(index.pollFirst().getId(), is(equalTo(first)));
+                expected.remove(first);
+            } else if (expected.containsKey(id) || expected.size() < capacity) {
+                if (operation == 1 && !expected.containsKey(id)) {
+                    index.addFirst(new TaskHolder<>(id, task, EXPIRY_TIME));
+                    Map<CollidingId, String> reordered = new LinkedHashMap<>();
+                    reordered.put(id, task);
+                    reordered.putAll(expected);
+                    expected = reordered;
+                } else {
+                    index.put(new TaskHolder<>(id, task, EXPIRY_TIME));
+                    expected.put(id, task);
+                }
+            }
+            assertThat(index.size(), is(equalTo(expected.size())));
+            assertThat(index.containsKey(id), is(expected.containsKey(id)));
+        }
+
+        for (Map.Entry<CollidingId, String> entry : expected.entrySet()) {
+            assertThat(index.get(entry.getKey()).getTask(), is(equalTo(entry.getValue())));
+        }
+        for (Map.Entry<CollidingId, String> entry : expected.entrySet()) {
+            assertThat(index.pollFirst().getId(), is(equalTo(entry.getKey())));
+        }
+        assertThat(index.isEmpty(), is(true));
+    }
+
+    private static TaskHolder<String, String> holder(String id, String task) {
+        return new TaskHolder<>(id, task, EXPIRY_TIME);
+    }
+
+    private static <ID> List<ID> drainIds(PendingTaskIndex<ID, ?> index) {
+        List<ID> ids = new ArrayList<>();
+        while (!index.isEmpty()) {
+            ids.add(index.pollFirst().getId());
+        }
+        return ids;
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static class CollidingId {
+        private final int value;
+
+        CollidingId(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingId && ((CollidingId) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value % 7;
+        }
+
+        @Override
+        public String toString() {
+            return "CollidingId{" + value + '}';
+        }
+    }
+}
@@ -18,7 +18,10 @@ package com.netflix.eureka.util.batcher;
 
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
 import org.junit.After;
@@ -29,6 +32,10 @@ import static com.netflix.eureka.util.batcher.RecordingProcessor.permanentErrorT
 import static com.netflix.eureka.util.batcher.RecordingProcessor.successfulTaskHolder;
 import static com.netflix.eureka.util.batcher.RecordingProcessor.transientErrorTaskHolder;
 import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
@@ -57,7 +64,9 @@ public class TaskExecutorsTest {
 
     @After
     public void tearDown() throws Exception {
-        taskExecutors.shutdown();
+        if (taskExecutors != null) {
+            taskExecutors.shutdown();
+        }
     }
 
     @Test
@@ -121,4 +130,46 @@ public class TaskExecutorsTest {
         processor.expectPermanentErrors(2);
         verify(acceptorExecutor, never()).reprocess(taskHolderBatch, ProcessingResult.TransientError);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatchSlotIsReleasedWhenProcessorThrows() throws Exception {
+        AcceptorExecutor<Integer, String> windowedExecutor = new AcceptorExecutor<>(
+                "TEST-THROWING", 10, 10, 10, 10, new BatchWindow(1, 1, 1, 1, 60 * 1000)
+        );
+        AtomicInteger processedBatches = new AtomicInteger();
+        CountDownLatch laterBatchesProcessed = new CountDownLatch(2);
+        TaskProcessor<String> throwingProcessor = new TaskProcessor<String>() {
+            @Override
+            public ProcessingResult process(String task) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ProcessingResult process(List<String> tasks) {
+                if (processedBatches.getAndIncrement() == 0) {
+                    throw new IllegalStateException("processing failure");
+                }
+                laterBatchesProcessed.countDown();
+                return ProcessingResult.Success;
+            }
+        };
+        TaskExecutors<Integer, String> throwingExecutors = TaskExecutors.batchExecutors("TEST-THROWING", 1, throwingProcessor, windowedExecutor);
+        try {
+            for (int i = 0; i < 3; i++) {
+                windowedExecutor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+            }
+
+            // With a single in-flight slot, the batches after the failed one are dispatched only if it was released
+            assertTrue(laterBatchesProcessed.await(5, TimeUnit.SECONDS));
+            assertThat(processedBatches.get(), is(equalTo(3)));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (windowedExecutor.getInFlightBatches() != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(windowedExecutor.getInFlightBatches(), is(equalTo(0L)));
+        } finally {
+            throwingExecutors.shutdown();
+            windowedExecutor.shutdown();
+        }
+    }
+}
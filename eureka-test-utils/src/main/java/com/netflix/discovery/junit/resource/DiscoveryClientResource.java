@@ -53,6 +53,8 @@ public class DiscoveryClientResource extends ExternalResource {
     private final Callable<Integer> portResolverCallable;
     private final List<String> remoteRegions;
     private final String vipFetch;
+    private final String interestApps;
+    private final String interestVips;
     private final String userName;
     private final String password;
 
@@ -71,6 +73,8 @@ public class DiscoveryClientResource extends ExternalResource {
         this.instance = builder.instance;
         this.remoteRegions = builder.remoteRegions;
         this.vipFetch = builder.vipFetch;
+        this.interestApps = builder.interestApps;
+        this.interestVips = builder.interestVips;
         this.userName = builder.userName;
         this.password = builder.password;
     }
@@ -182,6 +186,12 @@ public class DiscoveryClientResource extends ExternalResource {
         if (vipFetch != null) {
             bindProperty(EUREKA_TEST_NAMESPACE + "registryRefreshSingleVipAddress", vipFetch);
         }
+        if (interestApps != null) {
+            bindProperty(EUREKA_TEST_NAMESPACE + "registryRefreshInterest.apps", interestApps);
+        }
+        if (interestVips != null) {
+            bindProperty(EUREKA_TEST_NAMESPACE + "registryRefreshInterest.vips", interestVips);
+        }
 
         return new DefaultEurekaClientConfig(EUREKA_TEST_NAMESPACE);
     }
@@ -295,6 +305,8 @@ public class DiscoveryClientResource extends ExternalResource {
         private SimpleEurekaHttpServer eurekaHttpServer;
         private List<String> remoteRegions;
         private String vipFetch;
+        private String interestApps;
+        private String interestVips;
         private String userName;
         private String password;
 
@@ -336,6 +348,12 @@ public class DiscoveryClientResource extends ExternalResource {
             return this;
         }
 
+        public DiscoveryClientRuleBuilder withInterest(String interestApps, String interestVips) {
+            this.interestApps = interestApps;
+            this.interestVips = interestVips;
+            return this;
+        }
+
         public DiscoveryClientRuleBuilder basicAuthentication(String userName, String password) {
             Preconditions.checkNotNull(userName, "HTTP basic authentication user name is null");
             Preconditions.checkNotNull(password, "HTTP basic authentication password is null");
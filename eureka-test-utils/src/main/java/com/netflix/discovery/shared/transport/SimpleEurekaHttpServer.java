@@ -35,6 +35,7 @@ import com.netflix.discovery.converters.wrappers.CodecWrappers.JacksonJson;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -139,6 +140,14 @@ public class SimpleEurekaHttpServer {
         } else if (path.matches("/v2/apps/delta[/]?")) {
             String regions = getQueryParam(httpExchange, "regions");
             httpResponse = regions == null ? requestHandler.getDelta() : requestHandler.getDelta(regions);
+        } else if (path.matches("/v2/apps/interest[/]?")) {
+            httpResponse = requestHandler.getApplicationsOfInterest(getInterestParam(httpExchange));
+        } else if (path.matches("/v2/apps/interest/delta[/]?")) {
+            httpResponse = requestHandler.getDeltaOfInterest(getInterestParam(httpExchange));
+        } else if (path.matches("/v2/apps/manifest[/]?")) {
+            httpResponse = requestHandler.getApplicationsManifest();
+        } else if ((matcher = Pattern.compile("/v2/apps/([^/]+)[/]?").matcher(path)).matches()) {
+            httpResponse = requestHandler.getApplication(matcher.group(1));
         } else if ((matcher = Pattern.compile("/v2/apps/([^/]+)/([^/]+)").matcher(path)).matches()) {
             httpResponse = requestHandler.getInstance(matcher.group(1), matcher.group(2));
         } else {
@@ -286,6 +295,10 @@ public class SimpleEurekaHttpServer {
         }
     }
 
+    private static RegistryInterest getInterestParam(HttpExchange httpExchange) {
+        return RegistryInterest.parse(getQueryParam(httpExchange, "apps"), getQueryParam(httpExchange, "vips"));
+    }
+
     private static String getQueryParam(HttpExchange httpExchange, String queryParam) {
         String query = httpExchange.getRequestURI().getQuery();
         if (query != null) {